@@ -0,0 +1,45 @@
+package com.keycloak.forge.benchmark;
+
+import com.keycloak.forge.model.RealmAnalysis;
+import com.keycloak.forge.service.ConversionResultCache;
+import com.keycloak.forge.service.KeycloakService;
+import com.keycloak.forge.service.TerraformGeneratorService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Realm analysis (entity counts and complexity) of a realm export.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnalyzerBenchmark {
+
+    private KeycloakService keycloakService;
+
+    @Setup
+    public void setUp() {
+        keycloakService = new KeycloakService(new TerraformGeneratorService(),
+            new ConversionResultCache(new SimpleMeterRegistry(), false, 1, 1), RealmState.OBJECT_MAPPER,
+            new SimpleMeterRegistry(), 1);
+    }
+
+    @Benchmark
+    public RealmAnalysis analyzeRealm(RealmState state) {
+        return keycloakService.analyzeRealm(state.realm);
+    }
+}
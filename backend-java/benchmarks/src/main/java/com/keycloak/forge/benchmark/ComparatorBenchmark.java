@@ -0,0 +1,45 @@
+package com.keycloak.forge.benchmark;
+
+import com.keycloak.forge.model.ValidationResult;
+import com.keycloak.forge.service.ValidationService;
+import org.keycloak.representations.idm.RealmRepresentation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Comparison of a realm export against an identical, independently deserialized copy,
+ * the worst case for the comparator since nothing can be skipped on a difference.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComparatorBenchmark {
+
+    private ValidationService validationService;
+    private RealmRepresentation exported;
+
+    @Setup
+    public void setUp(RealmState state) {
+        // compareRealms never talks to Keycloak
+        validationService = new ValidationService(null, 1);
+        exported = state.copy();
+    }
+
+    @Benchmark
+    public ValidationResult compareRealms(RealmState state) {
+        return validationService.compareRealms(state.realm, exported);
+    }
+}
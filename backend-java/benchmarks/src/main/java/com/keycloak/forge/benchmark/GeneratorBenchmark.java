@@ -0,0 +1,48 @@
+package com.keycloak.forge.benchmark;
+
+import com.keycloak.forge.model.ConversionRequest;
+import com.keycloak.forge.model.ConversionResult;
+import com.keycloak.forge.service.TerraformGeneratorService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full Terragrunt module generation of a realm export.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeneratorBenchmark {
+
+    @Param({"false", "true"})
+    public boolean parallelGeneration;
+
+    private TerraformGeneratorService generator;
+    private ConversionRequest.ConversionOptions options;
+
+    @Setup
+    public void setUp() {
+        generator = new TerraformGeneratorService();
+        options = new ConversionRequest.ConversionOptions();
+        options.setParallelGeneration(parallelGeneration);
+    }
+
+    @Benchmark
+    public ConversionResult generateTerragruntModules(RealmState state) {
+        return generator.generateTerragruntModules(state.realm, options);
+    }
+}
@@ -0,0 +1,52 @@
+package com.keycloak.forge.benchmark;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.keycloak.representations.idm.RealmRepresentation;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Real realm exports from {@code data/samples} and {@code data/generated}, ordered by size.
+ *
+ * The data directory defaults to {@code ../../data} (relative to this module) and can be
+ * overridden with {@code -Dforge.data.dir=...}.
+ */
+@State(Scope.Benchmark)
+public class RealmState {
+
+    static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @Param({
+        "samples/example-realm.json",
+        "samples/api-key-realm.json",
+        "generated/complex-example-realm.json",
+        "generated/mega-complex-realm.json",
+        "samples/another_test.json",
+        "generated/ultra-complex-realm-with-groups.json"
+    })
+    public String realmFile;
+
+    public RealmRepresentation realm;
+
+    @Setup(Level.Trial)
+    public void loadRealm() throws IOException {
+        Path dataDir = Path.of(System.getProperty("forge.data.dir", "../../data"));
+        realm = OBJECT_MAPPER.readValue(Files.readAllBytes(dataDir.resolve(realmFile)), RealmRepresentation.class);
+    }
+
+    /**
+     * @return an independent deep copy of the realm, as a second export of the same content would be
+     */
+    RealmRepresentation copy() {
+        return OBJECT_MAPPER.convertValue(realm, RealmRepresentation.class);
+    }
+}
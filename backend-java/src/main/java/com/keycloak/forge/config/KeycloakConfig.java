@@ -1,14 +1,40 @@
 package com.keycloak.forge.config;
 
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.PoolingHttpClientConnectionManagerMetricsBinder;
+import jakarta.ws.rs.client.Client;
+import jakarta.ws.rs.client.ClientBuilder;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+import org.jboss.resteasy.client.jaxrs.engines.ApacheHttpClient43Engine;
+import org.keycloak.admin.client.JacksonProvider;
 import org.keycloak.admin.client.Keycloak;
 import org.keycloak.admin.client.KeycloakBuilder;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keycloak admin client on a pooled Apache HTTP client.
+ *
+ * Connections to the admin API are kept alive and reused across requests, so concurrent
+ * realm exports do not pay a TCP and TLS handshake per call. The pool is bounded in total
+ * and per route, a request waits at most {@code keycloak.http.connection-request-timeout}
+ * seconds for a free connection, and its usage is published as {@code httpcomponents.httpclient.pool.*}
+ * meters tagged {@code httpclient=keycloak-admin}.
+ */
 @Configuration
 public class KeycloakConfig {
 
+    private static final String POOL_NAME = "keycloak-admin";
+
     @Value("${keycloak.auth-server-url}")
     private String keycloakUrl;
 
@@ -24,14 +50,91 @@ public class KeycloakConfig {
     @Value("${keycloak.admin.realm}")
     private String realm;
 
+    @Value("${keycloak.admin.token-min-validity:30}")
+    private long tokenMinValiditySeconds = 30;
+
+    @Value("${keycloak.http.max-connections:20}")
+    private int maxConnections = 20;
+
+    @Value("${keycloak.http.max-connections-per-route:10}")
+    private int maxConnectionsPerRoute = 10;
+
+    @Value("${keycloak.http.connect-timeout:5}")
+    private int connectTimeoutSeconds = 5;
+
+    @Value("${keycloak.http.socket-timeout:60}")
+    private int socketTimeoutSeconds = 60;
+
+    @Value("${keycloak.http.connection-request-timeout:10}")
+    private int connectionRequestTimeoutSeconds = 10;
+
+    @Value("${keycloak.http.keep-alive:30}")
+    private long keepAliveSeconds = 30;
+
+    @Value("${keycloak.http.validate-after-inactivity:2}")
+    private int validateAfterInactivitySeconds = 2;
+
+    @Bean(destroyMethod = "shutdown")
+    public PoolingHttpClientConnectionManager keycloakConnectionManager() {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        // Idle connections may have been closed by the server or a proxy in between
+        connectionManager.setValidateAfterInactivity((int) TimeUnit.SECONDS.toMillis(validateAfterInactivitySeconds));
+        return connectionManager;
+    }
+
     @Bean
-    public Keycloak keycloak() {
-        return KeycloakBuilder.builder()
+    public MeterBinder keycloakConnectionPoolMetrics(PoolingHttpClientConnectionManager keycloakConnectionManager) {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(keycloakConnectionManager, POOL_NAME);
+    }
+
+    @Bean(destroyMethod = "close")
+    public Keycloak keycloak(PoolingHttpClientConnectionManager keycloakConnectionManager) {
+        Keycloak keycloak = KeycloakBuilder.builder()
                 .serverUrl(keycloakUrl)
                 .realm(realm)
                 .clientId(clientId)
                 .username(adminUsername)
                 .password(adminPassword)
+                .resteasyClient(resteasyClient(keycloakConnectionManager))
+                .build();
+        // Refresh the access token this long before it expires instead of after a 401
+        keycloak.tokenManager().setMinTokenValidity(tokenMinValiditySeconds);
+        return keycloak;
+    }
+
+    private Client resteasyClient(PoolingHttpClientConnectionManager connectionManager) {
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout((int) TimeUnit.SECONDS.toMillis(connectTimeoutSeconds))
+                .setSocketTimeout((int) TimeUnit.SECONDS.toMillis(socketTimeoutSeconds))
+                .setConnectionRequestTimeout((int) TimeUnit.SECONDS.toMillis(connectionRequestTimeoutSeconds))
                 .build();
+
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                // The pool is closed with its own bean
+                .setConnectionManagerShared(true)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy())
+                .evictExpiredConnections()
+                .evictIdleConnections(keepAliveSeconds, TimeUnit.SECONDS)
+                .build();
+
+        return ((ResteasyClientBuilder) ClientBuilder.newBuilder())
+                .httpEngine(new ApacheHttpClient43Engine(httpClient, true))
+                .register(JacksonProvider.class, 100)
+                .build();
+    }
+
+    /**
+     * Keep connections alive as long as the server allows, but never longer than {@code keycloak.http.keep-alive}.
+     */
+    private ConnectionKeepAliveStrategy keepAliveStrategy() {
+        long keepAliveMillis = TimeUnit.SECONDS.toMillis(keepAliveSeconds);
+        return (response, context) -> {
+            long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return serverKeepAlive > 0 ? Math.min(serverKeepAlive, keepAliveMillis) : keepAliveMillis;
+        };
     }
 }
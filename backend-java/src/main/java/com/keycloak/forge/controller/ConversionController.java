@@ -1,21 +1,34 @@
 package com.keycloak.forge.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.keycloak.forge.model.ConversionRequest;
 import com.keycloak.forge.model.ConversionResult;
 import com.keycloak.forge.model.RealmAnalysis;
+import com.keycloak.forge.service.ConversionJobService;
 import com.keycloak.forge.service.KeycloakService;
+import com.keycloak.forge.service.RealmExportReader;
 import com.keycloak.forge.service.TerraformGeneratorService;
+import com.keycloak.forge.service.ZipTerraformFileSink;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
-import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.ZipOutputStream;
 
 /**
  * REST controller for Keycloak realm conversion operations
@@ -28,10 +41,13 @@ import java.util.UUID;
 public class ConversionController {
 
     private final KeycloakService keycloakService;
+    private final ConversionJobService conversionJobService;
     private final TerraformGeneratorService terraformGeneratorService;
+    private final ObjectMapper objectMapper;
 
     /**
-     * Convert a Keycloak realm JSON to Terragrunt modules
+     * Convert a Keycloak realm JSON to Terragrunt modules. The manifest of the result is kept
+     * under its conversion ID for the status and file list endpoints.
      */
     @PostMapping("/convert")
     public ResponseEntity<ConversionResult> convertRealm(
@@ -40,19 +56,16 @@ public class ConversionController {
         log.info("Starting realm conversion for realm: {}", request.getRealm().getRealm());
         
         try {
-            // Analyze the realm first
-            RealmAnalysis analysis = keycloakService.analyzeRealm(request.getRealm());
-            log.info("Realm analysis completed. Complexity score: {}", analysis.getComplexity().getScore());
-            
             // Generate Terragrunt modules
-            ConversionResult result = terraformGeneratorService.generateTerragruntModules(
+            ConversionResult result = keycloakService.convertRealm(
                 request.getRealm(), 
                 request.getOptions()
             );
             
             // Add analysis metadata
-            result.setAnalysis(analysis);
-            result.setConversionId(UUID.randomUUID().toString());
+            keycloakService.attachAnalysis(result, request.getRealm());
+            log.info("Realm analysis completed. Complexity score: {}", result.getAnalysis().getComplexity().getScore());
+            conversionJobService.register(result);
             
             log.info("Conversion completed successfully. Generated {} files", result.getFiles().size());
             return ResponseEntity.ok(result);
@@ -68,7 +81,103 @@ public class ConversionController {
     }
 
     /**
-     * Upload and convert multiple realm files
+     * Queue a realm conversion and return its job ID at once. Progress and the result
+     * are available from the status endpoint.
+     */
+    @PostMapping("/convert/async")
+    public ResponseEntity<ConversionResult> submitConversion(
+            @Valid @RequestBody ConversionRequest request) {
+        
+        try {
+            ConversionResult status = conversionJobService.submit(request.getRealm(), request.getOptions());
+            return ResponseEntity.accepted()
+                .location(URI.create("/api/v1/convert/" + status.getConversionId() + "/status"))
+                .body(status);
+            
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "30")
+                .body(ConversionResult.builder()
+                    .success(false)
+                    .error("Conversion queue is full, retry later")
+                    .build());
+        }
+    }
+
+    /**
+     * Convert a Keycloak realm JSON to Terragrunt modules streamed as a ZIP archive.
+     * Each file is written to its archive entry as it is generated, so no
+     * module content is held in memory.
+     */
+    @PostMapping(value = "/convert/archive", produces = "application/zip")
+    public ResponseEntity<StreamingResponseBody> convertRealmToArchive(
+            @Valid @RequestBody ConversionRequest request) {
+        
+        String realmName = request.getRealm().getRealm();
+        log.info("Starting archive conversion for realm: {}", realmName);
+
+        // Reject unusable realm names before the response is committed
+        try {
+            TerraformGeneratorService.realmDirectory(realmName);
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected archive conversion: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            try (ZipOutputStream zip = new ZipOutputStream(outputStream)) {
+                ZipTerraformFileSink sink = new ZipTerraformFileSink(zip);
+                terraformGeneratorService.writeTerragruntModules(request.getRealm(), request.getOptions(), sink);
+                log.info("Archive conversion completed. Streamed {} files", sink.getEntries());
+            }
+        };
+        
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(realmName + "-terragrunt.zip")
+                .build()
+                .toString())
+            .contentType(MediaType.parseMediaType("application/zip"))
+            .body(body);
+    }
+
+    /**
+     * Convert a raw Keycloak realm export to Terragrunt modules streamed as a ZIP archive.
+     * The export is read entity by entity while the archive is written, so neither the
+     * realm nor the generated modules are ever held in memory as a whole.
+     */
+    @PostMapping(value = "/convert/stream", consumes = MediaType.APPLICATION_JSON_VALUE, produces = "application/zip")
+    public ResponseEntity<StreamingResponseBody> convertRealmExportStream(
+            InputStream realmExport,
+            @RequestParam(value = "options", required = false) String optionsJson) throws IOException {
+        
+        ConversionRequest.ConversionOptions options = optionsJson != null
+            ? objectMapper.readValue(optionsJson, ConversionRequest.ConversionOptions.class)
+            : new ConversionRequest.ConversionOptions();
+        log.info("Starting streaming conversion of realm export");
+        
+        StreamingResponseBody body = outputStream -> {
+            try (RealmExportReader reader = new RealmExportReader(objectMapper, realmExport);
+                 ZipOutputStream zip = new ZipOutputStream(outputStream)) {
+                ZipTerraformFileSink sink = new ZipTerraformFileSink(zip);
+                terraformGeneratorService.writeTerragruntModules(reader, options, sink);
+                log.info("Streaming conversion completed for realm: {}. Streamed {} files", 
+                    reader.getRealmName(), sink.getEntries());
+            }
+        };
+        
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("terragrunt-modules.zip")
+                .build()
+                .toString())
+            .contentType(MediaType.parseMediaType("application/zip"))
+            .body(body);
+    }
+
+    /**
+     * Upload and convert multiple realm files. The manifest of each successful result is kept
+     * under its conversion ID for the status and file list endpoints.
      */
     @PostMapping("/convert/upload")
     public ResponseEntity<List<ConversionResult>> convertUploadedFiles(
@@ -79,6 +188,9 @@ public class ConversionController {
         
         try {
             List<ConversionResult> results = keycloakService.processBatchUpload(files, optionsJson);
+            results.stream()
+                .filter(ConversionResult::isSuccess)
+                .forEach(conversionJobService::register);
             log.info("Batch conversion completed. {} results generated", results.size());
             return ResponseEntity.ok(results);
             
@@ -117,10 +229,59 @@ public class ConversionController {
     public ResponseEntity<ConversionResult> getConversionStatus(
             @PathVariable String conversionId) {
         
-        ConversionResult result = keycloakService.getConversionStatus(conversionId);
+        ConversionResult result = conversionJobService.getStatus(conversionId);
         if (result == null) {
             return ResponseEntity.notFound().build();
         }
         return ResponseEntity.ok(result);
     }
+
+    /**
+     * List the files of a completed conversion with their UTF-8 size and SHA-256 digest but
+     * without content, so clients can tell which files changed since an earlier conversion.
+     */
+    @GetMapping("/convert/{conversionId}/files")
+    public ResponseEntity<List<ConversionResult.TerraformFile>> getConversionManifest(
+            @PathVariable String conversionId) {
+        
+        ConversionResult result = conversionJobService.getStatus(conversionId);
+        if (result == null || result.getFiles() == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(result.getFiles().stream()
+            .map(file -> ConversionResult.TerraformFile.builder()
+                .filePath(file.getFilePath())
+                .type(file.getType())
+                .size(file.getSize())
+                .digest(file.getDigest())
+                .build())
+            .toList());
+    }
+
+    /**
+     * Download one file of a completed asynchronous conversion. The file's digest is its ETag, so
+     * a request with a matching {@code If-None-Match} is answered with {@code 304 Not Modified}.
+     * Synchronous conversions keep no content, so their files are not found here.
+     */
+    @GetMapping("/convert/{conversionId}/files/{*filePath}")
+    public ResponseEntity<String> getConversionFile(
+            @PathVariable String conversionId,
+            @PathVariable String filePath) {
+        
+        ConversionResult result = conversionJobService.getStatus(conversionId);
+        if (result == null || result.getFiles() == null) {
+            return ResponseEntity.notFound().build();
+        }
+        String path = filePath.startsWith("/") ? filePath.substring(1) : filePath;
+        return result.getFiles().stream()
+            .filter(file -> file.getFilePath().equals(path) && file.getContent() != null)
+            .findFirst()
+            // A matching If-None-Match turns the response into 304 Not Modified
+            .map(file -> ResponseEntity.ok()
+                .eTag(file.getDigest())
+                .contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8))
+                .contentLength(file.getSize())
+                .body(file.getContent()))
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
 }
\ No newline at end of file
@@ -1,7 +1,11 @@
 package com.keycloak.forge.controller;
 
+import com.keycloak.forge.model.ConversionRequest;
+import com.keycloak.forge.model.ConversionResult;
+import com.keycloak.forge.model.RealmFingerprint;
 import com.keycloak.forge.model.RoundTripValidation;
 import com.keycloak.forge.model.ValidationResult;
+import com.keycloak.forge.service.TerraformGeneratorService;
 import com.keycloak.forge.service.ValidationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -17,8 +21,10 @@ import jakarta.validation.Valid;
  * 
  * Provides endpoints for:
  * - Round-trip validation (realm.json → Terragrunt → Keycloak → export → compare)
+ * - Offline round-trip validation (realm.json → Terragrunt → read back → compare)
  * - Export validation (export deployed realm and compare)
  * - Compliance checking (ensure deployed matches original)
+ * - Realm fingerprints (compare against stored baselines without re-exporting)
  */
 @RestController
 @RequestMapping("/api/v1/validate")
@@ -28,6 +34,7 @@ import jakarta.validation.Valid;
 public class ValidationController {
 
     private final ValidationService validationService;
+    private final TerraformGeneratorService terraformGeneratorService;
 
     /**
      * Perform complete round-trip validation
@@ -70,6 +77,35 @@ public class ValidationController {
         }
     }
 
+    /**
+     * Perform round-trip validation without a Keycloak instance
+     * 
+     * Generates the Terragrunt modules with the default options and reads
+     * the realm back from the generated HCL to compare it with the original.
+     */
+    @PostMapping("/round-trip/offline")
+    public ResponseEntity<RoundTripValidation> performOfflineRoundTripValidation(
+            @Valid @RequestBody RealmRepresentation originalRealm) {
+        
+        log.info("Starting offline round-trip validation for realm: {}", originalRealm.getRealm());
+        
+        try {
+            ConversionResult generated = terraformGeneratorService.generateTerragruntModules(
+                originalRealm, new ConversionRequest.ConversionOptions());
+            return ResponseEntity.ok(validationService.performOfflineRoundTripValidation(
+                originalRealm, generated.getFiles()));
+            
+        } catch (Exception e) {
+            log.error("Offline round-trip validation failed", e);
+            return ResponseEntity.internalServerError()
+                .body(RoundTripValidation.builder()
+                    .originalRealm(originalRealm.getRealm())
+                    .success(false)
+                    .error("Validation failed: " + e.getMessage())
+                    .build());
+        }
+    }
+
     /**
      * Export a deployed realm configuration
      */
@@ -116,6 +152,56 @@ public class ValidationController {
         }
     }
 
+    /**
+     * Fingerprint a realm representation
+     */
+    @PostMapping("/fingerprint")
+    public ResponseEntity<RealmFingerprint> fingerprintRealm(@RequestBody RealmRepresentation realm) {
+        log.info("Fingerprinting realm: {}", realm.getRealm());
+
+        try {
+            return ResponseEntity.ok(validationService.fingerprintRealm(realm));
+        } catch (Exception e) {
+            log.error("Failed to fingerprint realm: {}", realm.getRealm(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Fingerprint a deployed realm
+     */
+    @GetMapping("/fingerprint/{realmName}")
+    public ResponseEntity<RealmFingerprint> fingerprintDeployedRealm(@PathVariable String realmName) {
+        log.info("Fingerprinting deployed realm: {}", realmName);
+
+        try {
+            return ResponseEntity.ok(validationService.fingerprintDeployedRealm(realmName));
+        } catch (Exception e) {
+            log.error("Failed to fingerprint deployed realm: {}", realmName, e);
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Compare a stored baseline fingerprint against a current one
+     */
+    @PostMapping("/compare-fingerprints")
+    public ResponseEntity<ValidationResult> compareFingerprints(
+            @RequestBody FingerprintComparisonRequest request) {
+
+        log.info("Comparing fingerprints: {} vs {}",
+            request.getBaseline().getRealm(),
+            request.getCurrent().getRealm());
+
+        try {
+            return ResponseEntity.ok(validationService.compareFingerprints(
+                request.getBaseline(), request.getCurrent()));
+        } catch (Exception e) {
+            log.error("Fingerprint comparison failed", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     /**
      * Validate Terraform/Terragrunt files syntax
      */
@@ -149,6 +235,17 @@ public class ValidationController {
         public void setExported(RealmRepresentation exported) { this.exported = exported; }
     }
 
+    public static class FingerprintComparisonRequest {
+        private RealmFingerprint baseline;
+        private RealmFingerprint current;
+
+        // Getters and setters
+        public RealmFingerprint getBaseline() { return baseline; }
+        public void setBaseline(RealmFingerprint baseline) { this.baseline = baseline; }
+        public RealmFingerprint getCurrent() { return current; }
+        public void setCurrent(RealmFingerprint current) { this.current = current; }
+    }
+
     public static class TerraformValidationRequest {
         private String realmName;
         private java.util.Map<String, String> files;
@@ -0,0 +1,342 @@
+package com.keycloak.forge.hcl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reader for the HCL that {@link HclWriter} writes, e.g. to check generated modules without Terraform.
+ *
+ * Covers blocks with labels, attributes, object attributes, lists, quoted strings, numbers,
+ * booleans and comments. Quoted strings are unescaped, turning the doubled <code>$${</code> and
+ * <code>%%{</code> sequences back into literals; any other unquoted value is kept as an
+ * {@link Expression} with its source text, so references such as {@code keycloak_role.admin.id}
+ * can be resolved by the caller. Heredocs and operators are not supported.
+ */
+public final class HclReader {
+
+    private final CharSequence text;
+    private int pos;
+
+    private HclReader(CharSequence text) {
+        this.text = text;
+    }
+
+    /**
+     * Parse a whole document.
+     *
+     * @throws IllegalArgumentException if the text is not valid in the supported subset
+     */
+    public static Body parse(CharSequence text) {
+        HclReader reader = new HclReader(text);
+        return reader.body(false);
+    }
+
+    /**
+     * Attributes and nested blocks of a document or block, both in source order.
+     */
+    public record Body(Map<String, Object> attributes, List<Block> blocks) {
+
+        /**
+         * @return blocks of the type, e.g. {@code resource}
+         */
+        public List<Block> blocks(String type) {
+            return blocks.stream().filter(block -> block.type().equals(type)).toList();
+        }
+    }
+
+    public record Block(String type, List<String> labels, Body body) {
+    }
+
+    /**
+     * An unquoted value other than a number or boolean, e.g. a reference or function call.
+     */
+    public record Expression(String text) {
+    }
+
+    private Body body(boolean nested) {
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        List<Block> blocks = new ArrayList<>();
+        while (true) {
+            skipWhitespace();
+            if (pos == text.length()) {
+                if (nested) {
+                    throw error("Unterminated block");
+                }
+                return new Body(attributes, blocks);
+            }
+            if (text.charAt(pos) == '}') {
+                if (!nested) {
+                    throw error("Unexpected '}'");
+                }
+                pos++;
+                return new Body(attributes, blocks);
+            }
+
+            String name = name();
+            skipBlanks();
+            if (peek() == '=') {
+                pos++;
+                attributes.put(name, value());
+                continue;
+            }
+            List<String> labels = new ArrayList<>(2);
+            while (peek() == '"') {
+                labels.add(string());
+                skipBlanks();
+            }
+            expect('{');
+            blocks.add(new Block(name, Collections.unmodifiableList(labels), body(true)));
+        }
+    }
+
+    private Object value() {
+        skipBlanks();
+        char c = peek();
+        if (c == '"') {
+            return string();
+        }
+        if (c == '[') {
+            return list();
+        }
+        if (c == '{') {
+            return object();
+        }
+        if (c == '-' || (c >= '0' && c <= '9')) {
+            return number();
+        }
+        return expression();
+    }
+
+    private List<Object> list() {
+        pos++;
+        List<Object> values = new ArrayList<>();
+        while (true) {
+            skipWhitespace();
+            if (peek() == ']') {
+                pos++;
+                return values;
+            }
+            values.add(value());
+            skipWhitespace();
+            if (peek() == ',') {
+                pos++;
+            } else if (peek() != ']') {
+                throw error("Expected ',' or ']'");
+            }
+        }
+    }
+
+    private Map<String, Object> object() {
+        pos++;
+        Map<String, Object> entries = new LinkedHashMap<>();
+        while (true) {
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+                return entries;
+            }
+            String key = name();
+            skipBlanks();
+            if (peek() != '=' && peek() != ':') {
+                throw error("Expected '=' after object key");
+            }
+            pos++;
+            entries.put(key, value());
+            skipWhitespace();
+            if (peek() == ',') {
+                pos++;
+            }
+        }
+    }
+
+    private Object number() {
+        int start = pos;
+        boolean decimal = false;
+        pos++;
+        while (pos < text.length()) {
+            char c = text.charAt(pos);
+            if (c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+                decimal = true;
+            } else if (c < '0' || c > '9') {
+                break;
+            }
+            pos++;
+        }
+        String number = text.subSequence(start, pos).toString();
+        try {
+            return decimal ? (Object) Double.parseDouble(number) : (Object) Long.parseLong(number);
+        } catch (NumberFormatException e) {
+            throw error("Invalid number '" + number + "'");
+        }
+    }
+
+    /**
+     * Read up to the end of the line or the enclosing list or object, skipping over nested
+     * brackets and quoted strings, e.g. in {@code merge(var.a, {"b" = 1})}.
+     */
+    private Object expression() {
+        int start = pos;
+        int depth = 0;
+        while (pos < text.length()) {
+            char c = text.charAt(pos);
+            if (c == '"') {
+                string();
+                continue;
+            }
+            if (c == '(' || c == '[' || c == '{') {
+                depth++;
+            } else if (c == ')' || c == ']' || c == '}') {
+                if (depth == 0) {
+                    break;
+                }
+                depth--;
+            } else if (depth == 0 && (c == '\n' || c == ',' || c == '#')) {
+                break;
+            }
+            pos++;
+        }
+        String expression = text.subSequence(start, pos).toString().trim();
+        if (expression.isEmpty()) {
+            throw error("Expected a value");
+        }
+        return switch (expression) {
+            case "true" -> Boolean.TRUE;
+            case "false" -> Boolean.FALSE;
+            case "null" -> null;
+            default -> new Expression(expression);
+        };
+    }
+
+    private String name() {
+        if (peek() == '"') {
+            return string();
+        }
+        int start = pos;
+        while (pos < text.length()) {
+            char c = text.charAt(pos);
+            if (!Character.isLetterOrDigit(c) && c != '_' && c != '-') {
+                break;
+            }
+            pos++;
+        }
+        if (start == pos) {
+            throw error("Expected a name");
+        }
+        return text.subSequence(start, pos).toString();
+    }
+
+    private String string() {
+        expect('"');
+        StringBuilder value = new StringBuilder();
+        while (true) {
+            if (pos == text.length()) {
+                throw error("Unterminated string");
+            }
+            char c = text.charAt(pos++);
+            if (c == '"') {
+                return value.toString();
+            }
+            if (c == '\\') {
+                if (pos == text.length()) {
+                    throw error("Unterminated string");
+                }
+                char escaped = text.charAt(pos++);
+                switch (escaped) {
+                    case 'n' -> value.append('\n');
+                    case 'r' -> value.append('\r');
+                    case 't' -> value.append('\t');
+                    case '"', '\\' -> value.append(escaped);
+                    case 'u' -> value.append(unicode(4));
+                    case 'U' -> value.append(unicode(8));
+                    default -> throw error("Invalid escape '\\" + escaped + "'");
+                }
+            } else if ((c == '$' || c == '%') && pos + 1 < text.length()
+                    && text.charAt(pos) == c && text.charAt(pos + 1) == '{') {
+                // "$${" and "%%{" are the literal forms of template sequences
+                value.append(c);
+                pos++;
+            } else {
+                value.append(c);
+            }
+        }
+    }
+
+    private char[] unicode(int digits) {
+        if (pos + digits > text.length()) {
+            throw error("Invalid unicode escape");
+        }
+        try {
+            int codePoint = Integer.parseInt(text.subSequence(pos, pos + digits).toString(), 16);
+            pos += digits;
+            return Character.toChars(codePoint);
+        } catch (IllegalArgumentException e) {
+            throw error("Invalid unicode escape");
+        }
+    }
+
+    private void expect(char c) {
+        if (peek() != c) {
+            throw error("Expected '" + c + "'");
+        }
+        pos++;
+    }
+
+    private char peek() {
+        return pos < text.length() ? text.charAt(pos) : '\0';
+    }
+
+    /**
+     * Skip spaces and tabs within a line.
+     */
+    private void skipBlanks() {
+        while (pos < text.length() && (text.charAt(pos) == ' ' || text.charAt(pos) == '\t')) {
+            pos++;
+        }
+    }
+
+    /**
+     * Skip whitespace including line breaks, and comments.
+     */
+    private void skipWhitespace() {
+        while (pos < text.length()) {
+            char c = text.charAt(pos);
+            if (Character.isWhitespace(c)) {
+                pos++;
+            } else if (c == '#' || (c == '/' && pos + 1 < text.length() && text.charAt(pos + 1) == '/')) {
+                while (pos < text.length() && text.charAt(pos) != '\n') {
+                    pos++;
+                }
+            } else if (c == '/' && pos + 1 < text.length() && text.charAt(pos + 1) == '*') {
+                int end = indexOf("*/", pos + 2);
+                if (end < 0) {
+                    throw error("Unterminated comment");
+                }
+                pos = end + 2;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private int indexOf(String needle, int from) {
+        for (int i = from; i + needle.length() <= text.length(); i++) {
+            if (text.charAt(i) == needle.charAt(0) && text.subSequence(i, i + needle.length()).toString().equals(needle)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private IllegalArgumentException error(String message) {
+        int line = 1;
+        for (int i = 0; i < pos && i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                line++;
+            }
+        }
+        return new IllegalArgumentException(message + " at line " + line);
+    }
+}
@@ -0,0 +1,314 @@
+package com.keycloak.forge.hcl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Streaming writer for HCL (HashiCorp Configuration Language) documents.
+ *
+ * Blocks, attributes, lists and maps are written straight onto a single
+ * {@link Appendable}, so generators never build intermediate strings per
+ * resource. String values are escaped for HCL, including the <code>${</code>
+ * and <code>%{</code> template sequences which are emitted as literals.
+ *
+ * <pre>
+ * hcl.block("resource", "keycloak_role", "admin")
+ *    .expression("realm_id", "var.realm_id")
+ *    .attribute("name", role.getName())
+ *    .end();
+ * </pre>
+ */
+public class HclWriter {
+
+    private static final String INDENT = "  ";
+
+    private final Appendable out;
+    private int depth;
+    private boolean topLevelWritten;
+
+    public HclWriter(Appendable out) {
+        this.out = out;
+    }
+
+    /**
+     * Open a block such as <code>resource "keycloak_user" "john" {</code>.
+     * Top-level blocks are separated from each other by a blank line.
+     */
+    public HclWriter block(String type, String... labels) {
+        if (depth == 0) {
+            if (topLevelWritten) {
+                append('\n');
+            }
+            topLevelWritten = true;
+        }
+        indent();
+        append(type);
+        for (String label : labels) {
+            append(' ');
+            quoted(label);
+        }
+        append(" {\n");
+        depth++;
+        return this;
+    }
+
+    /**
+     * Open an object-valued attribute such as <code>inputs = {</code>.
+     */
+    public HclWriter object(String name) {
+        indent();
+        name(name);
+        append(" = {\n");
+        depth++;
+        return this;
+    }
+
+    /**
+     * Close the innermost block or object.
+     */
+    public HclWriter end() {
+        if (depth == 0) {
+            throw new IllegalStateException("No open block to end");
+        }
+        depth--;
+        indent();
+        append("}\n");
+        return this;
+    }
+
+    public HclWriter attribute(String name, String value) {
+        indent();
+        name(name);
+        append(" = ");
+        quoted(value);
+        append('\n');
+        return this;
+    }
+
+    public HclWriter attribute(String name, boolean value) {
+        return expression(name, value ? "true" : "false");
+    }
+
+    public HclWriter attribute(String name, long value) {
+        indent();
+        name(name);
+        append(" = ");
+        append(Long.toString(value));
+        append('\n');
+        return this;
+    }
+
+    /**
+     * Write an unquoted expression, e.g. a reference like {@code var.realm_id}.
+     */
+    public HclWriter expression(String name, String expression) {
+        indent();
+        name(name);
+        append(" = ");
+        append(expression);
+        append('\n');
+        return this;
+    }
+
+    /**
+     * Write a list of quoted strings.
+     */
+    public HclWriter list(String name, Collection<String> values) {
+        indent();
+        name(name);
+        append(" = [");
+        boolean first = true;
+        for (String value : values) {
+            if (!first) {
+                append(", ");
+            }
+            quoted(value);
+            first = false;
+        }
+        append("]\n");
+        return this;
+    }
+
+    /**
+     * Write a list of unquoted expressions, e.g. resource references.
+     */
+    public HclWriter expressionList(String name, Collection<String> expressions) {
+        indent();
+        name(name);
+        append(" = [");
+        boolean first = true;
+        for (String expression : expressions) {
+            if (!first) {
+                append(", ");
+            }
+            append(expression);
+            first = false;
+        }
+        append("]\n");
+        return this;
+    }
+
+    /**
+     * Write a map of string values. Null values are skipped.
+     */
+    public HclWriter map(String name, Map<String, String> values) {
+        object(name);
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            if (entry.getValue() != null) {
+                attribute(entry.getKey(), entry.getValue());
+            }
+        }
+        return end();
+    }
+
+    /**
+     * Splice in top-level blocks that were rendered earlier by another writer,
+     * keeping the blank line between top-level blocks.
+     */
+    public HclWriter fragment(CharSequence rendered) {
+        if (depth != 0) {
+            throw new IllegalStateException("Fragments can only be written at top level");
+        }
+        if (rendered.length() == 0) {
+            return this;
+        }
+        if (topLevelWritten) {
+            append('\n');
+        }
+        topLevelWritten = true;
+        append(rendered);
+        return this;
+    }
+
+    /**
+     * Writer of the same syntax onto another output, for rendering blocks apart, e.g. concurrently,
+     * and splicing them in with {@link #fragment(CharSequence)} afterwards.
+     */
+    public HclWriter fork(Appendable out) {
+        return new HclWriter(out);
+    }
+
+    /**
+     * Writer that appends text verbatim to the same output, for files that are not HCL,
+     * e.g. JSON written by a streaming generator. Closing it leaves the output open.
+     */
+    public Writer verbatim() {
+        return new Writer() {
+            @Override
+            public void write(char[] buffer, int offset, int length) {
+                HclWriter.this.append(CharBuffer.wrap(buffer, offset, length));
+            }
+
+            @Override
+            public void write(String text, int offset, int length) {
+                HclWriter.this.append(text.subSequence(offset, offset + length));
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    public HclWriter comment(String text) {
+        indent();
+        append("# ");
+        append(text);
+        append('\n');
+        return this;
+    }
+
+    /**
+     * @return the value as a quoted, escaped HCL string, for use within an expression such as a map lookup
+     */
+    public static String quote(String value) {
+        StringBuilder out = new StringBuilder();
+        new HclWriter(out).quoted(value);
+        return out.toString();
+    }
+
+    private void name(String name) {
+        if (isIdentifier(name)) {
+            append(name);
+        } else {
+            quoted(name);
+        }
+    }
+
+    private void quoted(String value) {
+        append('"');
+        if (value != null) {
+            escape(value);
+        }
+        append('"');
+    }
+
+    private void escape(String value) {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> append("\\\"");
+                case '\\' -> append("\\\\");
+                case '\n' -> append("\\n");
+                case '\r' -> append("\\r");
+                case '\t' -> append("\\t");
+                case '$', '%' -> {
+                    // "${" and "%{" start template sequences; doubling the sigil makes them literal
+                    if (i + 1 < length && value.charAt(i + 1) == '{') {
+                        append(c);
+                    }
+                    append(c);
+                }
+                default -> append(c);
+            }
+        }
+    }
+
+    private void indent() {
+        for (int i = 0; i < depth; i++) {
+            append(INDENT);
+        }
+    }
+
+    private void append(CharSequence text) {
+        try {
+            out.append(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void append(char c) {
+        try {
+            out.append(c);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static boolean isIdentifier(String name) {
+        if (name == null || name.isEmpty()) {
+            return false;
+        }
+        char first = name.charAt(0);
+        if (!Character.isLetter(first) && first != '_') {
+            return false;
+        }
+        for (int i = 1; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_' && c != '-') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,287 @@
+package com.keycloak.forge.hcl;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * {@link HclWriter} that writes Terraform's JSON syntax ({@code .tf.json}) instead of native HCL.
+ *
+ * Generators drive it with the same calls as the HCL writer, and a Jackson {@link JsonGenerator}
+ * streams the tokens onto the output, escaping as it goes. Block labels become nested object keys,
+ * expressions become <code>"${...}"</code> templates, and string values have their template
+ * sequences escaped, since JSON strings are templates too. Comments have no equivalent and are dropped.
+ *
+ * Every top-level block is its own member of the root object, so a block type such as
+ * {@code resource} repeats as a key, which Terraform's JSON syntax allows. Blocks therefore never
+ * have to be grouped by type, and fragments rendered by a {@link #fork(Appendable) fork} can be
+ * spliced in between them. Call {@link #close()} after the last block to end the document.
+ *
+ * <pre>
+ * {"resource": {"keycloak_role": {"admin": {"realm_id": "${var.realm_id}", "name": "admin"}}}}
+ * </pre>
+ */
+public class TfJsonWriter extends HclWriter implements Closeable {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final JsonGenerator json;
+    private final boolean document;
+    // Objects to close per open block: a block closes one per label besides its body
+    private int[] opened = new int[8];
+    private int depth;
+    private boolean topLevelWritten;
+    private String topLevelType;
+
+    public TfJsonWriter(Appendable out) {
+        this(out, true);
+    }
+
+    private TfJsonWriter(Appendable out, boolean document) {
+        super(out);
+        this.document = document;
+        try {
+            this.json = JSON_FACTORY.createGenerator(verbatim());
+            // Top-level members are separated explicitly, see member()
+            json.setRootValueSeparator(null);
+            if (document) {
+                json.writeRaw('{');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public HclWriter block(String type, String... labels) {
+        try {
+            if (depth == 0) {
+                member(type);
+                topLevelType = type;
+                json.writeStartObject();
+            } else {
+                json.writeObjectFieldStart(type);
+            }
+            for (String label : labels) {
+                json.writeObjectFieldStart(label);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return open(labels.length + 1);
+    }
+
+    @Override
+    public HclWriter object(String name) {
+        try {
+            field(name);
+            json.writeStartObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return open(1);
+    }
+
+    @Override
+    public HclWriter end() {
+        if (depth == 0) {
+            throw new IllegalStateException("No open block to end");
+        }
+        try {
+            for (int i = opened[--depth]; i > 0; i--) {
+                json.writeEndObject();
+            }
+            if (depth == 0) {
+                // Fragments are read as soon as their blocks are complete
+                json.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return this;
+    }
+
+    @Override
+    public HclWriter attribute(String name, String value) {
+        try {
+            field(name);
+            json.writeString(value != null ? literal(value) : "");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return this;
+    }
+
+    @Override
+    public HclWriter attribute(String name, boolean value) {
+        try {
+            field(name);
+            json.writeBoolean(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return this;
+    }
+
+    @Override
+    public HclWriter attribute(String name, long value) {
+        try {
+            field(name);
+            json.writeNumber(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return this;
+    }
+
+    @Override
+    public HclWriter expression(String name, String expression) {
+        try {
+            field(name);
+            if (depth == 1 && "variable".equals(topLevelType) && "type".equals(name)) {
+                // Type constraints are given as bare expressions, not templates
+                json.writeString(expression);
+            } else {
+                json.writeString("${" + expression + "}");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return this;
+    }
+
+    @Override
+    public HclWriter list(String name, Collection<String> values) {
+        try {
+            field(name);
+            json.writeStartArray();
+            for (String value : values) {
+                json.writeString(value != null ? literal(value) : "");
+            }
+            json.writeEndArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return this;
+    }
+
+    @Override
+    public HclWriter expressionList(String name, Collection<String> expressions) {
+        try {
+            field(name);
+            json.writeStartArray();
+            for (String expression : expressions) {
+                json.writeString("${" + expression + "}");
+            }
+            json.writeEndArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return this;
+    }
+
+    @Override
+    public HclWriter fragment(CharSequence rendered) {
+        if (depth != 0) {
+            throw new IllegalStateException("Fragments can only be written at top level");
+        }
+        if (rendered.length() == 0) {
+            return this;
+        }
+        try {
+            separate();
+            json.writeRaw(rendered.toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return this;
+    }
+
+    @Override
+    public HclWriter comment(String text) {
+        return this;
+    }
+
+    /**
+     * A forked writer renders top-level members only, ready to be spliced into this document.
+     */
+    @Override
+    public HclWriter fork(Appendable out) {
+        return new TfJsonWriter(out, false);
+    }
+
+    /**
+     * End the document and flush it to the output, which stays open.
+     */
+    @Override
+    public void close() {
+        if (depth != 0) {
+            throw new IllegalStateException("Blocks are still open");
+        }
+        try {
+            if (document) {
+                json.writeRaw("}\n");
+            }
+            json.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private HclWriter open(int objects) {
+        if (depth == opened.length) {
+            opened = Arrays.copyOf(opened, depth * 2);
+        }
+        opened[depth++] = objects;
+        return this;
+    }
+
+    /**
+     * Write a field name inside a block, or a member name of the root object.
+     */
+    private void field(String name) throws IOException {
+        if (depth == 0) {
+            member(name);
+        } else {
+            json.writeFieldName(name);
+        }
+    }
+
+    private void member(String name) throws IOException {
+        separate();
+        json.writeRaw('"');
+        json.writeRaw(new String(JsonStringEncoder.getInstance().quoteAsString(name)));
+        json.writeRaw("\":");
+    }
+
+    private void separate() throws IOException {
+        if (topLevelWritten) {
+            json.writeRaw(",\n");
+        }
+        topLevelWritten = true;
+    }
+
+    /**
+     * Escape the template sequences of a literal string: <code>${</code> and <code>%{</code> are doubled.
+     */
+    private static String literal(String value) {
+        if (value.indexOf("${") < 0 && value.indexOf("%{") < 0) {
+            return value;
+        }
+        StringBuilder escaped = new StringBuilder(value.length() + 8);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ((c == '$' || c == '%') && i + 1 < value.length() && value.charAt(i + 1) == '{') {
+                escaped.append(c);
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
@@ -21,7 +21,56 @@ public class ConversionRequest {
         private boolean includeClients = true;
         private boolean includeRoles = true;
         private boolean generateTerragrunt = true;
+        
+        /**
+         * "terragrunt" renders every entity as an HCL block. "tfvars" writes the realm settings and groups
+         * as *.auto.tfvars.json inputs of the reusable modules/keycloak-realm and modules/keycloak-groups,
+         * and renders the other collections as HCL. "tf-json" writes every Terraform file in JSON syntax
+         * (*.tf.json), for very large realms where Terraform parses it faster than HCL
+         */
         private String outputFormat = "terragrunt";
+        
+        /**
+         * Where "tfvars" units find the reusable modules: the Terragrunt source of the directory holding
+         * keycloak-realm and keycloak-groups, without a trailing slash. The output does not include the
+         * modules, so the default only resolves when the output is placed in a repository with this
+         * project's modules/ directory at its root; point it elsewhere, e.g. at a git URL ending in
+         * "//modules", when the output is used on its own
+         */
+        private String moduleSource = "${get_repo_root()}/modules";
         private boolean validateOutput = true;
+        
+        /**
+         * Generate independent modules concurrently instead of one after another
+         */
+        private boolean parallelGeneration = false;
+        
+        /**
+         * Executor for parallel generation: "fork-join" (common pool) or "virtual" (virtual threads, Java 21+)
+         */
+        private String generationExecutor = "fork-join";
+        
+        /**
+         * Split the users module into Terragrunt units under users/shard-NN:
+         * "none", "count" (fixed number of users per shard) or "hash" (stable username hash bucket).
+         * Hash shards are named after their bucket, padded to the digits of userShardCount, so
+         * adding or removing users never renames a shard or moves other users between shards
+         */
+        private String userSharding = "none";
+        
+        /**
+         * Maximum number of users per shard for "count" sharding
+         */
+        private int usersPerShard = 5000;
+        
+        /**
+         * Number of shards for "hash" sharding
+         */
+        private int userShardCount = 16;
+        
+        /**
+         * Regenerate only modules whose input changed since the last conversion of the same realm
+         */
+        private boolean incrementalGeneration = false;
     }
 }
\ No newline at end of file
@@ -6,15 +6,17 @@ import java.util.List;
 import java.util.Map;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 public class ConversionResult {
     
     private String conversionId;
+    private String status; // QUEUED, RUNNING, COMPLETED, FAILED for asynchronous conversions
     private boolean success;
     private String error;
     private List<TerraformFile> files;
     private RealmAnalysis analysis;
     private ConversionMetadata metadata;
+    private List<ModuleProgress> progress;
     
     @Data
     @Builder
@@ -22,11 +24,12 @@ public class ConversionResult {
         private String filePath;
         private String content;
         private String type; // main, variables, outputs, etc.
-        private long size;
+        private long size; // UTF-8 bytes
+        private String digest; // hex SHA-256 of the UTF-8 content, served as the file's ETag
     }
     
     @Data
-    @Builder
+    @Builder(toBuilder = true)
     public static class ConversionMetadata {
         private long startTime;
         private long endTime;
@@ -34,4 +37,12 @@ public class ConversionResult {
         private int filesGenerated;
         private Map<String, Object> statistics;
     }
-}
\ No newline at end of file
+    
+    @Data
+    @Builder
+    public static class ModuleProgress {
+        private String module;
+        private String status; // PENDING, RUNNING, COMPLETED
+        private int filesGenerated;
+    }
+}
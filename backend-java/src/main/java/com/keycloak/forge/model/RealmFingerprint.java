@@ -0,0 +1,55 @@
+package com.keycloak.forge.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Merkle tree of a canonicalized realm
+ *
+ * The root hash covers one hash per component, and each component hash covers one hash
+ * per entity keyed by its natural key. Two realms with equal roots are equal for validation;
+ * otherwise only components and entities whose hashes differ need to be looked at.
+ * Fingerprints can be stored as baselines and compared later without the realms themselves.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RealmFingerprint {
+
+    /**
+     * Name of the fingerprinted realm
+     */
+    private String realm;
+
+    /**
+     * Hash over all component hashes
+     */
+    private String root;
+
+    /**
+     * Component fingerprints by component name, e.g. realm, groups, users
+     */
+    private Map<String, ComponentFingerprint> components;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ComponentFingerprint {
+
+        /**
+         * Hash over the entity hashes, ordered by key
+         */
+        private String hash;
+
+        /**
+         * Entity hashes by natural key; realm settings are keyed by field name
+         */
+        private Map<String, String> entities;
+    }
+}
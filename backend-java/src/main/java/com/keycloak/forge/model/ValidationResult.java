@@ -56,7 +56,17 @@ public class ValidationResult {
      * Detailed comparison results by category
      */
     private Map<String, ComponentComparison> detailedComparison;
-    
+
+    /**
+     * Root hash of the original realm's fingerprint
+     */
+    private String originalFingerprint;
+
+    /**
+     * Root hash of the exported realm's fingerprint
+     */
+    private String exportedFingerprint;
+
     @Data
     @Builder
     @NoArgsConstructor
@@ -0,0 +1,123 @@
+package com.keycloak.forge.service;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * {@link Appendable} that passes text through to another one while measuring its UTF-8 encoding.
+ *
+ * Every character is encoded as it is appended, and the bytes go into a SHA-256 digest in small
+ * batches, so the exact size and digest of a file are known as soon as it has been written,
+ * without encoding or scanning the finished content again. Unpaired surrogates count as
+ * {@code ?}, the way {@code String.getBytes(UTF_8)} encodes them.
+ */
+final class ContentDigest implements Appendable {
+
+    private final Appendable out;
+    private final MessageDigest digest;
+    private final byte[] buffer = new byte[512];
+    private int buffered;
+    private long size;
+    private char highSurrogate;
+
+    ContentDigest(Appendable out) {
+        this.out = out;
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    @Override
+    public Appendable append(CharSequence text) throws IOException {
+        CharSequence value = text != null ? text : "null";
+        return append(value, 0, value.length());
+    }
+
+    @Override
+    public Appendable append(CharSequence text, int start, int end) throws IOException {
+        out.append(text, start, end);
+        for (int i = start; i < end; i++) {
+            encode(text.charAt(i));
+        }
+        return this;
+    }
+
+    @Override
+    public Appendable append(char c) throws IOException {
+        out.append(c);
+        encode(c);
+        return this;
+    }
+
+    /**
+     * @return number of UTF-8 bytes appended so far
+     */
+    long size() {
+        finishPendingSurrogate();
+        return size;
+    }
+
+    /**
+     * Hex SHA-256 of the UTF-8 bytes; call once, after the last append.
+     */
+    String sha256() {
+        finishPendingSurrogate();
+        flush();
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private void encode(char c) {
+        if (highSurrogate != 0) {
+            char high = highSurrogate;
+            highSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                int codePoint = Character.toCodePoint(high, c);
+                put(0xF0 | (codePoint >> 18));
+                put(0x80 | ((codePoint >> 12) & 0x3F));
+                put(0x80 | ((codePoint >> 6) & 0x3F));
+                put(0x80 | (codePoint & 0x3F));
+                return;
+            }
+            put('?');
+        }
+
+        if (c < 0x80) {
+            put(c);
+        } else if (c < 0x800) {
+            put(0xC0 | (c >> 6));
+            put(0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c)) {
+            highSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            put('?');
+        } else {
+            put(0xE0 | (c >> 12));
+            put(0x80 | ((c >> 6) & 0x3F));
+            put(0x80 | (c & 0x3F));
+        }
+    }
+
+    private void finishPendingSurrogate() {
+        if (highSurrogate != 0) {
+            highSurrogate = 0;
+            put('?');
+        }
+    }
+
+    private void put(int b) {
+        if (buffered == buffer.length) {
+            flush();
+        }
+        buffer[buffered++] = (byte) b;
+        size++;
+    }
+
+    private void flush() {
+        digest.update(buffer, 0, buffered);
+        buffered = 0;
+    }
+}
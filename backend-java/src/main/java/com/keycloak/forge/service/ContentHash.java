@@ -0,0 +1,72 @@
+package com.keycloak.forge.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.keycloak.representations.idm.RealmRepresentation;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 content hashes over the canonical JSON of representations.
+ *
+ * Values are serialized straight into the digest with map entries ordered by key,
+ * so equal content always hashes identically and no JSON string is built.
+ */
+final class ContentHash {
+
+    private static final ObjectWriter CANONICAL = canonicalWriter(new ObjectMapper());
+
+    private static final ObjectWriter REALM_SETTINGS = canonicalWriter(new ObjectMapper()
+        .addMixIn(RealmRepresentation.class, RealmSettingsMixin.class));
+
+    private ContentHash() {
+    }
+
+    static String of(Object... values) {
+        return hash(CANONICAL, values);
+    }
+
+    /**
+     * Hash of the realm-level settings only, leaving out the entity collections
+     * that are converted into modules of their own.
+     */
+    static String ofRealmSettings(RealmRepresentation realm) {
+        return hash(REALM_SETTINGS, realm);
+    }
+
+    private static String hash(ObjectWriter writer, Object value) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+
+        try (OutputStream out = new DigestOutputStream(OutputStream.nullOutputStream(), digest)) {
+            writer.writeValue(out, value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static ObjectWriter canonicalWriter(ObjectMapper mapper) {
+        return mapper.writer()
+            .with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+            .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    @JsonIgnoreProperties({"roles", "groups", "users", "clients", "identityProviders",
+        "authenticationFlows", "clientScopes"})
+    private abstract static class RealmSettingsMixin {
+    }
+}
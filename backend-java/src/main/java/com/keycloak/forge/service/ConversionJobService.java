@@ -0,0 +1,260 @@
+package com.keycloak.forge.service;
+
+import com.keycloak.forge.model.ConversionRequest;
+import com.keycloak.forge.model.ConversionResult;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.keycloak.representations.idm.RealmRepresentation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs realm conversions as asynchronous jobs.
+ *
+ * Jobs are executed by a fixed pool of {@code app.conversion.workers} threads fed from a queue
+ * of at most {@code app.conversion.queue-capacity} jobs; submissions beyond that are rejected
+ * instead of piling up. Status reports per-module progress while a job runs, and finished jobs
+ * are evicted {@code app.conversion.job-retention} seconds after completion.
+ *
+ * Conversions run synchronously elsewhere are registered under their conversion ID so it can be
+ * looked up the same way. Their content was already returned to the caller, so only the manifest
+ * of file paths, sizes and digests is kept, for at most {@code app.conversion.registered-results}
+ * conversions, evicting the least recently used, and for no longer than the job retention.
+ */
+@Service
+@Slf4j
+public class ConversionJobService {
+
+    public static final String QUEUED = "QUEUED";
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
+    private final KeycloakService keycloakService;
+    private final ThreadPoolExecutor executor;
+    private final long retentionNanos;
+    private final Map<String, ConversionJob> jobs = new ConcurrentHashMap<>();
+    // Least recently used first; guarded by itself
+    private final Map<String, RegisteredResult> registered;
+
+    public ConversionJobService(KeycloakService keycloakService,
+                                @Value("${app.conversion.workers:2}") int workers,
+                                @Value("${app.conversion.queue-capacity:16}") int queueCapacity,
+                                @Value("${app.conversion.job-retention:3600}") long retentionSeconds,
+                                @Value("${app.conversion.registered-results:64}") int maxRegisteredResults) {
+        this.keycloakService = keycloakService;
+        this.retentionNanos = TimeUnit.SECONDS.toNanos(retentionSeconds);
+        this.registered = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RegisteredResult> eldest) {
+                return size() > maxRegisteredResults;
+            }
+        };
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            new CustomizableThreadFactory("conversion-job-"),
+            new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Queue a conversion and return its initial status, including the job ID.
+     *
+     * @throws RejectedExecutionException when the queue is full
+     */
+    public ConversionResult submit(RealmRepresentation realm, ConversionRequest.ConversionOptions options) {
+        evictExpiredJobs();
+
+        ConversionJob job = new ConversionJob(UUID.randomUUID().toString());
+        jobs.put(job.id, job);
+        try {
+            executor.execute(() -> run(job, realm, options));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            log.warn("Rejected conversion of realm: {}. {} jobs queued", realm.getRealm(), executor.getQueue().size());
+            throw e;
+        }
+
+        log.info("Queued conversion {} for realm: {}", job.id, realm.getRealm());
+        return job.status();
+    }
+
+    /**
+     * Keep the manifest of a conversion that finished synchronously under a new ID, so its status
+     * and file list can be fetched like those of a queued job until it is evicted. File content
+     * is not kept.
+     *
+     * @return the result, with its conversion ID set
+     */
+    public ConversionResult register(ConversionResult result) {
+        String id = UUID.randomUUID().toString();
+        result.setConversionId(id);
+        List<ConversionResult.TerraformFile> manifest = new ArrayList<>();
+        if (result.getFiles() != null) {
+            for (ConversionResult.TerraformFile file : result.getFiles()) {
+                manifest.add(ConversionResult.TerraformFile.builder()
+                    .filePath(file.getFilePath())
+                    .type(file.getType())
+                    .size(file.getSize())
+                    .digest(file.getDigest())
+                    .build());
+            }
+        }
+        ConversionResult status = result.toBuilder()
+            .status(COMPLETED)
+            .files(manifest)
+            .build();
+
+        synchronized (registered) {
+            evictExpiredResults();
+            registered.put(id, new RegisteredResult(status, System.nanoTime()));
+        }
+        return result;
+    }
+
+    /**
+     * @return the current status of the job, or null when it is unknown or has been evicted
+     */
+    public ConversionResult getStatus(String conversionId) {
+        evictExpiredJobs();
+
+        ConversionJob job = jobs.get(conversionId);
+        if (job != null) {
+            return job.status();
+        }
+        synchronized (registered) {
+            evictExpiredResults();
+            RegisteredResult result = registered.get(conversionId);
+            return result != null ? result.status().toBuilder().build() : null;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void run(ConversionJob job, RealmRepresentation realm, ConversionRequest.ConversionOptions options) {
+        job.start();
+        try {
+            ConversionResult result = keycloakService.convertRealm(realm, options, job);
+            keycloakService.attachAnalysis(result, realm);
+            result.setConversionId(job.id);
+            job.complete(result);
+            log.info("Conversion {} completed for realm: {}", job.id, realm.getRealm());
+        } catch (RuntimeException e) {
+            log.error("Conversion {} failed for realm: {}", job.id, realm.getRealm(), e);
+            job.fail("Conversion failed: " + e.getMessage());
+        }
+    }
+
+    private void evictExpiredJobs() {
+        long now = System.nanoTime();
+        jobs.values().removeIf(job -> job.isFinishedBefore(now - retentionNanos));
+    }
+
+    /**
+     * Registered results are in access order, not age order, so every one is checked; there
+     * are at most {@code app.conversion.registered-results}. Callers hold the lock.
+     */
+    private void evictExpiredResults() {
+        long now = System.nanoTime();
+        registered.values().removeIf(result -> result.registeredAt() - (now - retentionNanos) < 0);
+    }
+
+    /**
+     * Manifest-only status of a synchronous conversion.
+     */
+    private record RegisteredResult(ConversionResult status, long registeredAt) {
+    }
+
+    /**
+     * Mutable state of one job, updated by the worker and the generation callbacks.
+     */
+    private static final class ConversionJob implements GenerationListener {
+
+        private final String id;
+        private final Map<String, ConversionResult.ModuleProgress> modules = new LinkedHashMap<>();
+        private String state = QUEUED;
+        private ConversionResult result;
+        private String error;
+        private long finishedAt;
+
+        ConversionJob(String id) {
+            this.id = id;
+        }
+
+        synchronized void start() {
+            state = RUNNING;
+        }
+
+        synchronized void complete(ConversionResult result) {
+            this.result = result;
+            state = COMPLETED;
+            finishedAt = System.nanoTime();
+            modules.values().forEach(module -> module.setStatus(COMPLETED));
+        }
+
+        synchronized void fail(String error) {
+            this.error = error;
+            state = FAILED;
+            finishedAt = System.nanoTime();
+        }
+
+        synchronized boolean isFinishedBefore(long time) {
+            return (COMPLETED.equals(state) || FAILED.equals(state)) && finishedAt - time < 0;
+        }
+
+        @Override
+        public synchronized void modulesPlanned(List<String> names) {
+            modules.clear();
+            for (String name : names) {
+                modules.put(name, ConversionResult.ModuleProgress.builder().module(name).status("PENDING").build());
+            }
+        }
+
+        @Override
+        public synchronized void moduleStarted(String module) {
+            modules.computeIfAbsent(module, name -> ConversionResult.ModuleProgress.builder().module(name).build())
+                .setStatus(RUNNING);
+        }
+
+        @Override
+        public synchronized void moduleCompleted(String module, int filesGenerated) {
+            ConversionResult.ModuleProgress progress = modules.computeIfAbsent(module,
+                name -> ConversionResult.ModuleProgress.builder().module(name).build());
+            progress.setStatus(COMPLETED);
+            progress.setFilesGenerated(filesGenerated);
+        }
+
+        synchronized ConversionResult status() {
+            List<ConversionResult.ModuleProgress> progress = new ArrayList<>();
+            for (ConversionResult.ModuleProgress module : modules.values()) {
+                progress.add(ConversionResult.ModuleProgress.builder()
+                    .module(module.getModule())
+                    .status(module.getStatus())
+                    .filesGenerated(module.getFilesGenerated())
+                    .build());
+            }
+
+            ConversionResult.ConversionResultBuilder status = result != null
+                ? result.toBuilder()
+                : ConversionResult.builder().conversionId(id).error(error);
+            return status
+                .status(state)
+                .progress(progress)
+                .build();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.keycloak.forge.service;
+
+import com.keycloak.forge.model.ConversionRequest;
+import com.keycloak.forge.model.ConversionResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.keycloak.representations.idm.RealmRepresentation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Bounded, content-addressed cache of conversion results.
+ *
+ * Entries are keyed by a SHA-256 of the canonical JSON of the realm and the conversion
+ * options, so re-converting an unchanged export returns the stored result. The cache holds
+ * at most {@code app.cache.max-entries} results, evicting the least recently used, and drops
+ * entries older than {@code app.cache.default-ttl} seconds. Hits, misses, evictions and size
+ * are published as the standard {@code cache.*} meters tagged {@code cache=conversions}.
+ */
+@Service
+@Slf4j
+public class ConversionResultCache {
+
+    static final String CACHE_NAME = "conversions";
+
+    private final boolean enabled;
+    private final long ttlNanos;
+    private final Map<String, CachedResult> entries;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public ConversionResultCache(MeterRegistry meterRegistry,
+                                 @Value("${app.cache.enabled:true}") boolean enabled,
+                                 @Value("${app.cache.max-entries:128}") int maxEntries,
+                                 @Value("${app.cache.default-ttl:3600}") long ttlSeconds) {
+        this.enabled = enabled;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+                if (size() > maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        this.hits = Counter.builder("cache.gets")
+            .tag("cache", CACHE_NAME).tag("result", "hit")
+            .description("Conversions answered from the cache")
+            .register(meterRegistry);
+        this.misses = Counter.builder("cache.gets")
+            .tag("cache", CACHE_NAME).tag("result", "miss")
+            .description("Conversions that had to be generated")
+            .register(meterRegistry);
+        this.evictions = Counter.builder("cache.evictions")
+            .tag("cache", CACHE_NAME)
+            .description("Conversion results evicted by size or age")
+            .register(meterRegistry);
+        Gauge.builder("cache.size", this, ConversionResultCache::size)
+            .tag("cache", CACHE_NAME)
+            .description("Number of cached conversion results")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Return the cached result for this realm and options, or run the conversion and cache it
+     * when it succeeds. Every caller gets its own copy of the result, its files, progress and
+     * metadata, so changing a returned result never changes the cached one.
+     */
+    public ConversionResult get(RealmRepresentation realm, ConversionRequest.ConversionOptions options,
+                                Supplier<ConversionResult> conversion) {
+        if (!enabled) {
+            return conversion.get();
+        }
+
+        String key = key(realm, options);
+        CachedResult cached = lookup(key);
+        if (cached != null) {
+            hits.increment();
+            log.debug("Conversion cache hit for realm: {} ({})", realm.getRealm(), key);
+            return copy(cached.result());
+        }
+
+        misses.increment();
+        ConversionResult result = conversion.get();
+        if (result.isSuccess()) {
+            store(key, copy(result));
+        }
+        return result;
+    }
+
+    /**
+     * Content address of a conversion: SHA-256 over the canonical JSON of realm and options.
+     */
+    String key(RealmRepresentation realm, ConversionRequest.ConversionOptions options) {
+        return ContentHash.of(realm, options);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized CachedResult lookup(String key) {
+        CachedResult cached = entries.get(key);
+        if (cached != null && isExpired(cached, System.nanoTime())) {
+            entries.remove(key);
+            evictions.increment();
+            return null;
+        }
+        return cached;
+    }
+
+    private synchronized void store(String key, ConversionResult result) {
+        long now = System.nanoTime();
+        Iterator<CachedResult> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (isExpired(iterator.next(), now)) {
+                iterator.remove();
+                evictions.increment();
+            }
+        }
+        entries.put(key, new CachedResult(result, now));
+    }
+
+    private boolean isExpired(CachedResult cached, long now) {
+        return now - cached.storedAt() > ttlNanos;
+    }
+
+    private static ConversionResult copy(ConversionResult result) {
+        ConversionResult.ConversionMetadata metadata = result.getMetadata();
+        return result.toBuilder()
+            .files(result.getFiles() == null ? null : result.getFiles().stream()
+                .map(file -> ConversionResult.TerraformFile.builder()
+                    .filePath(file.getFilePath())
+                    .content(file.getContent())
+                    .type(file.getType())
+                    .size(file.getSize())
+                    .digest(file.getDigest())
+                    .build())
+                .collect(Collectors.toCollection(ArrayList::new)))
+            .progress(result.getProgress() == null ? null : result.getProgress().stream()
+                .map(progress -> ConversionResult.ModuleProgress.builder()
+                    .module(progress.getModule())
+                    .status(progress.getStatus())
+                    .filesGenerated(progress.getFilesGenerated())
+                    .build())
+                .collect(Collectors.toCollection(ArrayList::new)))
+            .metadata(metadata == null ? null : metadata.toBuilder()
+                .statistics(metadata.getStatistics() == null ? null : new LinkedHashMap<>(metadata.getStatistics()))
+                .build())
+            .build();
+    }
+
+    private record CachedResult(ConversionResult result, long storedAt) {
+    }
+}
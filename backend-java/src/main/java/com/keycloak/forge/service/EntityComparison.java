@@ -0,0 +1,170 @@
+package com.keycloak.forge.service;
+
+import com.keycloak.forge.model.RealmFingerprint;
+import com.keycloak.forge.model.ValidationResult;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Per-entity comparison of one component, e.g. users, as a hash join on a natural key.
+ *
+ * The original entities are indexed by key up front, together with the hash of their
+ * canonical form; exported entities are then hashed and probed against the index as they
+ * arrive, page by page, and matched entries leave the index. Whatever remains at the end is
+ * missing from the export. Each entity is visited once, so the comparison is linear in the
+ * size of both sides, and fields are only compared for entities whose hashes differ.
+ *
+ * Only fields the original specifies are compared, since exports fill in server defaults
+ * the original may leave out. Values compare in their canonical form, see {@link RealmFingerprints}.
+ */
+final class EntityComparison<T> {
+
+    /**
+     * Upper bound on the per-field difference messages kept for one component.
+     */
+    static final int MAX_REPORTED_DIFFERENCES = 1000;
+
+    private final RealmFingerprints.Component<T> component;
+    private final Map<String, Indexed<T>> unmatched = new LinkedHashMap<>();
+    private final TreeMap<String, String> originalHashes = new TreeMap<>();
+    private final TreeMap<String, String> exportedHashes = new TreeMap<>();
+    private final List<String> extra = new ArrayList<>();
+    private final List<String> modified = new ArrayList<>();
+    private final List<String> differences = new ArrayList<>();
+    private final int originalCount;
+    private int exportedCount;
+    private int unchanged;
+    private int unreportedDifferences;
+
+    EntityComparison(RealmFingerprints.Component<T> component, Iterable<T> originals) {
+        this.component = component;
+        for (T entity : originals) {
+            String key = component.naturalKey().apply(entity);
+            String hash = component.hash(entity);
+            unmatched.put(key, new Indexed<>(entity, hash));
+            originalHashes.put(key, hash);
+        }
+        this.originalCount = unmatched.size();
+    }
+
+    /**
+     * Probe the next exported entities against the original index.
+     */
+    void exported(Iterable<T> page) {
+        for (T entity : page) {
+            exportedCount++;
+            String key = component.naturalKey().apply(entity);
+            String hash = component.hash(entity);
+            exportedHashes.put(key, hash);
+            Indexed<T> original = unmatched.remove(key);
+            if (original == null) {
+                extra.add(key);
+                report(String.format("%s '%s' is not in the original realm", component.entityName(), key));
+                continue;
+            }
+            if (original.hash().equals(hash)) {
+                unchanged++;
+                continue;
+            }
+
+            List<String> changedFields = new ArrayList<>();
+            component.fields().forEach((field, getter) -> {
+                Object originalField = getter.apply(original.entity());
+                if (originalField == null) {
+                    return;
+                }
+                Object originalValue = RealmFingerprints.canonical(originalField);
+                Object exportedValue = RealmFingerprints.canonical(getter.apply(entity));
+                if (!Objects.equals(originalValue, exportedValue)) {
+                    changedFields.add(field);
+                    report(String.format("%s '%s' field '%s': original='%s', exported='%s'",
+                            component.entityName(), key, field, originalValue, exportedValue));
+                }
+            });
+            if (changedFields.isEmpty()) {
+                unchanged++;
+            } else {
+                modified.add(key + " (" + String.join(", ", changedFields) + ")");
+            }
+        }
+    }
+
+    /**
+     * Per-field, missing and extra entity messages; call after the last page.
+     */
+    List<String> differences() {
+        List<String> all = new ArrayList<>(differences);
+        int missingReported = 0;
+        for (String key : unmatched.keySet()) {
+            if (all.size() >= MAX_REPORTED_DIFFERENCES) {
+                break;
+            }
+            all.add(String.format("%s '%s' is missing from the exported realm", component.entityName(), key));
+            missingReported++;
+        }
+        int unreported = unreportedDifferences + unmatched.size() - missingReported;
+        if (unreported > 0) {
+            all.add(String.format("... %d more %s differences not shown", unreported, component.name()));
+        }
+        return all;
+    }
+
+    ValidationResult.ComponentComparison result() {
+        return ValidationResult.ComponentComparison.builder()
+                .componentType(component.name())
+                .originalCount(originalCount)
+                .exportedCount(exportedCount)
+                .accuracy(accuracy())
+                .missingElements(new ArrayList<>(unmatched.keySet()))
+                .extraElements(extra)
+                .modifiedElements(modified)
+                .build();
+    }
+
+    RealmFingerprint.ComponentFingerprint originalFingerprint() {
+        return RealmFingerprints.component(originalHashes);
+    }
+
+    /**
+     * Fingerprint of the exported entities accepted so far.
+     */
+    RealmFingerprint.ComponentFingerprint exportedFingerprint() {
+        return RealmFingerprints.component(exportedHashes);
+    }
+
+    /**
+     * Share of unchanged entities among all entities on either side.
+     */
+    double accuracy() {
+        int compared = originalCount + extra.size();
+        return compared == 0 ? 100.0 : (double) unchanged / compared * 100.0;
+    }
+
+    int unchanged() {
+        return unchanged;
+    }
+
+    int originalCount() {
+        return originalCount;
+    }
+
+    String name() {
+        return component.name();
+    }
+
+    private void report(String difference) {
+        if (differences.size() < MAX_REPORTED_DIFFERENCES) {
+            differences.add(difference);
+        } else {
+            unreportedDifferences++;
+        }
+    }
+
+    private record Indexed<T>(T entity, String hash) {
+    }
+}
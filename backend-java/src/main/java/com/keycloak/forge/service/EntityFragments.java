@@ -0,0 +1,96 @@
+package com.keycloak.forge.service;
+
+import com.keycloak.forge.hcl.HclWriter;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Per-entity index of rendered HCL for one module, used by incremental generation.
+ *
+ * Each entity is identified by a stable key and hashed; when the previous conversion
+ * rendered an entity with the same key and hash, its HCL fragment is spliced in again
+ * instead of running the resource generator. The sequence of keys and hashes also
+ * yields the module fingerprint, so a module whose entities are all unchanged can
+ * be recognized without hashing its input twice.
+ */
+final class EntityFragments {
+
+    /**
+     * Renders every entity straight into the writer without hashing or indexing.
+     */
+    static final EntityFragments DIRECT = new EntityFragments(null, "");
+
+    private final Map<String, Fragment> previous;
+    private final String salt;
+    private final Map<String, Fragment> current = new HashMap<>();
+    private final MessageDigest moduleDigest;
+    private int rendered;
+    private int reused;
+
+    /**
+     * @param previous fragments of the module from the last conversion, keyed by entity key
+     * @param salt     mixed into every entity hash; rendered output that depends on more than
+     *                 the entity itself, such as resolved address collisions, goes here
+     */
+    EntityFragments(Map<String, Fragment> previous, String salt) {
+        this.previous = previous;
+        this.salt = salt;
+        try {
+            this.moduleDigest = previous != null ? MessageDigest.getInstance("SHA-256") : null;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    <T> void write(HclWriter hcl, String key, T entity, BiConsumer<HclWriter, T> renderer) {
+        if (previous == null) {
+            renderer.accept(hcl, entity);
+            return;
+        }
+
+        String hash = salt.isEmpty() ? ContentHash.of(entity) : ContentHash.of(salt, entity);
+        Fragment fragment = previous.get(key);
+        if (fragment == null || !fragment.hash().equals(hash)) {
+            StringBuilder out = new StringBuilder(512);
+            renderer.accept(hcl.fork(out), entity);
+            fragment = new Fragment(hash, out.toString());
+            rendered++;
+        } else {
+            reused++;
+        }
+        current.put(key, fragment);
+
+        moduleDigest.update(key.getBytes(StandardCharsets.UTF_8));
+        moduleDigest.update((byte) 0);
+        moduleDigest.update(hash.getBytes(StandardCharsets.US_ASCII));
+        hcl.fragment(fragment.hcl());
+    }
+
+    /**
+     * Fingerprint of the ordered entity keys and hashes written so far.
+     */
+    String fingerprint() {
+        return HexFormat.of().formatHex(moduleDigest.digest());
+    }
+
+    Map<String, Fragment> fragments() {
+        return current;
+    }
+
+    int rendered() {
+        return rendered;
+    }
+
+    int reused() {
+        return reused;
+    }
+
+    record Fragment(String hash, String hcl) {
+    }
+}
@@ -0,0 +1,442 @@
+package com.keycloak.forge.service;
+
+import com.keycloak.forge.hcl.HclReader;
+import org.keycloak.representations.idm.AuthenticationFlowRepresentation;
+import org.keycloak.representations.idm.ClientRepresentation;
+import org.keycloak.representations.idm.ClientScopeRepresentation;
+import org.keycloak.representations.idm.GroupRepresentation;
+import org.keycloak.representations.idm.IdentityProviderRepresentation;
+import org.keycloak.representations.idm.ProtocolMapperRepresentation;
+import org.keycloak.representations.idm.RealmRepresentation;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.keycloak.representations.idm.RolesRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rebuilds a realm representation from the {@code keycloak_*} resources of generated HCL,
+ * as an offline stand-in for deploying the modules and exporting the realm from Keycloak.
+ *
+ * Every setting a resource carries goes back into the field it was generated from, and
+ * references between resources are resolved through their addresses: composites and group
+ * parents through {@code keycloak_role.<address>.id} and {@code keycloak_group.<address>.id},
+ * group roles and memberships through the {@code var.realm_role_<address>_id} and
+ * {@code var.group_<address>_id} inputs. Whatever the HCL does not carry stays unset, so
+ * comparing the result with the original shows what the conversion loses. Group path
+ * addresses are derived again from the rebuilt hierarchy, which matches the generated ones
+ * unless two paths sanitize to the same address.
+ *
+ * Only HCL files ({@code *.tf}) are read; JSON output and tfvars inputs are skipped.
+ */
+final class GeneratedRealmReader {
+
+    private static final Pattern ROLE_REFERENCE = Pattern.compile("keycloak_role\\.([^.]+)\\.id");
+    private static final Pattern GROUP_REFERENCE = Pattern.compile("keycloak_group\\.([^.]+)\\.id");
+    private static final Pattern USER_REFERENCE = Pattern.compile("keycloak_user\\.([^.]+)\\.id");
+    private static final Pattern CLIENT_REFERENCE = Pattern.compile("keycloak_openid_client\\.([^.]+)\\.id");
+    private static final Pattern ROLE_INPUT = Pattern.compile("var\\.realm_role_(.+)_id");
+    private static final Pattern GROUP_INPUT = Pattern.compile("var\\.group_(.+)_id");
+    private static final Pattern DURATION = Pattern.compile("(\\d+)([hms])");
+
+    private RealmRepresentation realm;
+    private final Map<String, RoleRepresentation> roles = new LinkedHashMap<>();
+    private final Map<String, GroupRepresentation> groups = new LinkedHashMap<>();
+    private final Map<String, String> groupParents = new HashMap<>();
+    private final Map<String, UserRepresentation> users = new LinkedHashMap<>();
+    private final Map<String, List<Object>> userGroupInputs = new HashMap<>();
+    private final Map<String, ClientRepresentation> clients = new LinkedHashMap<>();
+    private final List<IdentityProviderRepresentation> identityProviders = new ArrayList<>();
+    private final List<AuthenticationFlowRepresentation> flows = new ArrayList<>();
+    private final List<ClientScopeRepresentation> clientScopes = new ArrayList<>();
+    // Links are resolved once every file has been read, since they may point into later modules
+    private final Map<String, List<Object>> composites = new LinkedHashMap<>();
+    private final Map<String, List<Object>> groupRoleInputs = new LinkedHashMap<>();
+    private final List<Map<String, Object>> protocolMappers = new ArrayList<>();
+    private int resources;
+
+    /**
+     * Read the resources of one generated file; files other than {@code *.tf} are ignored.
+     */
+    void file(String filePath, String content) {
+        if (!filePath.endsWith(".tf")) {
+            return;
+        }
+        for (HclReader.Block block : HclReader.parse(content).blocks("resource")) {
+            if (block.labels().size() == 2) {
+                resource(block.labels().get(0), block.labels().get(1), block.body().attributes());
+            }
+        }
+    }
+
+    /**
+     * @return number of {@code keycloak_*} resources read so far
+     */
+    int resources() {
+        return resources;
+    }
+
+    /**
+     * Resolve the references between the resources read and assemble the realm.
+     *
+     * @throws IllegalStateException if no {@code keycloak_realm} resource was read
+     */
+    RealmRepresentation realm() {
+        if (realm == null) {
+            throw new IllegalStateException("Generated files contain no keycloak_realm resource");
+        }
+
+        composites.forEach((address, references) -> {
+            RoleRepresentation role = roles.get(address);
+            if (role == null) {
+                return;
+            }
+            role.setComposite(true);
+            role.setComposites(new RoleRepresentation.Composites());
+            role.getComposites().setRealm(new LinkedHashSet<>(resolve(references, ROLE_REFERENCE, this::roleName)));
+        });
+        groupRoleInputs.forEach((address, inputs) -> {
+            GroupRepresentation group = groups.get(address);
+            if (group != null) {
+                group.setRealmRoles(resolve(inputs, ROLE_INPUT, this::roleName));
+            }
+        });
+
+        List<GroupRepresentation> topLevel = new ArrayList<>();
+        groups.forEach((address, group) -> {
+            GroupRepresentation parent = groups.get(groupParents.get(address));
+            if (parent == null) {
+                topLevel.add(group);
+            } else {
+                parent.getSubGroups().add(group);
+            }
+        });
+        Map<String, String> groupPaths = groupPaths(topLevel);
+        userGroupInputs.forEach((address, inputs) -> {
+            UserRepresentation user = users.get(address);
+            if (user != null) {
+                user.setGroups(resolve(inputs, GROUP_INPUT, groupPaths::get));
+            }
+        });
+
+        protocolMappers.forEach(attributes -> {
+            ClientRepresentation client = clients.get(reference(attributes.get("client_id"), CLIENT_REFERENCE));
+            if (client != null) {
+                client.getProtocolMappers().add(protocolMapper(attributes));
+            }
+        });
+
+        if (!roles.isEmpty()) {
+            realm.setRoles(new RolesRepresentation());
+            realm.getRoles().setRealm(new ArrayList<>(roles.values()));
+        }
+        realm.setGroups(topLevel.isEmpty() ? null : topLevel);
+        realm.setUsers(users.isEmpty() ? null : new ArrayList<>(users.values()));
+        realm.setClients(clients.isEmpty() ? null : new ArrayList<>(clients.values()));
+        realm.setIdentityProviders(identityProviders.isEmpty() ? null : identityProviders);
+        realm.setAuthenticationFlows(flows.isEmpty() ? null : flows);
+        realm.setClientScopes(clientScopes.isEmpty() ? null : clientScopes);
+        return realm;
+    }
+
+    private void resource(String type, String address, Map<String, Object> attributes) {
+        if (!type.startsWith("keycloak_")) {
+            return;
+        }
+        resources++;
+        switch (type) {
+            case "keycloak_realm" -> realm = realm(attributes);
+            case TerraformSymbolTable.ROLES -> {
+                RoleRepresentation role = new RoleRepresentation();
+                role.setName(string(attributes, "name"));
+                role.setDescription(string(attributes, "description"));
+                role.setComposite(false);
+                role.setAttributes(attributes(attributes));
+                roles.put(address, role);
+                if (attributes.containsKey("composite_roles")) {
+                    composites.put(address, list(attributes, "composite_roles"));
+                }
+            }
+            case TerraformSymbolTable.GROUPS -> {
+                GroupRepresentation group = new GroupRepresentation();
+                group.setName(string(attributes, "name"));
+                group.setAttributes(attributes(attributes));
+                group.setSubGroups(new ArrayList<>());
+                groups.put(address, group);
+                String parent = reference(attributes.get("parent_id"), GROUP_REFERENCE);
+                if (parent != null) {
+                    groupParents.put(address, parent);
+                }
+            }
+            case "keycloak_group_roles" ->
+                groupRoleInputs.put(reference(attributes.get("group_id"), GROUP_REFERENCE), list(attributes, "role_ids"));
+            case TerraformSymbolTable.USERS -> {
+                UserRepresentation user = new UserRepresentation();
+                user.setUsername(string(attributes, "username"));
+                user.setEnabled(bool(attributes, "enabled"));
+                user.setEmail(string(attributes, "email"));
+                user.setFirstName(string(attributes, "first_name"));
+                user.setLastName(string(attributes, "last_name"));
+                user.setAttributes(attributes(attributes));
+                users.put(address, user);
+            }
+            case "keycloak_user_groups" -> userGroupInputs.put(
+                reference(attributes.get("user_id"), USER_REFERENCE), list(attributes, "group_ids"));
+            case TerraformSymbolTable.CLIENTS -> clients.put(address, client(attributes));
+            case TerraformSymbolTable.PROTOCOL_MAPPERS -> protocolMappers.add(attributes);
+            case TerraformSymbolTable.IDENTITY_PROVIDERS -> identityProviders.add(identityProvider(attributes));
+            case TerraformSymbolTable.AUTHENTICATION_FLOWS -> {
+                AuthenticationFlowRepresentation flow = new AuthenticationFlowRepresentation();
+                flow.setAlias(string(attributes, "alias"));
+                flow.setDescription(string(attributes, "description"));
+                flow.setProviderId(string(attributes, "provider_id"));
+                flow.setTopLevel(Boolean.TRUE.equals(bool(attributes, "top_level")));
+                flow.setBuiltIn(false);
+                flows.add(flow);
+            }
+            case TerraformSymbolTable.CLIENT_SCOPES -> {
+                ClientScopeRepresentation scope = new ClientScopeRepresentation();
+                scope.setName(string(attributes, "name"));
+                scope.setDescription(string(attributes, "description"));
+                scope.setProtocol("openid-connect");
+                Map<String, String> scopeAttributes = new LinkedHashMap<>();
+                scopeAttributes.put("consent.screen.text", string(attributes, "consent_screen_text"));
+                scopeAttributes.put("include.in.token.scope", String.valueOf(bool(attributes, "include_in_token_scope")));
+                scope.setAttributes(scopeAttributes);
+                clientScopes.add(scope);
+            }
+            default -> resources--;
+        }
+    }
+
+    private static RealmRepresentation realm(Map<String, Object> attributes) {
+        RealmRepresentation realm = new RealmRepresentation();
+        realm.setRealm(string(attributes, "realm"));
+        realm.setEnabled(bool(attributes, "enabled"));
+        realm.setDisplayName(string(attributes, "display_name"));
+        realm.setRegistrationAllowed(bool(attributes, "registration_allowed"));
+        realm.setRegistrationEmailAsUsername(bool(attributes, "registration_email_as_username"));
+        realm.setRememberMe(bool(attributes, "remember_me"));
+        realm.setVerifyEmail(bool(attributes, "verify_email"));
+        realm.setLoginWithEmailAllowed(bool(attributes, "login_with_email_allowed"));
+        realm.setDuplicateEmailsAllowed(bool(attributes, "duplicate_emails_allowed"));
+        realm.setResetPasswordAllowed(bool(attributes, "reset_password_allowed"));
+        realm.setEditUsernameAllowed(bool(attributes, "edit_username_allowed"));
+        realm.setSslRequired(string(attributes, "ssl_required"));
+        realm.setAccessTokenLifespan(seconds(attributes, "access_token_lifespan"));
+        realm.setSsoSessionIdleTimeout(seconds(attributes, "sso_session_idle_timeout"));
+        realm.setSsoSessionMaxLifespan(seconds(attributes, "sso_session_max_lifespan"));
+        realm.setOfflineSessionIdleTimeout(seconds(attributes, "offline_session_idle_timeout"));
+        realm.setOfflineSessionMaxLifespan(seconds(attributes, "offline_session_max_lifespan"));
+        realm.setOfflineSessionMaxLifespanEnabled(bool(attributes, "offline_session_max_lifespan_enabled"));
+        realm.setAccessCodeLifespan(seconds(attributes, "access_code_lifespan"));
+        realm.setAccessCodeLifespanUserAction(seconds(attributes, "access_code_lifespan_user_action"));
+        realm.setAccessCodeLifespanLogin(seconds(attributes, "access_code_lifespan_login"));
+        realm.setActionTokenGeneratedByAdminLifespan(seconds(attributes, "action_token_generated_by_admin_lifespan"));
+        realm.setActionTokenGeneratedByUserLifespan(seconds(attributes, "action_token_generated_by_user_lifespan"));
+        realm.setRevokeRefreshToken(bool(attributes, "revoke_refresh_token"));
+        Object refreshTokenMaxReuse = attributes.get("refresh_token_max_reuse");
+        if (refreshTokenMaxReuse instanceof Number number) {
+            realm.setRefreshTokenMaxReuse(number.intValue());
+        }
+        realm.setPasswordPolicy(string(attributes, "password_policy"));
+        return realm;
+    }
+
+    private static ClientRepresentation client(Map<String, Object> attributes) {
+        ClientRepresentation client = new ClientRepresentation();
+        client.setClientId(string(attributes, "client_id"));
+        client.setName(string(attributes, "name"));
+        client.setDescription(string(attributes, "description"));
+        client.setProtocol("openid-connect");
+        client.setEnabled(bool(attributes, "enabled"));
+        client.setStandardFlowEnabled(bool(attributes, "standard_flow_enabled"));
+        client.setImplicitFlowEnabled(bool(attributes, "implicit_flow_enabled"));
+        client.setDirectAccessGrantsEnabled(bool(attributes, "direct_access_grants_enabled"));
+        client.setServiceAccountsEnabled(bool(attributes, "service_accounts_enabled"));
+        String accessType = string(attributes, "access_type");
+        client.setPublicClient("PUBLIC".equals(accessType));
+        client.setBearerOnly("BEARER-ONLY".equals(accessType));
+        if (attributes.containsKey("valid_redirect_uris")) {
+            client.setRedirectUris(strings(list(attributes, "valid_redirect_uris")));
+        }
+        if (attributes.containsKey("web_origins")) {
+            client.setWebOrigins(strings(list(attributes, "web_origins")));
+        }
+        client.setProtocolMappers(new ArrayList<>());
+        return client;
+    }
+
+    private static ProtocolMapperRepresentation protocolMapper(Map<String, Object> attributes) {
+        ProtocolMapperRepresentation mapper = new ProtocolMapperRepresentation();
+        mapper.setName(string(attributes, "name"));
+        mapper.setProtocol("openid-connect");
+        mapper.setProtocolMapper("oidc-usermodel-attribute-mapper");
+        Map<String, String> config = new LinkedHashMap<>();
+        config.put("user.attribute", string(attributes, "user_attribute"));
+        config.put("claim.name", string(attributes, "claim_name"));
+        config.put("jsonType.label", string(attributes, "claim_value_type"));
+        config.put("id.token.claim", String.valueOf(bool(attributes, "add_to_id_token")));
+        config.put("access.token.claim", String.valueOf(bool(attributes, "add_to_access_token")));
+        config.put("userinfo.token.claim", String.valueOf(bool(attributes, "add_to_userinfo")));
+        mapper.setConfig(config);
+        return mapper;
+    }
+
+    private static IdentityProviderRepresentation identityProvider(Map<String, Object> attributes) {
+        IdentityProviderRepresentation idp = new IdentityProviderRepresentation();
+        idp.setAlias(string(attributes, "alias"));
+        idp.setProviderId("oidc");
+        idp.setDisplayName(string(attributes, "display_name"));
+        idp.setEnabled(Boolean.TRUE.equals(bool(attributes, "enabled")));
+        idp.setStoreToken(Boolean.TRUE.equals(bool(attributes, "store_token")));
+        idp.setTrustEmail(Boolean.TRUE.equals(bool(attributes, "trust_email")));
+        idp.setFirstBrokerLoginFlowAlias(string(attributes, "first_broker_login_flow_alias"));
+
+        Map<String, String> config = new LinkedHashMap<>();
+        config.put("authorizationUrl", string(attributes, "authorization_url"));
+        config.put("tokenUrl", string(attributes, "token_url"));
+        config.put("clientId", string(attributes, "client_id"));
+        config.put("clientSecret", string(attributes, "client_secret"));
+        if (attributes.get("extra_config") instanceof Map<?, ?> extraConfig) {
+            extraConfig.forEach((key, value) -> config.put(String.valueOf(key), scalar(value)));
+        }
+        idp.setConfig(config);
+        return idp;
+    }
+
+    /**
+     * Paths of the rebuilt groups keyed by the address the generator gives each path.
+     */
+    private static Map<String, String> groupPaths(List<GroupRepresentation> topLevel) {
+        TerraformSymbolTable symbols = new TerraformSymbolTable();
+        Map<String, String> paths = new HashMap<>();
+        Deque<Map.Entry<GroupRepresentation, String>> pending = new ArrayDeque<>();
+        for (int i = topLevel.size() - 1; i >= 0; i--) {
+            pending.push(Map.entry(topLevel.get(i), ""));
+        }
+        while (!pending.isEmpty()) {
+            Map.Entry<GroupRepresentation, String> next = pending.pop();
+            GroupRepresentation group = next.getKey();
+            String path = next.getValue() + "/" + group.getName();
+            group.setPath(path);
+            paths.put(symbols.name(TerraformSymbolTable.GROUP_PATHS, path), path);
+            List<GroupRepresentation> subGroups = group.getSubGroups();
+            for (int i = subGroups.size() - 1; i >= 0; i--) {
+                pending.push(Map.entry(subGroups.get(i), path));
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * Roles defined elsewhere only have an input, whose address is their name unless it had to be sanitized.
+     */
+    private String roleName(String address) {
+        RoleRepresentation role = roles.get(address);
+        return role != null ? role.getName() : address;
+    }
+
+    /**
+     * Map each reference to the entity it addresses; references that cannot be resolved are dropped.
+     */
+    private static List<String> resolve(List<Object> references, Pattern pattern,
+                                        Function<String, String> lookup) {
+        Set<String> resolved = new LinkedHashSet<>();
+        for (Object value : references) {
+            String address = reference(value, pattern);
+            String name = address != null ? lookup.apply(address) : null;
+            if (name != null) {
+                resolved.add(name);
+            }
+        }
+        return new ArrayList<>(resolved);
+    }
+
+    /**
+     * @return the address captured by the pattern from an expression, or null
+     */
+    private static String reference(Object value, Pattern pattern) {
+        if (!(value instanceof HclReader.Expression expression)) {
+            return null;
+        }
+        Matcher matcher = pattern.matcher(expression.text());
+        return matcher.matches() ? matcher.group(1) : null;
+    }
+
+    private static String string(Map<String, Object> attributes, String name) {
+        Object value = attributes.get(name);
+        return value instanceof String string ? string : null;
+    }
+
+    private static Boolean bool(Map<String, Object> attributes, String name) {
+        Object value = attributes.get(name);
+        return value instanceof Boolean bool ? bool : null;
+    }
+
+    /**
+     * Durations are written in Go syntax, e.g. {@code 300s} or {@code 1h30m}.
+     */
+    private static Integer seconds(Map<String, Object> attributes, String name) {
+        String value = string(attributes, name);
+        if (value == null) {
+            return null;
+        }
+        Matcher matcher = DURATION.matcher(value);
+        int seconds = 0;
+        int end = 0;
+        while (matcher.find() && matcher.start() == end) {
+            int amount = Integer.parseInt(matcher.group(1));
+            seconds += switch (matcher.group(2)) {
+                case "h" -> amount * 3600;
+                case "m" -> amount * 60;
+                default -> amount;
+            };
+            end = matcher.end();
+        }
+        return end == value.length() && end > 0 ? seconds : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> list(Map<String, Object> attributes, String name) {
+        Object value = attributes.get(name);
+        return value instanceof List<?> list ? (List<Object>) list : List.of();
+    }
+
+    private static List<String> strings(List<Object> values) {
+        List<String> strings = new ArrayList<>(values.size());
+        values.forEach(value -> strings.add(scalar(value)));
+        return strings;
+    }
+
+    /**
+     * Single-valued attributes are written as strings, multi-valued ones as lists.
+     */
+    private static Map<String, List<String>> attributes(Map<String, Object> attributes) {
+        if (!(attributes.get("attributes") instanceof Map<?, ?> values)) {
+            return null;
+        }
+        Map<String, List<String>> result = new LinkedHashMap<>();
+        values.forEach((key, value) -> result.put(String.valueOf(key),
+            value instanceof List<?> list ? strings(new ArrayList<>(list)) : new ArrayList<>(List.of(scalar(value)))));
+        return result;
+    }
+
+    private static String scalar(Object value) {
+        if (value instanceof HclReader.Expression expression) {
+            return expression.text();
+        }
+        return value != null ? String.valueOf(value) : null;
+    }
+}
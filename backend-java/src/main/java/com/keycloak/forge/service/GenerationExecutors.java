@@ -0,0 +1,108 @@
+package com.keycloak.forge.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Executors available for parallel module generation.
+ *
+ * "fork-join" runs tasks on the shared {@link ForkJoinPool#commonPool()}.
+ * "virtual" starts one virtual thread per task; the project targets Java 17,
+ * so the factory is looked up at runtime and falls back to the common pool
+ * when the JVM does not provide virtual threads. Any other name is rejected.
+ */
+@Slf4j
+final class GenerationExecutors {
+
+    static final String FORK_JOIN = "fork-join";
+    static final String VIRTUAL = "virtual";
+
+    private static final MethodHandle VIRTUAL_THREAD_EXECUTOR = findVirtualThreadExecutor();
+
+    private GenerationExecutors() {
+    }
+
+    /**
+     * Run all tasks on the named executor and return their results in task order.
+     *
+     * @throws IllegalArgumentException if the executor is neither "fork-join" nor "virtual"
+     */
+    static <T> List<T> runAll(List<Supplier<T>> tasks, String executorType) {
+        ExecutorService ownedExecutor = isVirtual(executorType) ? newVirtualThreadExecutor() : null;
+        try {
+            List<CompletableFuture<T>> futures = new ArrayList<>(tasks.size());
+            for (Supplier<T> task : tasks) {
+                futures.add(ownedExecutor != null
+                    ? CompletableFuture.supplyAsync(task, ownedExecutor)
+                    : CompletableFuture.supplyAsync(task, ForkJoinPool.commonPool()));
+            }
+            
+            List<T> results = new ArrayList<>(futures.size());
+            for (CompletableFuture<T> future : futures) {
+                results.add(join(future));
+            }
+            return results;
+        } finally {
+            if (ownedExecutor != null) {
+                ownedExecutor.shutdown();
+            }
+        }
+    }
+
+    private static boolean isVirtual(String executorType) {
+        if (executorType == null || FORK_JOIN.equalsIgnoreCase(executorType)) {
+            return false;
+        }
+        if (VIRTUAL.equalsIgnoreCase(executorType)) {
+            return true;
+        }
+        throw new IllegalArgumentException("Unknown generation executor: " + executorType);
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        if (VIRTUAL_THREAD_EXECUTOR == null) {
+            log.warn("Virtual threads are not available on Java {}, using the fork-join common pool",
+                Runtime.version().feature());
+            return null;
+        }
+        try {
+            return (ExecutorService) VIRTUAL_THREAD_EXECUTOR.invoke();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Failed to create virtual thread executor", e);
+        }
+    }
+
+    private static MethodHandle findVirtualThreadExecutor() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+}
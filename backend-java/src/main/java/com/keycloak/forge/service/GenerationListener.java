@@ -0,0 +1,25 @@
+package com.keycloak.forge.service;
+
+import java.util.List;
+
+/**
+ * Receives per-module progress while Terragrunt modules are generated.
+ * Callbacks for different modules may arrive concurrently during parallel generation.
+ */
+public interface GenerationListener {
+
+    GenerationListener NONE = new GenerationListener() {
+    };
+
+    /**
+     * Called once with the names of all modules that will be generated, in output order.
+     */
+    default void modulesPlanned(List<String> modules) {
+    }
+
+    default void moduleStarted(String module) {
+    }
+
+    default void moduleCompleted(String module, int filesGenerated) {
+    }
+}
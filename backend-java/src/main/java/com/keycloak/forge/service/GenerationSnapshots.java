@@ -0,0 +1,42 @@
+package com.keycloak.forge.service;
+
+import com.keycloak.forge.model.ConversionResult;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Module fingerprints, files and entity fragments of the most recent conversion of each
+ * realm, used by incremental generation to skip modules and entities that have not changed.
+ * Only the most recently converted realms are kept.
+ */
+final class GenerationSnapshots {
+
+    static final int MAX_REALMS = 32;
+
+    private final Map<String, Map<String, ModuleSnapshot>> realms = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Map<String, ModuleSnapshot>> eldest) {
+            return size() > MAX_REALMS;
+        }
+    };
+
+    /**
+     * @return the module snapshots of the last conversion of the realm, keyed by module name; empty if none
+     */
+    synchronized Map<String, ModuleSnapshot> get(String realm) {
+        return realms.getOrDefault(realm, Map.of());
+    }
+
+    synchronized void put(String realm, Map<String, ModuleSnapshot> modules) {
+        realms.put(realm, Map.copyOf(modules));
+    }
+
+    /**
+     * @param fragments rendered entity fragments keyed by entity key; empty for modules without entities
+     */
+    record ModuleSnapshot(String fingerprint, List<ConversionResult.TerraformFile> files, 
+                          Map<String, EntityFragments.Fragment> fragments) {
+    }
+}
@@ -1,32 +1,66 @@
 package com.keycloak.forge.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.keycloak.forge.model.ConversionRequest;
 import com.keycloak.forge.model.ConversionResult;
 import com.keycloak.forge.model.RealmAnalysis;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.keycloak.representations.idm.RealmRepresentation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class KeycloakService {
     
-    private final Map<String, ConversionResult> conversionCache = new ConcurrentHashMap<>();
+    private final TerraformGeneratorService terraformGeneratorService;
+    private final ConversionResultCache conversionResultCache;
+    private final ObjectMapper objectMapper;
+    private final GenerationMetrics metrics;
+    // Shared by all batch uploads, so concurrent requests together convert at most batch-parallelism files
+    private final ExecutorService batchExecutor;
+    
+    public KeycloakService(TerraformGeneratorService terraformGeneratorService,
+                           ConversionResultCache conversionResultCache,
+                           ObjectMapper objectMapper,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.conversion.batch-parallelism:4}") int batchParallelism) {
+        this.terraformGeneratorService = terraformGeneratorService;
+        this.conversionResultCache = conversionResultCache;
+        this.objectMapper = objectMapper;
+        this.metrics = new GenerationMetrics(meterRegistry);
+        this.batchExecutor = Executors.newFixedThreadPool(Math.max(1, batchParallelism),
+            new CustomizableThreadFactory("batch-conversion-"));
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        batchExecutor.shutdownNow();
+    }
     
     public RealmAnalysis analyzeRealm(RealmRepresentation realm) {
         log.info("Analyzing realm: {}", realm.getRealm());
+        long startNanos = System.nanoTime();
         
         int complexityScore = calculateComplexityScore(realm);
         String level = getComplexityLevel(complexityScore);
         
-        return RealmAnalysis.builder()
+        RealmAnalysis analysis = RealmAnalysis.builder()
             .realmName(realm.getRealm())
             .complexity(RealmAnalysis.ComplexityScore.builder()
                 .score(complexityScore)
@@ -34,14 +68,88 @@ public class KeycloakService {
                 .description("Realm complexity based on resource count and configuration")
                 .build())
             .build();
+        metrics.analysis(realm.getRealm(), System.nanoTime() - startNanos);
+        return analysis;
+    }
+    
+    /**
+     * Analyze the realm into the conversion result and add the analysis time to its statistics.
+     * The metadata is replaced rather than modified, since cached results share it.
+     */
+    public void attachAnalysis(ConversionResult result, RealmRepresentation realm) {
+        long startNanos = System.nanoTime();
+        result.setAnalysis(analyzeRealm(realm));
+        long analysisMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        
+        ConversionResult.ConversionMetadata metadata = result.getMetadata();
+        if (metadata != null) {
+            Map<String, Object> statistics = metadata.getStatistics() != null
+                ? new LinkedHashMap<>(metadata.getStatistics())
+                : new LinkedHashMap<>();
+            statistics.put("analysisMs", analysisMs);
+            result.setMetadata(metadata.toBuilder().statistics(statistics).build());
+        }
     }
     
+    /**
+     * Convert a realm to Terragrunt modules, reusing the result of an earlier conversion of
+     * identical realm content and options when it is still cached.
+     */
+    public ConversionResult convertRealm(RealmRepresentation realm, ConversionRequest.ConversionOptions options) {
+        return convertRealm(realm, options, GenerationListener.NONE);
+    }
+    
+    /**
+     * Convert a realm like {@link #convertRealm(RealmRepresentation, ConversionRequest.ConversionOptions)},
+     * reporting per-module progress to the listener when the modules have to be generated.
+     */
+    public ConversionResult convertRealm(RealmRepresentation realm, ConversionRequest.ConversionOptions options,
+                                         GenerationListener listener) {
+        return conversionResultCache.get(realm, options, 
+            () -> terraformGeneratorService.generateTerragruntModules(realm, options, listener));
+    }
+    
+    /**
+     * Parse and convert uploaded realm exports concurrently, at most {@code app.conversion.batch-parallelism}
+     * at a time across all uploads in progress. Each file is read from its input stream rather than loaded into a byte array. Results are
+     * returned in upload order; a file that fails yields a failed result without aborting the batch.
+     *
+     * @throws IOException when the options are not valid JSON
+     */
     public List<ConversionResult> processBatchUpload(List<MultipartFile> files, String optionsJson) throws IOException {
-        throw new UnsupportedOperationException("Batch upload not implemented yet");
+        ConversionRequest.ConversionOptions options = optionsJson != null && !optionsJson.isBlank()
+            ? objectMapper.readValue(optionsJson, ConversionRequest.ConversionOptions.class)
+            : new ConversionRequest.ConversionOptions();
+        if (files.isEmpty()) {
+            return List.of();
+        }
+        
+        List<CompletableFuture<ConversionResult>> conversions = new ArrayList<>(files.size());
+        for (MultipartFile file : files) {
+            conversions.add(CompletableFuture.supplyAsync(() -> convertUploadedFile(file, options), batchExecutor));
+        }
+        return conversions.stream()
+            .map(CompletableFuture::join)
+            .toList();
     }
     
-    public ConversionResult getConversionStatus(String conversionId) {
-        return conversionCache.get(conversionId);
+    private ConversionResult convertUploadedFile(MultipartFile file, ConversionRequest.ConversionOptions options) {
+        String fileName = file.getOriginalFilename();
+        try (InputStream in = file.getInputStream()) {
+            RealmRepresentation realm = objectMapper.readValue(in, RealmRepresentation.class);
+            
+            ConversionResult result = convertRealm(realm, options);
+            attachAnalysis(result, realm);
+            log.info("Converted uploaded file: {} (realm: {})", fileName, realm.getRealm());
+            return result;
+            
+        } catch (Exception e) {
+            log.error("Conversion of uploaded file {} failed", fileName, e);
+            return ConversionResult.builder()
+                .success(false)
+                .error("Conversion of " + fileName + " failed: " + e.getMessage())
+                .build();
+        }
     }
     
     private int calculateComplexityScore(RealmRepresentation realm) {
@@ -0,0 +1,354 @@
+package com.keycloak.forge.service;
+
+import org.keycloak.representations.idm.AuthenticationFlowRepresentation;
+import org.keycloak.representations.idm.GroupRepresentation;
+import org.keycloak.representations.idm.IdentityProviderRepresentation;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Dependency graph of the Terragrunt units of a realm, built from the references between their entities.
+ *
+ * Every unit depends on the realm. Beyond that, a unit only depends on another one when the
+ * generated configuration of one of its entities consumes an entity the other defines: groups on
+ * roles through the role IDs of their realm role mappings, users on groups through the group IDs
+ * of their memberships, and identity providers on the authentication flow they name as first
+ * broker login flow. Role and group IDs flow through the outputs of the defining unit into the
+ * inputs of the referencing one; a flow is named by its alias, so that edge only orders the two
+ * units. References the generated configuration does not carry, such as the client scopes and
+ * flow binding overrides of clients, add no edge. Units without a path between them can be
+ * applied concurrently by {@code terragrunt run-all}.
+ *
+ * Entities are recorded as they pass by, so the graph is built the same way up front for a bound
+ * realm and while a realm export is streamed. It reports the waves in which run-all can apply the
+ * units, the widest of which is the useful {@code --terragrunt-parallelism}, and the critical path,
+ * the chain of dependent units with the most entities, which bounds the duration of the run.
+ */
+final class ModuleDependencyGraph {
+
+    static final String REALM = "realm";
+    static final String ROLES = "roles";
+    static final String GROUPS = "groups";
+    static final String AUTHENTICATION_FLOWS = "authentication-flows";
+
+    /**
+     * Units other units can reference, in the order dependencies on them are declared
+     */
+    private static final List<String> TARGETS = List.of(ROLES, GROUPS, AUTHENTICATION_FLOWS);
+
+    private final Map<String, Unit> units = new LinkedHashMap<>();
+    private final Map<String, Map<String, String>> definitions = new HashMap<>();
+
+    /**
+     * Record all entities of a unit.
+     */
+    void unit(String name, Iterable<?> entities) {
+        recording(name, entities).forEach(entity -> { });
+    }
+
+    /**
+     * Wrap the entities of a unit so each one is recorded when it is iterated.
+     */
+    <T> Iterable<T> recording(String name, Iterable<T> entities) {
+        Unit unit = units.computeIfAbsent(name, key -> new Unit());
+        return () -> {
+            Iterator<T> iterator = entities.iterator();
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public T next() {
+                    T entity = iterator.next();
+                    record(name, unit, entity);
+                    return entity;
+                }
+            };
+        };
+    }
+
+    /**
+     * @return recorded units, in the order they were first recorded
+     */
+    Collection<String> units() {
+        return Collections.unmodifiableSet(units.keySet());
+    }
+
+    /**
+     * @return units the unit depends on, the realm first
+     */
+    List<String> dependencies(String unit) {
+        if (REALM.equals(unit)) {
+            return List.of();
+        }
+        List<String> dependencies = new ArrayList<>();
+        dependencies.add(REALM);
+        dependencies.addAll(references(unit).keySet());
+        return dependencies;
+    }
+
+    /**
+     * @return names the unit references, sorted, by the unit that defines them, in declaration order
+     */
+    Map<String, Set<String>> references(String unit) {
+        Unit recorded = units.get(unit);
+        if (recorded == null) {
+            return Map.of();
+        }
+        Map<String, Set<String>> references = new LinkedHashMap<>();
+        for (String target : TARGETS) {
+            Set<String> names = recorded.references.get(target);
+            Map<String, String> defined = definitions.get(target);
+            if (names != null && defined != null) {
+                Set<String> resolved = new TreeSet<>(names);
+                resolved.retainAll(defined.keySet());
+                if (!resolved.isEmpty()) {
+                    references.put(target, resolved);
+                }
+            }
+        }
+        return references;
+    }
+
+    /**
+     * @return role and group names the unit references that no unit defines, sorted, by the unit they
+     *         belong to. Flows are left out: identity providers may name built-in flows, which are not recorded.
+     */
+    Map<String, Set<String>> undefinedReferences(String unit) {
+        Unit recorded = units.get(unit);
+        if (recorded == null) {
+            return Map.of();
+        }
+        Map<String, Set<String>> undefined = new LinkedHashMap<>();
+        for (String target : List.of(ROLES, GROUPS)) {
+            Set<String> names = recorded.references.get(target);
+            if (names != null) {
+                Set<String> missing = new TreeSet<>(names);
+                missing.removeAll(definitions.getOrDefault(target, Map.of()).keySet());
+                if (!missing.isEmpty()) {
+                    undefined.put(target, missing);
+                }
+            }
+        }
+        return undefined;
+    }
+
+    boolean defines(String unit, String name) {
+        return definitions.getOrDefault(unit, Map.of()).containsKey(name);
+    }
+
+    /**
+     * Entities of the unit that other units reference, so only those need to be exported.
+     *
+     * @return key of each such entity by the name it is referenced by, in the order they were recorded:
+     *         roles by name, groups by path
+     */
+    Map<String, String> referencedDefinitions(String unit) {
+        Set<String> referenced = new HashSet<>();
+        units.values().forEach(recorded -> referenced.addAll(recorded.references.getOrDefault(unit, Set.of())));
+        Map<String, String> exported = new LinkedHashMap<>();
+        definitions.getOrDefault(unit, Map.of()).forEach((name, key) -> {
+            if (referenced.contains(name)) {
+                exported.put(name, key);
+            }
+        });
+        return exported;
+    }
+
+    /**
+     * Units in the waves run-all applies them in: every unit is in the wave after its last
+     * dependency. Units of a wave are sorted by name.
+     */
+    List<List<String>> waves() {
+        Map<String, Integer> wave = new HashMap<>();
+        List<List<String>> waves = new ArrayList<>();
+        for (String unit : topologicalOrder()) {
+            int index = 0;
+            for (String dependency : dependencies(unit)) {
+                index = Math.max(index, wave.getOrDefault(dependency, -1) + 1);
+            }
+            wave.put(unit, index);
+            while (waves.size() <= index) {
+                waves.add(new ArrayList<>());
+            }
+            waves.get(index).add(unit);
+        }
+        waves.forEach(Collections::sort);
+        return waves;
+    }
+
+    /**
+     * @return number of units in the widest wave, the highest parallelism run-all can use
+     */
+    int maxWidth() {
+        return waves().stream().mapToInt(List::size).max().orElse(0);
+    }
+
+    /**
+     * Chain of dependent units with the most entities, starting at the realm.
+     */
+    List<String> criticalPath() {
+        Map<String, Long> distance = new HashMap<>();
+        Map<String, String> previous = new HashMap<>();
+        String last = null;
+        for (String unit : topologicalOrder()) {
+            long longest = 0;
+            for (String dependency : dependencies(unit)) {
+                long dependencyDistance = distance.getOrDefault(dependency, 0L);
+                if (dependencyDistance > longest) {
+                    longest = dependencyDistance;
+                    previous.put(unit, dependency);
+                }
+            }
+            distance.put(unit, longest + weight(unit));
+            if (last == null || distance.get(unit) > distance.get(last)) {
+                last = unit;
+            }
+        }
+
+        List<String> path = new ArrayList<>();
+        for (String unit = last; unit != null; unit = previous.get(unit)) {
+            path.add(unit);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    Map<String, Object> statistics() {
+        Map<String, List<String>> dependencies = new LinkedHashMap<>();
+        units.keySet().forEach(unit -> dependencies.put(unit, dependencies(unit)));
+        List<String> criticalPath = criticalPath();
+
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("dependencies", dependencies);
+        statistics.put("waves", waves());
+        statistics.put("maxWidth", maxWidth());
+        statistics.put("criticalPath", criticalPath);
+        statistics.put("criticalPathEntities", criticalPath.stream().mapToLong(this::weight).sum());
+        Map<String, Map<String, Set<String>>> undefined = new LinkedHashMap<>();
+        units.keySet().forEach(unit -> {
+            Map<String, Set<String>> references = undefinedReferences(unit);
+            if (!references.isEmpty()) {
+                undefined.put(unit, references);
+            }
+        });
+        statistics.put("undefinedReferences", undefined);
+        return statistics;
+    }
+
+    private void record(String name, Unit unit, Object entity) {
+        if (entity instanceof GroupRepresentation root) {
+            // Subgroups belong to the same unit; exports may leave their paths out
+            Deque<Map.Entry<GroupRepresentation, String>> pending = new ArrayDeque<>();
+            pending.push(Map.entry(root, ""));
+            while (!pending.isEmpty()) {
+                Map.Entry<GroupRepresentation, String> next = pending.pop();
+                GroupRepresentation group = next.getKey();
+                String path = group.getPath() != null ? group.getPath() : next.getValue() + "/" + group.getName();
+                unit.entities++;
+                define(name, path, TerraformSymbolTable.groupKey(group));
+                unit.reference(ROLES, group.getRealmRoles());
+                if (group.getSubGroups() != null) {
+                    group.getSubGroups().forEach(subGroup -> pending.push(Map.entry(subGroup, path)));
+                }
+            }
+            return;
+        }
+
+        unit.entities++;
+        if (entity instanceof RoleRepresentation role) {
+            define(name, role.getName(), role.getName());
+        } else if (entity instanceof UserRepresentation user) {
+            unit.reference(GROUPS, user.getGroups());
+        } else if (entity instanceof IdentityProviderRepresentation idp) {
+            unit.reference(AUTHENTICATION_FLOWS, idp.getFirstBrokerLoginFlowAlias());
+        } else if (entity instanceof AuthenticationFlowRepresentation flow) {
+            // Built-in flows are not generated
+            if (!flow.isBuiltIn()) {
+                define(name, flow.getAlias(), flow.getAlias());
+            }
+        }
+    }
+
+    private void define(String unit, String name, String key) {
+        if (name != null) {
+            definitions.computeIfAbsent(unit, ignored -> new LinkedHashMap<>()).putIfAbsent(name, key);
+        }
+    }
+
+    private long weight(String unit) {
+        Unit recorded = units.get(unit);
+        return Math.max(1, recorded != null ? recorded.entities : 0);
+    }
+
+    /**
+     * Kahn's algorithm, taking ready units by name so the order does not depend on the order
+     * units were recorded in.
+     */
+    private List<String> topologicalOrder() {
+        Map<String, Integer> unresolved = new HashMap<>();
+        Map<String, List<String>> dependents = new HashMap<>();
+        for (String unit : units.keySet()) {
+            int count = 0;
+            for (String dependency : dependencies(unit)) {
+                if (units.containsKey(dependency)) {
+                    dependents.computeIfAbsent(dependency, key -> new ArrayList<>()).add(unit);
+                    count++;
+                }
+            }
+            unresolved.put(unit, count);
+        }
+
+        List<String> order = new ArrayList<>(units.size());
+        PriorityQueue<String> ready = new PriorityQueue<>();
+        units.keySet().stream().filter(unit -> unresolved.get(unit) == 0).forEach(ready::add);
+        while (!ready.isEmpty()) {
+            String unit = ready.poll();
+            order.add(unit);
+            for (String dependent : dependents.getOrDefault(unit, List.of())) {
+                if (unresolved.merge(dependent, -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+        if (order.size() != units.size()) {
+            throw new IllegalStateException("Module dependencies form a cycle");
+        }
+        return order;
+    }
+
+    private static final class Unit {
+
+        private final Map<String, Set<String>> references = new HashMap<>();
+        private int entities;
+
+        void reference(String target, Collection<String> names) {
+            if (names != null && !names.isEmpty()) {
+                references.computeIfAbsent(target, key -> new HashSet<>()).addAll(names);
+            }
+        }
+
+        void reference(String target, String name) {
+            if (name != null) {
+                reference(target, List.of(name));
+            }
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.keycloak.forge.service;
+
+import com.keycloak.forge.model.RealmFingerprint;
+import com.keycloak.forge.model.ValidationResult;
+import lombok.extern.slf4j.Slf4j;
+import org.keycloak.representations.idm.ClientRepresentation;
+import org.keycloak.representations.idm.GroupRepresentation;
+import org.keycloak.representations.idm.RealmRepresentation;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Comparison of an original realm against an exported one that arrives in parts.
+ *
+ * Users and groups are accepted page by page as the export walks them, so the exported
+ * lists never have to be held in memory; the remaining components arrive with the
+ * exported realm itself. {@link #result()} is computed once everything has been accepted.
+ *
+ * Groups, users, roles and clients are compared entity by entity through an
+ * {@link EntityComparison} keyed by group path, username, role name and client ID.
+ * Both sides are fingerprinted, see {@link RealmFingerprints}, and the hashes are compared
+ * top down: when the root hashes match the result is built from the counts alone, and
+ * otherwise only settings and components whose hashes differ are compared in detail.
+ * Paged groups and users are hashed and joined as their pages arrive, since the pages are
+ * not kept; roles and clients are only joined when their component hashes differ.
+ */
+@Slf4j
+final class RealmComparison {
+
+    private final RealmRepresentation original;
+    private final EntityComparison<PathedGroup> groups;
+    private final EntityComparison<UserRepresentation> users;
+    private RealmRepresentation exported;
+
+    RealmComparison(RealmRepresentation original) {
+        this.original = original;
+        this.groups = new EntityComparison<>(RealmFingerprints.GROUPS, PathedGroup.flatten(original.getGroups()));
+        this.users = new EntityComparison<>(RealmFingerprints.USERS, RealmFingerprints.orEmpty(original.getUsers()));
+    }
+
+    /**
+     * Accept the next page of exported top-level groups, each with its subgroups.
+     */
+    void groups(List<GroupRepresentation> page) {
+        groups.exported(PathedGroup.flatten(page));
+    }
+
+    /**
+     * Accept the next page of exported users.
+     */
+    void users(List<UserRepresentation> page) {
+        users.exported(page);
+    }
+
+    /**
+     * Accept the exported realm settings and the components that are not paged.
+     */
+    void realm(RealmRepresentation exported) {
+        this.exported = exported;
+    }
+
+    ValidationResult result() {
+        log.info("Comparing realms: {} vs {}", original.getRealm(), exported.getRealm());
+
+        ValidationResult.ValidationResultBuilder resultBuilder = ValidationResult.builder();
+        List<String> differences = new ArrayList<>();
+        List<String> warnings = new ArrayList<>();
+        Map<String, Double> componentAccuracy = new HashMap<>();
+
+        try {
+            // Hash roles and clients, which arrive with the realm, before comparing any entity
+            List<RoleRepresentation> originalRoles = RealmFingerprints.realmRoles(original);
+            List<RoleRepresentation> exportedRoles = RealmFingerprints.realmRoles(exported);
+            List<ClientRepresentation> originalClients = RealmFingerprints.orEmpty(original.getClients());
+            List<ClientRepresentation> exportedClients = RealmFingerprints.orEmpty(exported.getClients());
+            RealmFingerprint originalFingerprint = fingerprint(original, groups.originalFingerprint(),
+                    users.originalFingerprint(), RealmFingerprints.ROLES.hashes(originalRoles),
+                    RealmFingerprints.CLIENTS.hashes(originalClients));
+            RealmFingerprint exportedFingerprint = fingerprint(exported, groups.exportedFingerprint(),
+                    users.exportedFingerprint(), RealmFingerprints.ROLES.hashes(exportedRoles),
+                    RealmFingerprints.CLIENTS.hashes(exportedClients));
+            boolean identical = originalFingerprint.getRoot().equals(exportedFingerprint.getRoot());
+
+            // Compare realm settings
+            double realmAccuracy = identical || sameHash(originalFingerprint, exportedFingerprint, RealmFingerprints.SETTINGS)
+                    ? 100.0 : compareRealmSettings(originalFingerprint, exportedFingerprint, differences);
+            componentAccuracy.put(RealmFingerprints.SETTINGS, realmAccuracy);
+
+            // Groups and users were joined page by page; roles and clients are joined only when their hashes differ
+            Map<String, Supplier<EntityComparison<?>>> components = new LinkedHashMap<>();
+            components.put(RealmFingerprints.GROUPS.name(), () -> groups);
+            components.put(RealmFingerprints.USERS.name(), () -> users);
+            components.put(RealmFingerprints.ROLES.name(),
+                    () -> compare(RealmFingerprints.ROLES, originalRoles, exportedRoles));
+            components.put(RealmFingerprints.CLIENTS.name(),
+                    () -> compare(RealmFingerprints.CLIENTS, originalClients, exportedClients));
+
+            Map<String, ValidationResult.ComponentComparison> detailedComparison = new LinkedHashMap<>();
+            int matchedElements = realmAccuracy == 100.0 ? 1 : 0;
+            int totalElements = 1;
+            for (Map.Entry<String, Supplier<EntityComparison<?>>> component : components.entrySet()) {
+                String name = component.getKey();
+                ValidationResult.ComponentComparison comparison;
+                int unchanged;
+                if (identical || sameHash(originalFingerprint, exportedFingerprint, name)) {
+                    unchanged = originalFingerprint.getComponents().get(name).getEntities().size();
+                    comparison = unchanged(name, unchanged);
+                } else {
+                    EntityComparison<?> entities = component.getValue().get();
+                    comparison = entities.result();
+                    differences.addAll(entities.differences());
+                    unchanged = entities.unchanged();
+                }
+                detailedComparison.put(name, comparison);
+                componentAccuracy.put(name, comparison.getAccuracy());
+                matchedElements += unchanged;
+                totalElements += comparison.getOriginalCount();
+            }
+
+            // Calculate overall accuracy
+            double overallAccuracy = componentAccuracy.values().stream()
+                    .mapToDouble(Double::doubleValue)
+                    .average()
+                    .orElse(0.0);
+
+            boolean isValid = differences.isEmpty() && overallAccuracy >= 99.0;
+
+            log.info("Realm comparison completed. Overall accuracy: {}%, Valid: {}, Differences: {}, Fingerprints match: {}",
+                    String.format("%.2f", overallAccuracy), isValid, differences.size(), identical);
+
+            return resultBuilder
+                    .valid(isValid)
+                    .accuracyPercentage(overallAccuracy)
+                    .differences(differences)
+                    .warnings(warnings)
+                    .componentAccuracy(componentAccuracy)
+                    .totalElements(totalElements)
+                    .matchedElements(matchedElements)
+                    .detailedComparison(detailedComparison)
+                    .originalFingerprint(originalFingerprint.getRoot())
+                    .exportedFingerprint(exportedFingerprint.getRoot())
+                    .build();
+
+        } catch (Exception e) {
+            log.error("Realm comparison failed", e);
+            differences.add("Comparison failed: " + e.getMessage());
+            return resultBuilder
+                    .valid(false)
+                    .accuracyPercentage(0.0)
+                    .differences(differences)
+                    .warnings(warnings)
+                    .build();
+        }
+    }
+
+    /**
+     * Compare the settings whose leaf hashes differ.
+     */
+    private double compareRealmSettings(RealmFingerprint originalFingerprint, RealmFingerprint exportedFingerprint,
+                                        List<String> differences) {
+        Map<String, String> originalHashes = settingHashes(originalFingerprint);
+        Map<String, String> exportedHashes = settingHashes(exportedFingerprint);
+        int totalFields = RealmFingerprints.SETTINGS_FIELDS.size();
+        int matchedFields = totalFields;
+
+        for (Map.Entry<String, Function<RealmRepresentation, Object>> field : RealmFingerprints.SETTINGS_FIELDS.entrySet()) {
+            if (!originalHashes.get(field.getKey()).equals(exportedHashes.get(field.getKey()))) {
+                matchedFields--;
+                differences.add(String.format("Realm setting '%s': original='%s', exported='%s'", field.getKey(),
+                        RealmFingerprints.canonical(field.getValue().apply(original)),
+                        RealmFingerprints.canonical(field.getValue().apply(exported))));
+            }
+        }
+
+        return (double) matchedFields / totalFields * 100.0;
+    }
+
+    private static RealmFingerprint fingerprint(RealmRepresentation realm,
+                                                RealmFingerprint.ComponentFingerprint groups,
+                                                RealmFingerprint.ComponentFingerprint users,
+                                                TreeMap<String, String> roles, TreeMap<String, String> clients) {
+        Map<String, RealmFingerprint.ComponentFingerprint> fingerprints = new LinkedHashMap<>();
+        fingerprints.put(RealmFingerprints.SETTINGS, RealmFingerprints.component(RealmFingerprints.settings(realm)));
+        fingerprints.put(RealmFingerprints.GROUPS.name(), groups);
+        fingerprints.put(RealmFingerprints.USERS.name(), users);
+        fingerprints.put(RealmFingerprints.ROLES.name(), RealmFingerprints.component(roles));
+        fingerprints.put(RealmFingerprints.CLIENTS.name(), RealmFingerprints.component(clients));
+        return RealmFingerprints.of(realm.getRealm(), fingerprints);
+    }
+
+    private static <T> EntityComparison<T> compare(RealmFingerprints.Component<T> component, List<T> originals,
+                                                   List<T> exported) {
+        EntityComparison<T> comparison = new EntityComparison<>(component, originals);
+        comparison.exported(exported);
+        return comparison;
+    }
+
+    /**
+     * Comparison of a component whose hashes match, built from its entity count alone.
+     */
+    private static ValidationResult.ComponentComparison unchanged(String component, int count) {
+        return ValidationResult.ComponentComparison.builder()
+                .componentType(component)
+                .originalCount(count)
+                .exportedCount(count)
+                .accuracy(100.0)
+                .missingElements(new ArrayList<>())
+                .extraElements(new ArrayList<>())
+                .modifiedElements(new ArrayList<>())
+                .build();
+    }
+
+    private static Map<String, String> settingHashes(RealmFingerprint fingerprint) {
+        return fingerprint.getComponents().get(RealmFingerprints.SETTINGS).getEntities();
+    }
+
+    private static boolean sameHash(RealmFingerprint original, RealmFingerprint exported, String component) {
+        return original.getComponents().get(component).getHash()
+                .equals(exported.getComponents().get(component).getHash());
+    }
+
+    /**
+     * A group together with its full path, the natural key of groups at any depth.
+     */
+    record PathedGroup(String path, GroupRepresentation group) {
+
+        static List<PathedGroup> flatten(List<GroupRepresentation> groups) {
+            List<PathedGroup> flattened = new ArrayList<>();
+            flatten(groups, "", flattened);
+            return flattened;
+        }
+
+        private static void flatten(List<GroupRepresentation> groups, String parentPath, List<PathedGroup> flattened) {
+            if (groups == null) {
+                return;
+            }
+            for (GroupRepresentation group : groups) {
+                String path = group.getPath() != null ? group.getPath() : parentPath + "/" + group.getName();
+                flattened.add(new PathedGroup(path, group));
+                flatten(group.getSubGroups(), path, flattened);
+            }
+        }
+    }
+}
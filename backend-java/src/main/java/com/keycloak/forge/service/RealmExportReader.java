@@ -0,0 +1,219 @@
+package com.keycloak.forge.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.keycloak.representations.idm.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Pull reader for Keycloak realm exports that never materializes the whole realm.
+ *
+ * The export is read token by token. Each entity collection (roles, groups, users,
+ * clients, identity providers, authentication flows, client scopes) is exposed as a
+ * section whose entities are bound one at a time, so memory is bounded by the largest
+ * single entity. Realm-level settings met along the way are kept and bound to a
+ * {@link RealmRepresentation} without any collections; other arrays are skipped.
+ *
+ * <pre>
+ * String section;
+ * while ((section = reader.nextSection()) != null) {
+ *     for (UserRepresentation user : reader.entities(UserRepresentation.class)) { ... }
+ * }
+ * </pre>
+ */
+public class RealmExportReader implements Closeable {
+
+    public static final String ROLES = "roles";
+    public static final String GROUPS = "groups";
+    public static final String USERS = "users";
+    public static final String CLIENTS = "clients";
+    public static final String IDENTITY_PROVIDERS = "identityProviders";
+    public static final String AUTHENTICATION_FLOWS = "authenticationFlows";
+    public static final String CLIENT_SCOPES = "clientScopes";
+
+    private static final Map<String, Class<?>> SECTION_TYPES = Map.of(
+        ROLES, RoleRepresentation.class,
+        GROUPS, GroupRepresentation.class,
+        USERS, UserRepresentation.class,
+        CLIENTS, ClientRepresentation.class,
+        IDENTITY_PROVIDERS, IdentityProviderRepresentation.class,
+        AUTHENTICATION_FLOWS, AuthenticationFlowRepresentation.class,
+        CLIENT_SCOPES, ClientScopeRepresentation.class);
+
+    private final ObjectMapper objectMapper;
+    private final JsonParser parser;
+    private final ObjectNode settings;
+
+    private String section;
+    private boolean inSection;
+    private boolean pending;
+    private boolean inRoles;
+
+    public RealmExportReader(ObjectMapper objectMapper, InputStream in) throws IOException {
+        this.objectMapper = objectMapper;
+        this.parser = objectMapper.createParser(in);
+        this.settings = objectMapper.createObjectNode();
+
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IllegalArgumentException("Realm export must be a JSON object");
+        }
+    }
+
+    /**
+     * Advance to the next non-empty entity section, collecting realm settings on the way.
+     * Entities of the current section that were not read are skipped.
+     *
+     * @return the section name, one of the constants of this class, or null at the end of the export
+     */
+    public String nextSection() {
+        try {
+            skipRestOfSection();
+            while (true) {
+                JsonToken token = parser.nextToken();
+                if (token == null) {
+                    throw new IllegalArgumentException("Realm export ended unexpectedly");
+                }
+                if (token == JsonToken.END_OBJECT) {
+                    if (inRoles) {
+                        inRoles = false;
+                        continue;
+                    }
+                    return null;
+                }
+
+                String field = parser.currentName();
+                token = parser.nextToken();
+
+                if (inRoles) {
+                    // Only realm roles are converted; client roles are skipped
+                    if ("realm".equals(field) && token == JsonToken.START_ARRAY && startSection(ROLES)) {
+                        return ROLES;
+                    }
+                    parser.skipChildren();
+                } else if (ROLES.equals(field) && token == JsonToken.START_OBJECT) {
+                    inRoles = true;
+                } else if (SECTION_TYPES.containsKey(field) && token == JsonToken.START_ARRAY) {
+                    if (startSection(field)) {
+                        return field;
+                    }
+                } else if (token == JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                } else {
+                    settings.set(field, parser.readValueAsTree());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Entities of the current section, bound one at a time as the iterator advances.
+     * The iterable can only be traversed once.
+     */
+    public <T> Iterable<T> entities(Class<T> type) {
+        if (!inSection || SECTION_TYPES.get(section) != type) {
+            throw new IllegalStateException("Not positioned on a section of " + type.getSimpleName());
+        }
+        return () -> new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return advance();
+            }
+
+            @Override
+            public T next() {
+                if (!advance()) {
+                    throw new NoSuchElementException();
+                }
+                pending = false;
+                try {
+                    return parser.readValueAs(type);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Name of the realm, available once the {@code realm} field has been read.
+     */
+    public String getRealmName() {
+        return settings.path("realm").asText(null);
+    }
+
+    /**
+     * Realm-level settings read so far, without any entity collections.
+     */
+    public RealmRepresentation getRealm() {
+        try {
+            return objectMapper.treeToValue(settings, RealmRepresentation.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+
+    private boolean startSection(String name) {
+        section = name;
+        inSection = true;
+        pending = false;
+        if (advance()) {
+            return true;
+        }
+        inSection = false;
+        return false;
+    }
+
+    /**
+     * Move onto the next entity of the current section unless already there.
+     *
+     * @return false once the section's array has ended
+     */
+    private boolean advance() {
+        if (pending) {
+            return true;
+        }
+        if (!inSection) {
+            return false;
+        }
+        try {
+            JsonToken token = parser.nextToken();
+            while (token == JsonToken.VALUE_NULL) {
+                token = parser.nextToken();
+            }
+            if (token == JsonToken.END_ARRAY) {
+                inSection = false;
+                return false;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Expected an object in \"" + section + "\" but found " + token);
+            }
+            pending = true;
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void skipRestOfSection() throws IOException {
+        while (advance()) {
+            parser.skipChildren();
+            pending = false;
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package com.keycloak.forge.service;
+
+import com.keycloak.forge.model.RealmFingerprint;
+import com.keycloak.forge.model.ValidationResult;
+import com.keycloak.forge.service.RealmComparison.PathedGroup;
+import org.keycloak.representations.idm.ClientRepresentation;
+import org.keycloak.representations.idm.RealmRepresentation;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Canonical form and Merkle fingerprints of the realm content that validation compares.
+ *
+ * Canonicalization projects each entity onto its compared fields, which leaves out
+ * server-generated IDs, drops default values ({@code null}, {@code false}, empty strings
+ * and empty collections), orders map entries by key and turns collections into sorted,
+ * duplicate-free lists. Equal canonical forms hash equally however the realm was produced.
+ *
+ * The fingerprint is a three-level tree: a leaf hash per entity keyed by its natural key,
+ * or per field for the realm settings, a hash per component over its sorted leaves, and a
+ * root hash over the component hashes.
+ */
+final class RealmFingerprints {
+
+    static final String SETTINGS = "realm";
+
+    static final Map<String, Function<RealmRepresentation, Object>> SETTINGS_FIELDS = new LinkedHashMap<>();
+
+    static final Component<PathedGroup> GROUPS;
+    static final Component<UserRepresentation> USERS;
+    static final Component<RoleRepresentation> ROLES;
+    static final Component<ClientRepresentation> CLIENTS;
+
+    static {
+        SETTINGS_FIELDS.put("realm", RealmRepresentation::getRealm);
+        SETTINGS_FIELDS.put("enabled", RealmRepresentation::isEnabled);
+        SETTINGS_FIELDS.put("displayName", RealmRepresentation::getDisplayName);
+        SETTINGS_FIELDS.put("registrationAllowed", RealmRepresentation::isRegistrationAllowed);
+        SETTINGS_FIELDS.put("loginWithEmailAllowed", RealmRepresentation::isLoginWithEmailAllowed);
+        SETTINGS_FIELDS.put("duplicateEmailsAllowed", RealmRepresentation::isDuplicateEmailsAllowed);
+        SETTINGS_FIELDS.put("resetPasswordAllowed", RealmRepresentation::isResetPasswordAllowed);
+        SETTINGS_FIELDS.put("editUsernameAllowed", RealmRepresentation::isEditUsernameAllowed);
+        SETTINGS_FIELDS.put("ssoSessionIdleTimeout", RealmRepresentation::getSsoSessionIdleTimeout);
+        SETTINGS_FIELDS.put("ssoSessionMaxLifespan", RealmRepresentation::getSsoSessionMaxLifespan);
+        SETTINGS_FIELDS.put("accessTokenLifespan", RealmRepresentation::getAccessTokenLifespan);
+
+        Map<String, Function<PathedGroup, Object>> groupFields = new LinkedHashMap<>();
+        groupFields.put("name", group -> group.group().getName());
+        groupFields.put("attributes", group -> group.group().getAttributes());
+        groupFields.put("realmRoles", group -> group.group().getRealmRoles());
+        groupFields.put("clientRoles", group -> group.group().getClientRoles());
+        GROUPS = new Component<>("groups", "Group", PathedGroup::path, groupFields);
+
+        Map<String, Function<UserRepresentation, Object>> userFields = new LinkedHashMap<>();
+        userFields.put("email", UserRepresentation::getEmail);
+        userFields.put("firstName", UserRepresentation::getFirstName);
+        userFields.put("lastName", UserRepresentation::getLastName);
+        userFields.put("enabled", UserRepresentation::isEnabled);
+        userFields.put("emailVerified", UserRepresentation::isEmailVerified);
+        userFields.put("attributes", UserRepresentation::getAttributes);
+        USERS = new Component<>("users", "User", UserRepresentation::getUsername, userFields);
+
+        Map<String, Function<RoleRepresentation, Object>> roleFields = new LinkedHashMap<>();
+        roleFields.put("description", RoleRepresentation::getDescription);
+        roleFields.put("composite", RoleRepresentation::isComposite);
+        ROLES = new Component<>("roles", "Role", RoleRepresentation::getName, roleFields);
+
+        Map<String, Function<ClientRepresentation, Object>> clientFields = new LinkedHashMap<>();
+        clientFields.put("name", ClientRepresentation::getName);
+        clientFields.put("description", ClientRepresentation::getDescription);
+        clientFields.put("enabled", ClientRepresentation::isEnabled);
+        clientFields.put("protocol", ClientRepresentation::getProtocol);
+        clientFields.put("publicClient", ClientRepresentation::isPublicClient);
+        clientFields.put("bearerOnly", ClientRepresentation::isBearerOnly);
+        clientFields.put("standardFlowEnabled", ClientRepresentation::isStandardFlowEnabled);
+        clientFields.put("implicitFlowEnabled", ClientRepresentation::isImplicitFlowEnabled);
+        clientFields.put("directAccessGrantsEnabled", ClientRepresentation::isDirectAccessGrantsEnabled);
+        clientFields.put("serviceAccountsEnabled", ClientRepresentation::isServiceAccountsEnabled);
+        clientFields.put("rootUrl", ClientRepresentation::getRootUrl);
+        clientFields.put("baseUrl", ClientRepresentation::getBaseUrl);
+        clientFields.put("redirectUris", ClientRepresentation::getRedirectUris);
+        clientFields.put("webOrigins", ClientRepresentation::getWebOrigins);
+        CLIENTS = new Component<>("clients", "Client", ClientRepresentation::getClientId, clientFields);
+    }
+
+    private static final Map<String, String> ENTITY_NAMES = Map.of(
+            SETTINGS, "Realm setting",
+            GROUPS.name(), GROUPS.entityName(),
+            USERS.name(), USERS.entityName(),
+            ROLES.name(), ROLES.entityName(),
+            CLIENTS.name(), CLIENTS.entityName());
+
+    private RealmFingerprints() {
+    }
+
+    /**
+     * Fingerprint of a complete realm representation.
+     */
+    static RealmFingerprint of(RealmRepresentation realm) {
+        Map<String, RealmFingerprint.ComponentFingerprint> components = new LinkedHashMap<>();
+        components.put(SETTINGS, component(settings(realm)));
+        components.put(GROUPS.name(), component(GROUPS.hashes(PathedGroup.flatten(realm.getGroups()))));
+        components.put(USERS.name(), component(USERS.hashes(orEmpty(realm.getUsers()))));
+        components.put(ROLES.name(), component(ROLES.hashes(realmRoles(realm))));
+        components.put(CLIENTS.name(), component(CLIENTS.hashes(orEmpty(realm.getClients()))));
+        return of(realm.getRealm(), components);
+    }
+
+    /**
+     * Fingerprint over already hashed components.
+     */
+    static RealmFingerprint of(String realm, Map<String, RealmFingerprint.ComponentFingerprint> components) {
+        Map<String, String> componentHashes = new TreeMap<>();
+        components.forEach((name, component) -> componentHashes.put(name, component.getHash()));
+        return RealmFingerprint.builder()
+                .realm(realm)
+                .root(ContentHash.of(componentHashes))
+                .components(components)
+                .build();
+    }
+
+    /**
+     * @param entities entity hashes by key, sorted by key
+     */
+    static RealmFingerprint.ComponentFingerprint component(TreeMap<String, String> entities) {
+        return RealmFingerprint.ComponentFingerprint.builder()
+                .hash(ContentHash.of(entities))
+                .entities(entities)
+                .build();
+    }
+
+    /**
+     * Leaf hashes of the realm settings, by field name.
+     */
+    static TreeMap<String, String> settings(RealmRepresentation realm) {
+        TreeMap<String, String> hashes = new TreeMap<>();
+        SETTINGS_FIELDS.forEach((field, getter) -> hashes.put(field, ContentHash.of(canonical(getter.apply(realm)))));
+        return hashes;
+    }
+
+    /**
+     * Compare two fingerprints, e.g. a stored baseline against a fresh one. Equal roots return
+     * at once; otherwise only the components whose hashes differ are compared entity by entity.
+     * Fingerprints carry no field values, so changed entities are reported without field details.
+     */
+    static ValidationResult compare(RealmFingerprint baseline, RealmFingerprint current) {
+        boolean identical = Objects.equals(baseline.getRoot(), current.getRoot());
+        List<String> differences = new ArrayList<>();
+        Map<String, Double> componentAccuracy = new HashMap<>();
+        Map<String, ValidationResult.ComponentComparison> detailedComparison = new LinkedHashMap<>();
+        int totalElements = 0;
+        int matchedElements = 0;
+
+        Set<String> componentNames = new LinkedHashSet<>(baseline.getComponents().keySet());
+        componentNames.addAll(current.getComponents().keySet());
+        for (String name : componentNames) {
+            Map<String, String> baselineEntities = entities(baseline.getComponents().get(name));
+            Map<String, String> currentEntities = entities(current.getComponents().get(name));
+            List<String> missing = new ArrayList<>();
+            List<String> extra = new ArrayList<>();
+            List<String> modified = new ArrayList<>();
+            int unchanged = baselineEntities.size();
+
+            if (!identical && !Objects.equals(hash(baseline, name), hash(current, name))) {
+                String entityName = ENTITY_NAMES.getOrDefault(name, name);
+                unchanged = 0;
+                for (Map.Entry<String, String> entity : baselineEntities.entrySet()) {
+                    String currentHash = currentEntities.get(entity.getKey());
+                    if (currentHash == null) {
+                        missing.add(entity.getKey());
+                        differences.add(String.format("%s '%s' is missing from the current realm", entityName, entity.getKey()));
+                    } else if (!currentHash.equals(entity.getValue())) {
+                        modified.add(entity.getKey());
+                        differences.add(String.format("%s '%s' differs from the baseline", entityName, entity.getKey()));
+                    } else {
+                        unchanged++;
+                    }
+                }
+                for (String key : currentEntities.keySet()) {
+                    if (!baselineEntities.containsKey(key)) {
+                        extra.add(key);
+                        differences.add(String.format("%s '%s' is not in the baseline", entityName, key));
+                    }
+                }
+            }
+
+            int compared = baselineEntities.size() + extra.size();
+            double accuracy = compared == 0 ? 100.0 : (double) unchanged / compared * 100.0;
+            componentAccuracy.put(name, accuracy);
+            detailedComparison.put(name, ValidationResult.ComponentComparison.builder()
+                    .componentType(name)
+                    .originalCount(baselineEntities.size())
+                    .exportedCount(currentEntities.size())
+                    .accuracy(accuracy)
+                    .missingElements(missing)
+                    .extraElements(extra)
+                    .modifiedElements(modified)
+                    .build());
+            totalElements += baselineEntities.size();
+            matchedElements += unchanged;
+        }
+
+        double overallAccuracy = componentAccuracy.values().stream()
+                .mapToDouble(Double::doubleValue)
+                .average()
+                .orElse(100.0);
+
+        return ValidationResult.builder()
+                .valid(differences.isEmpty())
+                .accuracyPercentage(overallAccuracy)
+                .differences(differences)
+                .warnings(new ArrayList<>())
+                .componentAccuracy(componentAccuracy)
+                .totalElements(totalElements)
+                .matchedElements(matchedElements)
+                .detailedComparison(detailedComparison)
+                .originalFingerprint(baseline.getRoot())
+                .exportedFingerprint(current.getRoot())
+                .build();
+    }
+
+    /**
+     * Canonical form of a compared value: defaults become {@code null}, maps are ordered by key,
+     * and collections become sorted lists without duplicates.
+     */
+    static Object canonical(Object value) {
+        if (value == null || Boolean.FALSE.equals(value) || "".equals(value)) {
+            return null;
+        }
+        if (value instanceof Collection<?> collection) {
+            Set<Object> elements = new LinkedHashSet<>();
+            for (Object element : collection) {
+                Object canonicalElement = canonical(element);
+                if (canonicalElement != null) {
+                    elements.add(canonicalElement);
+                }
+            }
+            if (elements.isEmpty()) {
+                return null;
+            }
+            List<Object> sorted = new ArrayList<>(elements);
+            sorted.sort(Comparator.comparing(String::valueOf));
+            return sorted;
+        }
+        if (value instanceof Map<?, ?> map) {
+            Map<String, Object> sorted = new TreeMap<>();
+            map.forEach((key, element) -> {
+                Object canonicalElement = canonical(element);
+                if (canonicalElement != null) {
+                    sorted.put(String.valueOf(key), canonicalElement);
+                }
+            });
+            return sorted.isEmpty() ? null : sorted;
+        }
+        return value;
+    }
+
+    static List<RoleRepresentation> realmRoles(RealmRepresentation realm) {
+        return realm.getRoles() != null ? orEmpty(realm.getRoles().getRealm()) : List.of();
+    }
+
+    static <T> List<T> orEmpty(List<T> list) {
+        return list != null ? list : List.of();
+    }
+
+    private static Map<String, String> entities(RealmFingerprint.ComponentFingerprint component) {
+        return component != null && component.getEntities() != null ? component.getEntities() : Map.of();
+    }
+
+    private static String hash(RealmFingerprint fingerprint, String component) {
+        RealmFingerprint.ComponentFingerprint componentFingerprint = fingerprint.getComponents().get(component);
+        return componentFingerprint != null ? componentFingerprint.getHash() : null;
+    }
+
+    /**
+     * A compared component: its entities' natural key and the fields that make up their canonical form.
+     *
+     * @param name       name of the component, e.g. {@code users}
+     * @param entityName singular display name of an entity, e.g. {@code User}
+     * @param fields     compared fields by name, in report order
+     */
+    record Component<T>(String name, String entityName, Function<T, String> naturalKey,
+                        Map<String, Function<T, Object>> fields) {
+
+        /**
+         * Leaf hash of the entity's canonical form.
+         */
+        String hash(T entity) {
+            Map<String, Object> canonicalForm = new TreeMap<>();
+            fields.forEach((field, getter) -> {
+                Object value = canonical(getter.apply(entity));
+                if (value != null) {
+                    canonicalForm.put(field, value);
+                }
+            });
+            return ContentHash.of(canonicalForm);
+        }
+
+        TreeMap<String, String> hashes(Iterable<T> entities) {
+            TreeMap<String, String> hashes = new TreeMap<>();
+            for (T entity : entities) {
+                hashes.put(naturalKey.apply(entity), hash(entity));
+            }
+            return hashes;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.keycloak.forge.service;
+
+import com.keycloak.forge.hcl.HclWriter;
+import com.keycloak.forge.model.ConversionResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * {@link TerraformFileSink} that renders every file into an in-memory
+ * {@link ConversionResult.TerraformFile}, in the order the files are written.
+ * The exact UTF-8 size and SHA-256 digest of each file are computed while it is written.
+ */
+public class TerraformFileCollector implements TerraformFileSink {
+
+    private final List<ConversionResult.TerraformFile> files = new ArrayList<>();
+
+    @Override
+    public void file(String filePath, String type, Consumer<HclWriter> content) {
+        StringBuilder out = new StringBuilder(1024);
+        ContentDigest digest = new ContentDigest(out);
+        content.accept(new HclWriter(digest));
+        files.add(ConversionResult.TerraformFile.builder()
+            .filePath(filePath)
+            .content(out.toString())
+            .type(type)
+            .size(digest.size())
+            .digest(digest.sha256())
+            .build());
+    }
+
+    public List<ConversionResult.TerraformFile> getFiles() {
+        return files;
+    }
+}
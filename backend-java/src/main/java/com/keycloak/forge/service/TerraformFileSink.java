@@ -0,0 +1,26 @@
+package com.keycloak.forge.service;
+
+import com.keycloak.forge.hcl.HclWriter;
+
+import java.util.function.Consumer;
+
+/**
+ * Destination for generated Terraform/Terragrunt files.
+ *
+ * Generators hand each file to the sink together with a callback that writes
+ * its content, so a sink decides where the bytes go (an in-memory
+ * {@code TerraformFile}, a ZIP entry, ...) without the generator holding the
+ * whole output.
+ */
+@FunctionalInterface
+public interface TerraformFileSink {
+
+    /**
+     * Write a single file.
+     *
+     * @param filePath path of the file relative to the output root
+     * @param type     file type: main, variables, outputs or terragrunt
+     * @param content  callback writing the file content
+     */
+    void file(String filePath, String type, Consumer<HclWriter> content);
+}
@@ -1,1284 +1,1626 @@
 package com.keycloak.forge.service;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.keycloak.forge.hcl.HclWriter;
 import com.keycloak.forge.model.ConversionRequest;
 import com.keycloak.forge.model.ConversionResult;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.keycloak.representations.idm.*;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.zip.CRC32;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class TerraformGeneratorService {
     
+    /**
+     * Groups a subtree needs before it is worth rendering in parallel with its siblings.
+     */
+    static final int PARALLEL_GROUP_SUBTREE_SIZE = 256;
+    
+    /**
+     * Output format writing entity data as *.auto.tfvars.json for the reusable modules
+     */
+    static final String TFVARS = "tfvars";
+    
+    /**
+     * Output format writing every Terraform file in JSON syntax, as *.tf.json
+     */
+    static final String TF_JSON = "tf-json";
+    
+    /**
+     * Group levels modules/keycloak-groups can create: top-level groups and their direct subgroups
+     */
+    private static final int TFVARS_GROUP_DEPTH = 2;
+    
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    
+    private static final Set<String> IDP_DEDICATED_CONFIG_KEYS = 
+        Set.of("authorizationUrl", "tokenUrl", "clientId", "clientSecret");
+    
+    private final GenerationSnapshots generationSnapshots = new GenerationSnapshots();
+    
+    private final GenerationMetrics metrics;
+    
+    /**
+     * Generator whose meters go to a private registry, e.g. in tests and benchmarks
+     */
+    public TerraformGeneratorService() {
+        this(new SimpleMeterRegistry());
+    }
+    
+    @Autowired
+    public TerraformGeneratorService(MeterRegistry meterRegistry) {
+        this.metrics = new GenerationMetrics(meterRegistry);
+    }
+    
     public ConversionResult generateTerragruntModules(RealmRepresentation realm, ConversionRequest.ConversionOptions options) {
+        return generateTerragruntModules(realm, options, GenerationListener.NONE);
+    }
+    
+    /**
+     * Generate all Terragrunt modules for the realm, reporting progress per module to the listener.
+     */
+    public ConversionResult generateTerragruntModules(RealmRepresentation realm, ConversionRequest.ConversionOptions options,
+                                                      GenerationListener listener) {
+        long startTime = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        boolean parallel = options != null && options.isParallelGeneration();
+        log.info("Generating comprehensive Terragrunt modules for realm: {}{}", realm.getRealm(), 
+            parallel ? " in parallel (" + options.getGenerationExecutor() + ")" : "");
+        
+        TerraformSymbolTable symbols = new TerraformSymbolTable();
+        symbols.declare(realm);
+        ModuleDependencyGraph graph = new ModuleDependencyGraph();
+        List<ModuleGeneration> modules = planModules(realm, options, symbols, graph);
+        listener.modulesPlanned(modules.stream().map(ModuleGeneration::name).toList());
+        
+        List<ConversionResult.TerraformFile> files;
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        Map<String, Object> moduleStatistics = new LinkedHashMap<>();
+        
+        if (options != null && options.isIncrementalGeneration()) {
+            files = generateModulesIncrementally(realm, modules, graph, options, symbols.collisionFingerprint(), 
+                statistics, moduleStatistics, listener);
+        } else {
+            files = runModuleTasks(realm.getRealm(), modules, module -> renderModule(module, EntityFragments.DIRECT), 
+                options, listener, moduleStatistics);
+        }
+        
+        long durationNanos = System.nanoTime() - startNanos;
+        metrics.generation(realm.getRealm(), durationNanos);
+        statistics.put("entities", modules.stream().mapToInt(ModuleGeneration::entities).sum());
+        statistics.put("bytes", files.stream().mapToLong(ConversionResult.TerraformFile::getSize).sum());
+        statistics.put("modules", moduleStatistics);
+        statistics.put("dependencyGraph", graph.statistics());
+        log.info("Generated {} Terragrunt files for realm: {} in {} ms", files.size(), realm.getRealm(), 
+            TimeUnit.NANOSECONDS.toMillis(durationNanos));
+        
+        return ConversionResult.builder()
+            .success(true)
+            .files(files)
+            .metadata(ConversionResult.ConversionMetadata.builder()
+                .startTime(startTime)
+                .endTime(startTime + TimeUnit.NANOSECONDS.toMillis(durationNanos))
+                .duration(TimeUnit.NANOSECONDS.toMillis(durationNanos))
+                .filesGenerated(files.size())
+                .statistics(statistics)
+                .build())
+            .build();
+    }
+    
+    /**
+     * Generate all Terragrunt modules for the realm, handing each file to the sink as soon as it is written.
+     *
+     * @return number of files written
+     */
+    public int writeTerragruntModules(RealmRepresentation realm, ConversionRequest.ConversionOptions options, TerraformFileSink sink) {
         log.info("Generating comprehensive Terragrunt modules for realm: {}", realm.getRealm());
         
+        AtomicInteger fileCount = new AtomicInteger();
+        TerraformFileSink countingSink = (filePath, type, content) -> {
+            sink.file(filePath, type, content);
+            fileCount.incrementAndGet();
+        };
+        
+        TerraformSymbolTable symbols = new TerraformSymbolTable();
+        symbols.declare(realm);
+        for (ModuleGeneration module : planModules(realm, options, symbols, new ModuleDependencyGraph())) {
+            module.generator().accept(countingSink, EntityFragments.DIRECT);
+        }
+        
+        log.info("Generated {} Terragrunt files for realm: {}", fileCount.get(), realm.getRealm());
+        
+        return fileCount.get();
+    }
+    
+    /**
+     * Generate all Terragrunt modules while the realm export is being read. Each role, group, user,
+     * client, identity provider, authentication flow and client scope is rendered as soon as it is
+     * parsed, so memory is bounded by the largest single entity instead of the whole realm.
+     *
+     * Modules are written in the order their collections appear in the export, followed by the
+     * Terragrunt configurations of all units, whose dependencies are only known once every
+     * collection has been read, the realm module and the root configuration. Count-based user sharding is supported; hash-based
+     * sharding needs every user up front and is rejected.
+     *
+     * @return number of files written
+     */
+    public int writeTerragruntModules(RealmExportReader reader, ConversionRequest.ConversionOptions options, TerraformFileSink sink) {
+        String sharding = options != null ? options.getUserSharding() : null;
+        if ("hash".equalsIgnoreCase(sharding)) {
+            throw new IllegalArgumentException("Hash user sharding is not supported for streaming conversion");
+        }
+        if (isTfvarsOutput(options)) {
+            throw new IllegalArgumentException("tfvars output is not supported for streaming conversion");
+        }
+        
+        AtomicInteger fileCount = new AtomicInteger();
+        TerraformFileSink output = isTfJsonOutput(options) ? new TfJsonFileSink(sink) : sink;
+        TerraformFileSink countingSink = (filePath, type, content) -> {
+            output.file(filePath, type, content);
+            fileCount.incrementAndGet();
+        };
+        
+        TerraformSymbolTable symbols = new TerraformSymbolTable();
+        ModuleDependencyGraph graph = new ModuleDependencyGraph();
+        // A collection can be read before the one it references, whose names are then all rendered
+        References streamed = (unit, name) -> !graph.units().contains(unit) || graph.defines(unit, name);
+        String section;
+        while ((section = reader.nextSection()) != null) {
+            String realmName = reader.getRealmName();
+            if (realmName == null) {
+                throw new IllegalArgumentException("Realm export must declare \"realm\" before its collections for streaming conversion");
+            }
+            String baseDir = realmDirectory(realmName);
+            
+            switch (section) {
+                case RealmExportReader.ROLES -> generateRolesModule(
+                    graph.recording("roles", reader.entities(RoleRepresentation.class)), baseDir + "/roles", 
+                    countingSink, EntityFragments.DIRECT, symbols);
+                case RealmExportReader.GROUPS -> generateGroupsModule(
+                    graph.recording("groups", reader.entities(GroupRepresentation.class)), baseDir + "/groups", options, 
+                    countingSink, EntityFragments.DIRECT, symbols, streamed);
+                case RealmExportReader.USERS -> streamUsersModules(
+                    reader.entities(UserRepresentation.class), baseDir, options, graph, countingSink, symbols, streamed);
+                case RealmExportReader.CLIENTS -> generateClientsModule(
+                    graph.recording("clients", reader.entities(ClientRepresentation.class)), baseDir + "/clients", 
+                    countingSink, EntityFragments.DIRECT, symbols);
+                case RealmExportReader.IDENTITY_PROVIDERS -> generateIdentityProvidersModule(
+                    graph.recording("identity-providers", reader.entities(IdentityProviderRepresentation.class)), 
+                    baseDir + "/identity-providers", countingSink, EntityFragments.DIRECT, symbols);
+                case RealmExportReader.AUTHENTICATION_FLOWS -> generateAuthenticationFlowsModule(
+                    graph.recording("authentication-flows", reader.entities(AuthenticationFlowRepresentation.class)), 
+                    baseDir + "/authentication-flows", countingSink, EntityFragments.DIRECT, symbols);
+                case RealmExportReader.CLIENT_SCOPES -> generateClientScopesModule(
+                    graph.recording("client-scopes", reader.entities(ClientScopeRepresentation.class)), 
+                    baseDir + "/client-scopes", countingSink, EntityFragments.DIRECT, symbols);
+                default -> throw new IllegalStateException("Unexpected section: " + section);
+            }
+        }
+        
+        RealmRepresentation realm = reader.getRealm();
+        if (realm.getRealm() == null) {
+            throw new IllegalArgumentException("Realm export does not declare \"realm\"");
+        }
+        String baseDir = realmDirectory(realm.getRealm());
+        List<String> units = List.copyOf(graph.units());
+        for (String unit : units) {
+            // Undefined names were only skipped when their collection had been read before the unit's
+            Map<String, Set<String>> rendered = new LinkedHashMap<>();
+            graph.undefinedReferences(unit).forEach((target, names) -> {
+                int targetIndex = units.indexOf(target);
+                boolean skipped = targetIndex >= 0 && targetIndex < units.indexOf(unit);
+                warnUndefinedReferences(realm.getRealm(), unit, target, names, skipped ? "skipped" : "declared without input");
+                if (!skipped) {
+                    rendered.put(target, names);
+                }
+            });
+            generateUnitConfig(baseDir, unit, graph, rendered, countingSink, symbols);
+        }
+        graph.unit(ModuleDependencyGraph.REALM, List.of(realm));
+        generateRealmModule(realm, baseDir + "/realm", countingSink);
+        countingSink.file(baseDir + "/terragrunt.hcl", "terragrunt", hcl -> generateRootTerragruntContent(hcl, realm.getRealm(), graph));
+        
+        log.info("Streamed {} Terragrunt files for realm: {}", fileCount.get(), realm.getRealm());
+        
+        return fileCount.get();
+    }
+    
+    /**
+     * Write the users section either as one module or, with count sharding, as consecutive shards
+     * that are each closed once they hold the configured number of users.
+     */
+    private void streamUsersModules(Iterable<UserRepresentation> users, String baseDir, 
+                                    ConversionRequest.ConversionOptions options, ModuleDependencyGraph graph, 
+                                    TerraformFileSink sink, TerraformSymbolTable symbols, References streamed) {
+        String strategy = options != null ? options.getUserSharding() : null;
+        if (strategy == null || "none".equalsIgnoreCase(strategy)) {
+            generateUsersModule(graph.recording("users", users), baseDir + "/users", sink, EntityFragments.DIRECT, symbols, 
+                streamed);
+            return;
+        }
+        if (!"count".equalsIgnoreCase(strategy)) {
+            throw new IllegalArgumentException("Unknown user sharding strategy: " + strategy);
+        }
+        
+        int shardSize = Math.max(1, options.getUsersPerShard());
+        Iterator<UserRepresentation> remaining = users.iterator();
+        for (int shard = 0; remaining.hasNext(); shard++) {
+            Iterable<UserRepresentation> shardUsers = () -> new Iterator<>() {
+                private int taken;
+                
+                @Override
+                public boolean hasNext() {
+                    return taken < shardSize && remaining.hasNext();
+                }
+                
+                @Override
+                public UserRepresentation next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    taken++;
+                    return remaining.next();
+                }
+            };
+            String shardName = userShardName(shard, 0);
+            generateUsersModule(graph.recording(shardName, shardUsers), baseDir + "/" + shardName, sink, 
+                EntityFragments.DIRECT, symbols, streamed);
+        }
+    }
+    
+    /**
+     * Regenerate only the modules whose input slice changed since the last conversion of the realm.
+     * Each module's slice is fingerprinted; unchanged modules return the previously generated files
+     * by reference. Within entity modules only changed entities are rendered again, the others are
+     * spliced in from the previous fragments. Reuse and regeneration counts are added to the statistics,
+     * per-module timings and sizes to the module statistics.
+     */
+    private List<ConversionResult.TerraformFile> generateModulesIncrementally(RealmRepresentation realm, 
+                                                                             List<ModuleGeneration> modules,
+                                                                             ModuleDependencyGraph graph,
+                                                                             ConversionRequest.ConversionOptions options,
+                                                                             String collisionFingerprint,
+                                                                             Map<String, Object> statistics,
+                                                                             Map<String, Object> moduleStatistics,
+                                                                             GenerationListener listener) {
+        // Files and fragments of one output format or module source cannot be reused for another
+        String snapshotKey = realm.getRealm() + "/" + options.getOutputFormat() + "/" + options.getModuleSource();
+        Map<String, GenerationSnapshots.ModuleSnapshot> previous = generationSnapshots.get(snapshotKey);
+        Map<String, GenerationSnapshots.ModuleSnapshot> current = new ConcurrentHashMap<>();
+        AtomicInteger regenerated = new AtomicInteger();
+        AtomicInteger entitiesRendered = new AtomicInteger();
+        AtomicInteger entitiesReused = new AtomicInteger();
+        
+        List<ConversionResult.TerraformFile> files = runModuleTasks(realm.getRealm(), modules, module -> {
+            GenerationSnapshots.ModuleSnapshot snapshot = previous.get(module.name());
+            if (module.fingerprint() != null) {
+                String fingerprint = module.fingerprint().get();
+                if (snapshot == null || !snapshot.fingerprint().equals(fingerprint)) {
+                    snapshot = new GenerationSnapshots.ModuleSnapshot(
+                        fingerprint, renderModule(module, EntityFragments.DIRECT), Map.of());
+                    regenerated.incrementAndGet();
+                }
+            } else {
+                // Groups and users only render the references that resolve
+                Map<String, Set<String>> references = graph.references(module.name());
+                EntityFragments fragments = new EntityFragments(snapshot != null ? snapshot.fragments() : Map.of(), 
+                    references.isEmpty() ? collisionFingerprint : ContentHash.of(collisionFingerprint, references));
+                List<ConversionResult.TerraformFile> moduleFiles = renderModule(module, fragments);
+                // The unit's Terragrunt configuration also depends on what other modules define
+                String fingerprint = ContentHash.of(fragments.fingerprint(), references);
+                if (snapshot != null && snapshot.fingerprint().equals(fingerprint)) {
+                    moduleFiles = snapshot.files();
+                } else {
+                    regenerated.incrementAndGet();
+                }
+                snapshot = new GenerationSnapshots.ModuleSnapshot(fingerprint, moduleFiles, fragments.fragments());
+                entitiesRendered.addAndGet(fragments.rendered());
+                entitiesReused.addAndGet(fragments.reused());
+            }
+            current.put(module.name(), snapshot);
+            return snapshot.files();
+        }, options, listener, moduleStatistics);
+        generationSnapshots.put(snapshotKey, current);
+        
+        statistics.put("modulesRegenerated", regenerated.get());
+        statistics.put("modulesReused", modules.size() - regenerated.get());
+        statistics.put("entitiesRendered", entitiesRendered.get());
+        statistics.put("entitiesReused", entitiesReused.get());
+        log.info("Incrementally generated realm: {}. Regenerated {} of {} modules", 
+            realm.getRealm(), regenerated.get(), modules.size());
+        
+        return files;
+    }
+    
+    private List<ConversionResult.TerraformFile> renderModule(ModuleGeneration module, EntityFragments fragments) {
+        TerraformFileCollector collector = new TerraformFileCollector();
+        module.generator().accept(collector, fragments);
+        return collector.getFiles();
+    }
+    
+    /**
+     * Run the generation of every module, concurrently when parallel generation is enabled, and
+     * concatenate the files in module order so the result is identical to sequential generation.
+     * Each module is timed and measured into the meters and, in module order, the module statistics.
+     */
+    private List<ConversionResult.TerraformFile> runModuleTasks(String realmName, List<ModuleGeneration> modules,
+                                                                Function<ModuleGeneration, List<ConversionResult.TerraformFile>> generation,
+                                                                ConversionRequest.ConversionOptions options,
+                                                                GenerationListener listener,
+                                                                Map<String, Object> moduleStatistics) {
+        List<Supplier<ModuleRun>> tasks = new ArrayList<>();
+        for (ModuleGeneration module : modules) {
+            tasks.add(() -> {
+                listener.moduleStarted(module.name());
+                long startNanos = System.nanoTime();
+                List<ConversionResult.TerraformFile> moduleFiles = generation.apply(module);
+                ModuleRun run = new ModuleRun(module, moduleFiles, System.nanoTime() - startNanos);
+                listener.moduleCompleted(module.name(), moduleFiles.size());
+                return run;
+            });
+        }
+        
+        List<ModuleRun> runs;
+        if (options != null && options.isParallelGeneration()) {
+            runs = GenerationExecutors.runAll(tasks, options.getGenerationExecutor());
+        } else {
+            runs = tasks.stream().map(Supplier::get).toList();
+        }
+        
         List<ConversionResult.TerraformFile> files = new ArrayList<>();
-        String baseDir = "keycloak/realms/" + realm.getRealm();
+        for (ModuleRun run : runs) {
+            long bytes = run.files().stream().mapToLong(ConversionResult.TerraformFile::getSize).sum();
+            metrics.module(realmName, run.module().name(), run.durationNanos(), run.module().entities(), bytes);
+            
+            Map<String, Object> module = new LinkedHashMap<>();
+            module.put("durationMs", TimeUnit.NANOSECONDS.toMillis(run.durationNanos()));
+            module.put("files", run.files().size());
+            module.put("entities", run.module().entities());
+            module.put("bytes", bytes);
+            moduleStatistics.put(run.module().name(), module);
+            files.addAll(run.files());
+        }
+        return files;
+    }
+    
+    private record ModuleRun(ModuleGeneration module, List<ConversionResult.TerraformFile> files, long durationNanos) {
+    }
+    
+    /**
+     * Output directory of a realm. The realm name becomes a single path segment, so names
+     * that could escape the output root, such as {@code ../x}, are rejected.
+     *
+     * @throws IllegalArgumentException if the name is empty, {@code .} or {@code ..}, or contains a path separator
+     */
+    public static String realmDirectory(String realmName) {
+        if (realmName == null || realmName.isBlank() || realmName.equals(".") || realmName.equals("..")
+                || realmName.indexOf('/') >= 0 || realmName.indexOf('\\') >= 0) {
+            throw new IllegalArgumentException("Realm name cannot be used as a directory name: " + realmName);
+        }
+        return "keycloak/realms/" + realmName;
+    }
+    
+    /**
+     * Modules to generate for the realm, in output order. Modules only read the realm,
+     * so they can run in any order or concurrently. The entities of every Terragrunt unit
+     * are recorded in the dependency graph while planning, so each unit's dependencies are
+     * known before any module is generated.
+     */
+    private List<ModuleGeneration> planModules(RealmRepresentation realm, ConversionRequest.ConversionOptions options, 
+                                               TerraformSymbolTable symbols, ModuleDependencyGraph graph) {
+        List<ModuleGeneration> modules = new ArrayList<>();
+        String baseDir = realmDirectory(realm.getRealm());
+        
+        boolean tfvars = isTfvarsOutput(options);
+        String moduleSource = tfvars ? moduleSource(options) : null;
         
         // Generate core realm module
-        files.addAll(generateRealmModule(realm, baseDir + "/realm"));
+        graph.unit(ModuleDependencyGraph.REALM, List.of(realm));
+        modules.add(ModuleGeneration.settings("realm", 1, () -> ContentHash.ofRealmSettings(realm), 
+            tfvars ? sink -> generateRealmTfvarsModule(realm, baseDir + "/realm", moduleSource, sink)
+                   : sink -> generateRealmModule(realm, baseDir + "/realm", sink)));
         
         // Generate roles module
         if (realm.getRoles() != null && realm.getRoles().getRealm() != null && !realm.getRoles().getRealm().isEmpty()) {
-            files.addAll(generateRolesModule(realm, baseDir + "/roles"));
+            List<RoleRepresentation> roles = realm.getRoles().getRealm();
+            graph.unit("roles", roles);
+            modules.add(unitModule("roles", roles.size(), baseDir, graph, symbols, 
+                (sink, fragments) -> generateRolesModule(roles, baseDir + "/roles", sink, fragments, symbols)));
         }
         
         // Generate groups module
         if (realm.getGroups() != null && !realm.getGroups().isEmpty()) {
-            files.addAll(generateGroupsModule(realm, baseDir + "/groups"));
+            List<GroupRepresentation> groups = realm.getGroups();
+            graph.unit("groups", groups);
+            if (tfvars && groupDepth(groups) <= TFVARS_GROUP_DEPTH) {
+                modules.add(ModuleGeneration.entities("groups", countGroups(groups), 
+                    (sink, fragments) -> generateGroupsTfvarsModule(groups, baseDir + "/groups", graph.dependencies("groups"), 
+                        moduleSource, sink, symbols, graph::defines)));
+            } else {
+                if (tfvars) {
+                    log.info("Groups of realm {} nest deeper than modules/keycloak-groups supports, rendering them as HCL", 
+                        realm.getRealm());
+                }
+                modules.add(unitModule("groups", countGroups(groups), baseDir, graph, symbols, 
+                    (sink, fragments) -> generateGroupsModule(groups, baseDir + "/groups", options, sink, fragments, symbols, 
+                        graph::defines)));
+            }
         }
         
         // Generate users module
         if (realm.getUsers() != null && !realm.getUsers().isEmpty()) {
-            files.addAll(generateUsersModule(realm, baseDir + "/users"));
+            Map<String, List<UserRepresentation>> shards = partitionUsers(realm.getUsers(), options);
+            if (shards == null) {
+                graph.unit("users", realm.getUsers());
+                modules.add(unitModule("users", realm.getUsers().size(), baseDir, graph, symbols, 
+                    (sink, fragments) -> generateUsersModule(realm.getUsers(), baseDir + "/users", sink, fragments, symbols, 
+                        graph::defines)));
+            } else {
+                shards.forEach((shardName, shard) -> {
+                    graph.unit(shardName, shard);
+                    modules.add(unitModule(shardName, shard.size(), baseDir, graph, symbols, 
+                        (sink, fragments) -> generateUsersModule(shard, baseDir + "/" + shardName, sink, fragments, symbols, 
+                            graph::defines)));
+                });
+            }
         }
         
         // Generate clients module
         if (realm.getClients() != null && !realm.getClients().isEmpty()) {
-            files.addAll(generateClientsModule(realm, baseDir + "/clients"));
+            graph.unit("clients", realm.getClients());
+            modules.add(unitModule("clients", realm.getClients().size(), baseDir, graph, symbols, 
+                (sink, fragments) -> generateClientsModule(realm.getClients(), baseDir + "/clients", sink, fragments, symbols)));
         }
         
         // Generate identity providers module
         if (realm.getIdentityProviders() != null && !realm.getIdentityProviders().isEmpty()) {
-            files.addAll(generateIdentityProvidersModule(realm, baseDir + "/identity-providers"));
+            graph.unit("identity-providers", realm.getIdentityProviders());
+            modules.add(unitModule("identity-providers", realm.getIdentityProviders().size(), baseDir, graph, symbols, 
+                (sink, fragments) -> generateIdentityProvidersModule(realm.getIdentityProviders(), baseDir + "/identity-providers", sink, fragments, symbols)));
         }
         
         // Generate authentication flows module
         if (realm.getAuthenticationFlows() != null && !realm.getAuthenticationFlows().isEmpty()) {
-            files.addAll(generateAuthenticationFlowsModule(realm, baseDir + "/authentication-flows"));
+            graph.unit("authentication-flows", realm.getAuthenticationFlows());
+            modules.add(unitModule("authentication-flows", realm.getAuthenticationFlows().size(), baseDir, graph, symbols, 
+                (sink, fragments) -> generateAuthenticationFlowsModule(realm.getAuthenticationFlows(), baseDir + "/authentication-flows", sink, fragments, symbols)));
         }
         
         // Generate client scopes module
         if (realm.getClientScopes() != null && !realm.getClientScopes().isEmpty()) {
-            files.addAll(generateClientScopesModule(realm, baseDir + "/client-scopes"));
+            graph.unit("client-scopes", realm.getClientScopes());
+            modules.add(unitModule("client-scopes", realm.getClientScopes().size(), baseDir, graph, symbols, 
+                (sink, fragments) -> generateClientScopesModule(realm.getClientScopes(), baseDir + "/client-scopes", sink, fragments, symbols)));
         }
         
-        // Generate root terragrunt configuration
-        files.add(generateRootTerragruntConfig(realm, baseDir));
+        // Generate root terragrunt configuration, documenting the dependency graph of the units above
+        modules.add(ModuleGeneration.settings("root", 0, () -> ContentHash.of(realm.getRealm(), graph.statistics()), 
+            sink -> sink.file(baseDir + "/terragrunt.hcl", "terragrunt", hcl -> generateRootTerragruntContent(hcl, realm.getRealm(), graph))));
         
-        log.info("Generated {} Terragrunt files for realm: {}", files.size(), realm.getRealm());
+        for (String unit : graph.units()) {
+            graph.undefinedReferences(unit).forEach((target, names) -> 
+                warnUndefinedReferences(realm.getRealm(), unit, target, names, "skipped"));
+        }
         
-        return ConversionResult.builder()
-            .success(true)
-            .files(files)
-            .metadata(ConversionResult.ConversionMetadata.builder()
-                .filesGenerated(files.size())
-                .build())
-            .build();
+        if (isTfJsonOutput(options)) {
+            return modules.stream().map(module -> module.writingTo(TfJsonFileSink::new)).toList();
+        }
+        return modules;
     }
     
-    private List<ConversionResult.TerraformFile> generateRealmModule(RealmRepresentation realm, String baseDir) {
-        List<ConversionResult.TerraformFile> files = new ArrayList<>();
-        
-        // Main realm configuration
-        files.add(ConversionResult.TerraformFile.builder()
-            .filePath(baseDir + "/main.tf")
-            .content(generateRealmMainContent(realm))
-            .type("main")
-            .size(2000L)
-            .build());
-            
-        // Variables
-        files.add(ConversionResult.TerraformFile.builder()
-            .filePath(baseDir + "/variables.tf")
-            .content(generateRealmVariablesContent())
-            .type("variables")
-            .size(1000L)
-            .build());
-            
-        // Outputs
-        files.add(ConversionResult.TerraformFile.builder()
-            .filePath(baseDir + "/outputs.tf")
-            .content(generateRealmOutputsContent(realm))
-            .type("outputs")
-            .size(500L)
-            .build());
-            
-        // Terragrunt config
-        files.add(ConversionResult.TerraformFile.builder()
-            .filePath(baseDir + "/terragrunt.hcl")
-            .content(generateRealmTerragruntConfig(realm))
-            .type("terragrunt")
-            .size(800L)
-            .build());
-            
-        return files;
+    private static void warnUndefinedReferences(String realmName, String unit, String target, Set<String> names, 
+                                                String outcome) {
+        log.warn("Realm {}: {} reference {} not in the export, {}: {}", realmName, unit, target, outcome, names);
     }
     
-    private List<ConversionResult.TerraformFile> generateRolesModule(RealmRepresentation realm, String baseDir) {
-        List<ConversionResult.TerraformFile> files = new ArrayList<>();
-        
-        files.add(ConversionResult.TerraformFile.builder()
-            .filePath(baseDir + "/main.tf")
-            .content(generateRolesMainContent(realm))
-            .type("main")
-            .size(5000L)
-            .build());
-            
-        files.add(ConversionResult.TerraformFile.builder()
-            .filePath(baseDir + "/variables.tf")
-            .content(generateRolesVariablesContent())
-            .type("variables")
-            .size(500L)
-            .build());
-            
-        files.add(ConversionResult.TerraformFile.builder()
-            .filePath(baseDir + "/terragrunt.hcl")
-            .content(generateRolesTerragruntConfig(realm))
-            .type("terragrunt")
-            .size(600L)
-            .build());
-            
-        return files;
+    /**
+     * An entity module that is a Terragrunt unit; its variables, outputs and configuration are written after its main file.
+     */
+    private ModuleGeneration unitModule(String name, int entities, String baseDir, ModuleDependencyGraph graph, 
+                                        TerraformSymbolTable symbols, BiConsumer<TerraformFileSink, EntityFragments> generator) {
+        return ModuleGeneration.entities(name, entities, (sink, fragments) -> {
+            generator.accept(sink, fragments);
+            generateUnitConfig(baseDir, name, graph, Map.of(), sink, symbols);
+        });
     }
     
-    private List<ConversionResult.TerraformFile> generateGroupsModule(RealmRepresentation realm, String baseDir) {
-        List<ConversionResult.TerraformFile> files = new ArrayList<>();
-        
-        files.add(ConversionResult.TerraformFile.builder()
-            .filePath(baseDir + "/main.tf")
-            .content(generateGroupsMainContent(realm))
-            .type("main")
-            .size(15000L)
-            .build());
-            
-        files.add(ConversionResult.TerraformFile.builder()
-            .filePath(baseDir + "/variables.tf")
-            .content(generateGroupsVariablesContent())
-            .type("variables")
-            .size(500L)
-            .build());
-            
-        files.add(ConversionResult.TerraformFile.builder()
-            .filePath(baseDir + "/terragrunt.hcl")
-            .content(generateGroupsTerragruntConfig(realm))
-            .type("terragrunt")
-            .size(600L)
-            .build());
-            
-        return files;
+    private static int countGroups(List<GroupRepresentation> groups) {
+        int count = 0;
+        Deque<GroupRepresentation> pending = new ArrayDeque<>(groups);
+        while (!pending.isEmpty()) {
+            GroupRepresentation group = pending.pop();
+            count++;
+            if (group.getSubGroups() != null) {
+                group.getSubGroups().forEach(pending::push);
+            }
+        }
+        return count;
     }
     
-    private List<ConversionResult.TerraformFile> generateUsersModule(RealmRepresentation realm, String baseDir) {
-        List<ConversionResult.TerraformFile> files = new ArrayList<>();
-        
-        files.add(ConversionResult.TerraformFile.builder()
-            .filePath(baseDir + "/main.tf")
-            .content(generateUsersMainContent(realm))
-            .type("main")
-            .size(10000L)
-            .build());
-            
-        files.add(ConversionResult.TerraformFile.builder()
-            .filePath(baseDir + "/variables.tf")
-            .content(generateUsersVariablesContent())
-            .type("variables")
-            .size(500L)
-            .build());
-            
-        files.add(ConversionResult.TerraformFile.builder()
-            .filePath(baseDir + "/terragrunt.hcl")
-            .content(generateUsersTerragruntConfig(realm))
-            .type("terragrunt")
-            .size(600L)
-            .build());
-            
-        return files;
+    /**
+     * @return number of levels in the group hierarchy, 1 when no group has subgroups
+     */
+    private static int groupDepth(List<GroupRepresentation> groups) {
+        int depth = 0;
+        Deque<Map.Entry<GroupRepresentation, Integer>> pending = new ArrayDeque<>();
+        groups.forEach(group -> pending.push(Map.entry(group, 1)));
+        while (!pending.isEmpty()) {
+            Map.Entry<GroupRepresentation, Integer> entry = pending.pop();
+            depth = Math.max(depth, entry.getValue());
+            if (entry.getKey().getSubGroups() != null) {
+                entry.getKey().getSubGroups().forEach(subGroup -> pending.push(Map.entry(subGroup, entry.getValue() + 1)));
+            }
+        }
+        return depth;
     }
     
-    private List<ConversionResult.TerraformFile> generateClientsModule(RealmRepresentation realm, String baseDir) {
-        List<ConversionResult.TerraformFile> files = new ArrayList<>();
-        
-        files.add(ConversionResult.TerraformFile.builder()
-            .filePath(baseDir + "/main.tf")
-            .content(generateClientsMainContent(realm))
-            .type("main")
-            .size(8000L)
-            .build());
-            
-        files.add(ConversionResult.TerraformFile.builder()
-            .filePath(baseDir + "/variables.tf")
-            .content(generateClientsVariablesContent())
-            .type("variables")
-            .size(500L)
-            .build());
-            
-        files.add(ConversionResult.TerraformFile.builder()
-            .filePath(baseDir + "/terragrunt.hcl")
-            .content(generateClientsTerragruntConfig(realm))
-            .type("terragrunt")
-            .size(600L)
-            .build());
-            
-        return files;
+    private void generateRealmModule(RealmRepresentation realm, String baseDir, TerraformFileSink sink) {
+        sink.file(baseDir + "/main.tf", "main", hcl -> generateRealmMainContent(hcl, realm));
+        sink.file(baseDir + "/variables.tf", "variables", this::generateRealmVariablesContent);
+        sink.file(baseDir + "/outputs.tf", "outputs", hcl -> generateRealmOutputsContent(hcl, realm));
+        sink.file(baseDir + "/terragrunt.hcl", "terragrunt", hcl -> generateRealmTerragruntConfig(hcl, realm));
     }
     
-    private List<ConversionResult.TerraformFile> generateIdentityProvidersModule(RealmRepresentation realm, String baseDir) {
-        List<ConversionResult.TerraformFile> files = new ArrayList<>();
-        
-        files.add(ConversionResult.TerraformFile.builder()
-            .filePath(baseDir + "/main.tf")
-            .content(generateIdentityProvidersMainContent(realm))
-            .type("main")
-            .size(6000L)
-            .build());
-            
-        files.add(ConversionResult.TerraformFile.builder()
-            .filePath(baseDir + "/variables.tf")
-            .content(generateIdentityProvidersVariablesContent())
-            .type("variables")
-            .size(500L)
-            .build());
-            
-        files.add(ConversionResult.TerraformFile.builder()
-            .filePath(baseDir + "/terragrunt.hcl")
-            .content(generateIdentityProvidersTerragruntConfig(realm))
-            .type("terragrunt")
-            .size(600L)
-            .build());
-            
-        return files;
+    private void generateRolesModule(Iterable<RoleRepresentation> roles, String baseDir, 
+                                     TerraformFileSink sink, EntityFragments fragments, TerraformSymbolTable symbols) {
+        sink.file(baseDir + "/main.tf", "main", hcl -> generateRolesMainContent(hcl, roles, fragments, symbols));
     }
     
-    private List<ConversionResult.TerraformFile> generateAuthenticationFlowsModule(RealmRepresentation realm, String baseDir) {
-        List<ConversionResult.TerraformFile> files = new ArrayList<>();
-        
-        files.add(ConversionResult.TerraformFile.builder()
-            .filePath(baseDir + "/main.tf")
-            .content(generateAuthenticationFlowsMainContent(realm))
-            .type("main")
-            .size(4000L)
-            .build());
-            
-        files.add(ConversionResult.TerraformFile.builder()
-            .filePath(baseDir + "/variables.tf")
-            .content(generateAuthenticationFlowsVariablesContent())
-            .type("variables")
-            .size(500L)
-            .build());
-            
-        files.add(ConversionResult.TerraformFile.builder()
-            .filePath(baseDir + "/terragrunt.hcl")
-            .content(generateAuthenticationFlowsTerragruntConfig(realm))
-            .type("terragrunt")
-            .size(600L)
-            .build());
-            
-        return files;
+    private void generateGroupsModule(Iterable<GroupRepresentation> groups, String baseDir, 
+                                      ConversionRequest.ConversionOptions options, TerraformFileSink sink, 
+                                      EntityFragments fragments, TerraformSymbolTable symbols, References references) {
+        sink.file(baseDir + "/main.tf", "main", 
+            hcl -> generateGroupsMainContent(hcl, groups, options, fragments, symbols, references));
     }
     
-    private List<ConversionResult.TerraformFile> generateClientScopesModule(RealmRepresentation realm, String baseDir) {
-        List<ConversionResult.TerraformFile> files = new ArrayList<>();
-        
-        files.add(ConversionResult.TerraformFile.builder()
-            .filePath(baseDir + "/main.tf")
-            .content(generateClientScopesMainContent(realm))
-            .type("main")
-            .size(3000L)
-            .build());
-            
-        files.add(ConversionResult.TerraformFile.builder()
-            .filePath(baseDir + "/variables.tf")
-            .content(generateClientScopesVariablesContent())
-            .type("variables")
-            .size(500L)
-            .build());
-            
-        files.add(ConversionResult.TerraformFile.builder()
-            .filePath(baseDir + "/terragrunt.hcl")
-            .content(generateClientScopesTerragruntConfig(realm))
-            .type("terragrunt")
-            .size(600L)
-            .build());
-            
-        return files;
+    private void generateUsersModule(Iterable<UserRepresentation> users, String baseDir, TerraformFileSink sink, 
+                                     EntityFragments fragments, TerraformSymbolTable symbols, References references) {
+        sink.file(baseDir + "/main.tf", "main", hcl -> generateUsersMainContent(hcl, users, fragments, symbols, references));
     }
     
-    private ConversionResult.TerraformFile generateRootTerragruntConfig(RealmRepresentation realm, String baseDir) {
-        return ConversionResult.TerraformFile.builder()
-            .filePath(baseDir + "/terragrunt.hcl")
-            .content(generateRootTerragruntContent(realm))
-            .type("terragrunt")
-            .size(1500L)
-            .build();
+    private void generateClientsModule(Iterable<ClientRepresentation> clients, String baseDir, 
+                                       TerraformFileSink sink, EntityFragments fragments, TerraformSymbolTable symbols) {
+        sink.file(baseDir + "/main.tf", "main", hcl -> generateClientsMainContent(hcl, clients, fragments, symbols));
+    }
+    
+    private void generateIdentityProvidersModule(Iterable<IdentityProviderRepresentation> identityProviders, String baseDir, 
+                                                 TerraformFileSink sink, EntityFragments fragments, 
+                                                 TerraformSymbolTable symbols) {
+        sink.file(baseDir + "/main.tf", "main", hcl -> generateIdentityProvidersMainContent(hcl, identityProviders, fragments, symbols));
+    }
+    
+    private void generateAuthenticationFlowsModule(Iterable<AuthenticationFlowRepresentation> flows, String baseDir, TerraformFileSink sink, 
+                                      EntityFragments fragments, TerraformSymbolTable symbols) {
+        sink.file(baseDir + "/main.tf", "main", hcl -> generateAuthenticationFlowsMainContent(hcl, flows, fragments, symbols));
+    }
+    
+    private void generateClientScopesModule(Iterable<ClientScopeRepresentation> scopes, String baseDir, TerraformFileSink sink, 
+                                      EntityFragments fragments, TerraformSymbolTable symbols) {
+        sink.file(baseDir + "/main.tf", "main", hcl -> generateClientScopesMainContent(hcl, scopes, fragments, symbols));
     }
     
     // Content generation methods for Realm module
-    private String generateRealmMainContent(RealmRepresentation realm) {
-        return String.format("""
-            terraform {
-              required_providers {
-                keycloak = {
-                  source  = "keycloak/keycloak"
-                  version = "~> 5.0"
-                }
-              }
-            }
-            
-            resource "keycloak_realm" "%s" {
-              realm   = "%s"
-              enabled = %s
-              
-              display_name = "%s"
-              
-              registration_allowed        = %s
-              registration_email_as_username = false
-              remember_me                = %s
-              verify_email              = %s
-              login_with_email_allowed  = %s
-              duplicate_emails_allowed  = %s
-              reset_password_allowed    = %s
-              edit_username_allowed     = %s
-              
-              ssl_required = "%s"
-              
-              access_token_lifespan               = "%ds"
-              sso_session_idle_timeout           = "%ds"
-              sso_session_max_lifespan           = "%ds"
-              offline_session_idle_timeout       = "%ds"
-              offline_session_max_lifespan       = "%ds"
-              offline_session_max_lifespan_enabled = %s
-              access_code_lifespan               = "%ds"
-              access_code_lifespan_user_action   = "%ds"
-              access_code_lifespan_login         = "%ds"
-              action_token_generated_by_admin_lifespan = "%ds"
-              action_token_generated_by_user_lifespan  = "%ds"
-              
-              revoke_refresh_token     = %s
-              refresh_token_max_reuse  = %d
-              
-              %s
-              %s
-              %s
-            }
-            """, 
-            sanitizeTerraformName(realm.getRealm()),
-            realm.getRealm(),
-            realm.isEnabled(),
-            realm.getDisplayName() != null ? realm.getDisplayName() : realm.getRealm(),
-            realm.isRegistrationAllowed(),
-            realm.isRememberMe(),
-            realm.isVerifyEmail(),
-            realm.isLoginWithEmailAllowed(),
-            realm.isDuplicateEmailsAllowed(),
-            realm.isResetPasswordAllowed(),
-            realm.isEditUsernameAllowed(),
-            realm.getSslRequired() != null ? realm.getSslRequired() : "none",
-            realm.getAccessTokenLifespan() != null ? realm.getAccessTokenLifespan() : 300,
-            realm.getSsoSessionIdleTimeout() != null ? realm.getSsoSessionIdleTimeout() : 1800,
-            realm.getSsoSessionMaxLifespan() != null ? realm.getSsoSessionMaxLifespan() : 36000,
-            realm.getOfflineSessionIdleTimeout() != null ? realm.getOfflineSessionIdleTimeout() : 2592000,
-            realm.getOfflineSessionMaxLifespan() != null ? realm.getOfflineSessionMaxLifespan() : 5184000,
-            realm.getOfflineSessionMaxLifespanEnabled() != null ? realm.getOfflineSessionMaxLifespanEnabled() : false,
-            realm.getAccessCodeLifespan() != null ? realm.getAccessCodeLifespan() : 60,
-            realm.getAccessCodeLifespanUserAction() != null ? realm.getAccessCodeLifespanUserAction() : 300,
-            realm.getAccessCodeLifespanLogin() != null ? realm.getAccessCodeLifespanLogin() : 1800,
-            realm.getActionTokenGeneratedByAdminLifespan() != null ? realm.getActionTokenGeneratedByAdminLifespan() : 43200,
-            realm.getActionTokenGeneratedByUserLifespan() != null ? realm.getActionTokenGeneratedByUserLifespan() : 300,
-            realm.getRevokeRefreshToken() != null ? realm.getRevokeRefreshToken() : false,
-            realm.getRefreshTokenMaxReuse() != null ? realm.getRefreshTokenMaxReuse() : 0,
-            generatePasswordPolicyBlock(realm),
-            generateOtpPolicyBlock(realm),
-            generateBrowserSecurityHeadersBlock(realm)
-        );
-    }
-    
-    private String generateRealmVariablesContent() {
-        return """
-            variable "keycloak_url" {
-              description = "Keycloak server URL"
-              type        = string
-              default     = "http://localhost:8080"
-            }
-            
-            variable "keycloak_admin_username" {
-              description = "Keycloak admin username"
-              type        = string
-              default     = "admin"
-            }
-            
-            variable "keycloak_admin_password" {
-              description = "Keycloak admin password"
-              type        = string
-              sensitive   = true
-            }
-            
-            variable "realm_name" {
-              description = "Name of the Keycloak realm"
-              type        = string
-            }
-            
-            variable "realm_display_name" {
-              description = "Display name of the Keycloak realm"
-              type        = string
-            }
-            """;
+    private void generateRealmMainContent(HclWriter hcl, RealmRepresentation realm) {
+        writeProviderRequirements(hcl);
+        
+        hcl.block("resource", "keycloak_realm", TerraformSymbolTable.sanitize(realm.getRealm()))
+            .attribute("realm", realm.getRealm())
+            .attribute("enabled", flag(realm.isEnabled()))
+            .attribute("display_name", realm.getDisplayName() != null ? realm.getDisplayName() : realm.getRealm())
+            .attribute("registration_allowed", flag(realm.isRegistrationAllowed()))
+            .attribute("registration_email_as_username", false)
+            .attribute("remember_me", flag(realm.isRememberMe()))
+            .attribute("verify_email", flag(realm.isVerifyEmail()))
+            .attribute("login_with_email_allowed", flag(realm.isLoginWithEmailAllowed()))
+            .attribute("duplicate_emails_allowed", flag(realm.isDuplicateEmailsAllowed()))
+            .attribute("reset_password_allowed", flag(realm.isResetPasswordAllowed()))
+            .attribute("edit_username_allowed", flag(realm.isEditUsernameAllowed()))
+            .attribute("ssl_required", realm.getSslRequired() != null ? realm.getSslRequired() : "none")
+            .attribute("access_token_lifespan", seconds(realm.getAccessTokenLifespan(), 300))
+            .attribute("sso_session_idle_timeout", seconds(realm.getSsoSessionIdleTimeout(), 1800))
+            .attribute("sso_session_max_lifespan", seconds(realm.getSsoSessionMaxLifespan(), 36000))
+            .attribute("offline_session_idle_timeout", seconds(realm.getOfflineSessionIdleTimeout(), 2592000))
+            .attribute("offline_session_max_lifespan", seconds(realm.getOfflineSessionMaxLifespan(), 5184000))
+            .attribute("offline_session_max_lifespan_enabled", 
+                flag(realm.getOfflineSessionMaxLifespanEnabled()))
+            .attribute("access_code_lifespan", seconds(realm.getAccessCodeLifespan(), 60))
+            .attribute("access_code_lifespan_user_action", seconds(realm.getAccessCodeLifespanUserAction(), 300))
+            .attribute("access_code_lifespan_login", seconds(realm.getAccessCodeLifespanLogin(), 1800))
+            .attribute("action_token_generated_by_admin_lifespan", seconds(realm.getActionTokenGeneratedByAdminLifespan(), 43200))
+            .attribute("action_token_generated_by_user_lifespan", seconds(realm.getActionTokenGeneratedByUserLifespan(), 300))
+            .attribute("revoke_refresh_token", flag(realm.getRevokeRefreshToken()))
+            .attribute("refresh_token_max_reuse", realm.getRefreshTokenMaxReuse() != null ? realm.getRefreshTokenMaxReuse() : 0);
+        
+        generatePasswordPolicyBlock(hcl, realm);
+        generateOtpPolicyBlock(hcl, realm);
+        generateBrowserSecurityHeadersBlock(hcl, realm);
+        hcl.end();
     }
     
-    private String generateRealmOutputsContent(RealmRepresentation realm) {
-        return String.format("""
-            output "realm_id" {
-              description = "The ID of the created realm"
-              value       = keycloak_realm.%s.id
-            }
-            
-            output "realm_name" {
-              description = "The name of the created realm"
-              value       = keycloak_realm.%s.realm
-            }
-            
-            output "realm_display_name" {
-              description = "The display name of the created realm"
-              value       = keycloak_realm.%s.display_name
-            }
-            """,
-            sanitizeTerraformName(realm.getRealm()),
-            sanitizeTerraformName(realm.getRealm()),
-            sanitizeTerraformName(realm.getRealm())
-        );
+    private void generateRealmVariablesContent(HclWriter hcl) {
+        hcl.block("variable", "keycloak_url")
+            .attribute("description", "Keycloak server URL")
+            .expression("type", "string")
+            .attribute("default", "http://localhost:8080")
+            .end();
+        hcl.block("variable", "keycloak_admin_username")
+            .attribute("description", "Keycloak admin username")
+            .expression("type", "string")
+            .attribute("default", "admin")
+            .end();
+        hcl.block("variable", "keycloak_admin_password")
+            .attribute("description", "Keycloak admin password")
+            .expression("type", "string")
+            .attribute("sensitive", true)
+            .end();
+        hcl.block("variable", "realm_name")
+            .attribute("description", "Name of the Keycloak realm")
+            .expression("type", "string")
+            .end();
+        hcl.block("variable", "realm_display_name")
+            .attribute("description", "Display name of the Keycloak realm")
+            .expression("type", "string")
+            .end();
     }
     
-    private String generateRealmTerragruntConfig(RealmRepresentation realm) {
-        return """
-            include "root" {
-              path = find_in_parent_folders()
-            }
-            
-            terraform {
-              source = "."
-            }
-            
-            inputs = {
-              realm_name         = "%s"
-              realm_display_name = "%s"
-            }
-            """.formatted(realm.getRealm(), realm.getDisplayName());
+    private void generateRealmOutputsContent(HclWriter hcl, RealmRepresentation realm) {
+        String realmResource = "keycloak_realm." + TerraformSymbolTable.sanitize(realm.getRealm());
+        hcl.block("output", "realm_id")
+            .attribute("description", "The ID of the created realm")
+            .expression("value", realmResource + ".id")
+            .end();
+        hcl.block("output", "realm_name")
+            .attribute("description", "The name of the created realm")
+            .expression("value", realmResource + ".realm")
+            .end();
+        hcl.block("output", "realm_display_name")
+            .attribute("description", "The display name of the created realm")
+            .expression("value", realmResource + ".display_name")
+            .end();
+    }
+    
+    private void generateRealmTerragruntConfig(HclWriter hcl, RealmRepresentation realm) {
+        writeRootInclude(hcl);
+        writeLocalSource(hcl);
+        hcl.object("inputs")
+            .attribute("realm_name", realm.getRealm())
+            .attribute("realm_display_name", realm.getDisplayName() != null ? realm.getDisplayName() : realm.getRealm())
+            .end();
     }
     
     // Content generation methods for Roles module
-    private String generateRolesMainContent(RealmRepresentation realm) {
-        StringBuilder content = new StringBuilder();
-        content.append("""
-            terraform {
-              required_providers {
-                keycloak = {
-                  source  = "keycloak/keycloak"
-                  version = "~> 5.0"
-                }
-              }
-            }
-            
-            """);
-            
-        if (realm.getRoles() != null && realm.getRoles().getRealm() != null) {
-            for (RoleRepresentation role : realm.getRoles().getRealm()) {
-                content.append(generateRoleResource(realm, role));
-            }
-        }
+    private void generateRolesMainContent(HclWriter hcl, Iterable<RoleRepresentation> roles, EntityFragments fragments, TerraformSymbolTable symbols) {
+        writeProviderRequirements(hcl);
         
-        return content.toString();
+        for (RoleRepresentation role : roles) {
+            fragments.write(hcl, entityKey(role.getId(), role.getName()), role, 
+                (writer, entity) -> generateRoleResource(writer, entity, symbols));
+        }
     }
     
-    private String generateRoleResource(RealmRepresentation realm, RoleRepresentation role) {
-        StringBuilder roleContent = new StringBuilder();
-        String roleName = sanitizeTerraformName(role.getName());
+    private void generateRoleResource(HclWriter hcl, RoleRepresentation role, TerraformSymbolTable symbols) {
+        String roleName = symbols.name(TerraformSymbolTable.ROLES, role.getName());
         
-        roleContent.append(String.format("""
-            resource "keycloak_role" "%s" {
-              realm_id    = var.realm_id
-              name        = "%s"
-              description = "%s"
-              
-            """, roleName, role.getName(), role.getDescription() != null ? role.getDescription() : ""));
-            
-        if (role.getAttributes() != null && !role.getAttributes().isEmpty()) {
-            roleContent.append("  attributes = {\n");
-            role.getAttributes().forEach((key, values) -> {
-                if (values != null && !values.isEmpty()) {
-                    roleContent.append(String.format("    %s = %s\n", key, 
-                        values.size() == 1 ? "\"" + values.get(0) + "\"" : 
-                        "[" + values.stream().map(v -> "\"" + v + "\"").collect(Collectors.joining(", ")) + "]"));
-                }
-            });
-            roleContent.append("  }\n");
-        }
-        
-        roleContent.append("}\n\n");
-        
-        if (role.isComposite() && role.getComposites() != null) {
-            if (role.getComposites().getRealm() != null) {
-                for (String compositeRole : role.getComposites().getRealm()) {
-                    roleContent.append(String.format("""
-                        resource "keycloak_role_composite" "%s_%s" {
-                          realm_id    = var.realm_id
-                          role_id     = keycloak_role.%s.id
-                          realm_role  = "%s"
-                          depends_on  = [keycloak_role.%s]
-                        }
-                        
-                        """, 
-                        roleName, 
-                        sanitizeTerraformName(compositeRole),
-                        roleName,
-                        compositeRole,
-                        sanitizeTerraformName(compositeRole)
-                    ));
-                }
-            }
+        hcl.block("resource", "keycloak_role", roleName)
+            .expression("realm_id", "var.realm_id")
+            .attribute("name", role.getName())
+            .attribute("description", role.getDescription() != null ? role.getDescription() : "");
+        writeAttributes(hcl, role.getAttributes());
+        // The provider sets composites on the role itself; there is no separate composite resource
+        if (role.isComposite() && role.getComposites() != null && role.getComposites().getRealm() != null 
+                && !role.getComposites().getRealm().isEmpty()) {
+            Set<String> compositeIds = new LinkedHashSet<>();
+            for (String compositeRole : role.getComposites().getRealm()) {
+                compositeIds.add("keycloak_role." + symbols.name(TerraformSymbolTable.ROLES, compositeRole) + ".id");
+            }
+            hcl.expressionList("composite_roles", compositeIds);
         }
-        
-        return roleContent.toString();
+        hcl.end();
     }
     
-    private String generateRolesVariablesContent() {
-        return """
-            variable "realm_id" {
-              description = "The ID of the realm"
-              type        = string
-            }
-            """;
+    // Content generation methods for Groups module
+    private void generateGroupsMainContent(HclWriter hcl, Iterable<GroupRepresentation> groups, 
+                                           ConversionRequest.ConversionOptions options, EntityFragments fragments, 
+                                           TerraformSymbolTable symbols, References references) {
+        writeProviderRequirements(hcl);
+        String executor = options != null && options.isParallelGeneration() ? options.getGenerationExecutor() : null;
+        
+        // Each top-level group is one entity, rendered together with its subgroups
+        for (GroupRepresentation group : groups) {
+            fragments.write(hcl, entityKey(group.getId(), group.getName()), group, 
+                (writer, entity) -> generateGroupTree(writer, entity, null, executor, symbols, references));
+        }
     }
     
-    private String generateRolesTerragruntConfig(RealmRepresentation realm) {
-        return """
-            include "root" {
-              path = find_in_parent_folders()
+    /**
+     * Render a group and all of its subgroups, parents before children, into one writer.
+     *
+     * The traversal keeps its own stack, so hierarchies of any depth render without recursion.
+     * With an executor, the first group with several large subtrees below it has those subtrees
+     * rendered in parallel, each into its own buffer, and spliced back in place of their
+     * subgroups; addresses are declared up front so they do not depend on rendering order.
+     */
+    private void generateGroupTree(HclWriter hcl, GroupRepresentation root, String rootParentId, String executor, 
+                                   TerraformSymbolTable symbols, References references) {
+        Map<GroupRepresentation, Integer> subtreeSizes = executor != null ? groupSubtreeSizes(root) : Map.of();
+        boolean forked = false;
+        
+        Deque<GroupFrame> pending = new ArrayDeque<>();
+        pending.push(new GroupFrame(root, rootParentId, null));
+        while (!pending.isEmpty()) {
+            GroupFrame frame = pending.pop();
+            if (frame.rendered() != null) {
+                hcl.fragment(frame.rendered());
+                continue;
             }
             
-            dependency "realm" {
-              config_path = "../realm"
+            String groupId = generateGroupResource(hcl, frame.group(), frame.parentId(), symbols, references);
+            List<GroupRepresentation> subGroups = frame.group().getSubGroups();
+            if (subGroups == null || subGroups.isEmpty()) {
+                continue;
             }
             
-            terraform {
-              source = "."
+            Map<Integer, String> rendered = Map.of();
+            if (!forked && largeSubtrees(subGroups, subtreeSizes) > 1) {
+                forked = true;
+                symbols.declare(root);
+                rendered = renderSubtreesInParallel(hcl, subGroups, groupId, subtreeSizes, executor, symbols, references);
             }
-            
-            inputs = {
-              realm_id = dependency.realm.outputs.realm_id
+            for (int i = subGroups.size() - 1; i >= 0; i--) {
+                pending.push(new GroupFrame(subGroups.get(i), groupId, rendered.get(i)));
             }
-            """;
+        }
     }
     
-    // Content generation methods for Groups module
-    private String generateGroupsMainContent(RealmRepresentation realm) {
-        StringBuilder content = new StringBuilder();
-        content.append("""
-            terraform {
-              required_providers {
-                keycloak = {
-                  source  = "keycloak/keycloak"
-                  version = "~> 5.0"
-                }
-              }
-            }
-            
-            """);
-            
-        if (realm.getGroups() != null) {
-            for (GroupRepresentation group : realm.getGroups()) {
-                content.append(generateGroupResource(realm, group, null));
+    private Map<Integer, String> renderSubtreesInParallel(HclWriter hcl, List<GroupRepresentation> subGroups, 
+                                                          String parentId, Map<GroupRepresentation, Integer> subtreeSizes, 
+                                                          String executor, TerraformSymbolTable symbols, 
+                                                          References references) {
+        List<Integer> indexes = new ArrayList<>();
+        List<Supplier<String>> tasks = new ArrayList<>();
+        for (int i = 0; i < subGroups.size(); i++) {
+            GroupRepresentation subGroup = subGroups.get(i);
+            if (subtreeSizes.get(subGroup) >= PARALLEL_GROUP_SUBTREE_SIZE) {
+                indexes.add(i);
+                tasks.add(() -> {
+                    StringBuilder buffer = new StringBuilder();
+                    generateGroupTree(hcl.fork(buffer), subGroup, parentId, null, symbols, references);
+                    return buffer.toString();
+                });
             }
         }
         
-        return content.toString();
+        List<String> results = GenerationExecutors.runAll(tasks, executor);
+        Map<Integer, String> rendered = new HashMap<>();
+        for (int i = 0; i < indexes.size(); i++) {
+            rendered.put(indexes.get(i), results.get(i));
+        }
+        return rendered;
     }
     
-    private String generateGroupResource(RealmRepresentation realm, GroupRepresentation group, String parentId) {
-        StringBuilder groupContent = new StringBuilder();
-        String groupName = sanitizeTerraformName(group.getName());
-        String groupId = group.getId() != null ? sanitizeTerraformName(group.getId()) : groupName;
+    private static int largeSubtrees(List<GroupRepresentation> subGroups, Map<GroupRepresentation, Integer> subtreeSizes) {
+        int large = 0;
+        for (GroupRepresentation subGroup : subGroups) {
+            if (subtreeSizes.getOrDefault(subGroup, 0) >= PARALLEL_GROUP_SUBTREE_SIZE) {
+                large++;
+            }
+        }
+        return large;
+    }
+    
+    /**
+     * Number of groups in the subtree below each group, the group itself included.
+     */
+    private static Map<GroupRepresentation, Integer> groupSubtreeSizes(GroupRepresentation root) {
+        List<GroupRepresentation> preOrder = new ArrayList<>();
+        Deque<GroupRepresentation> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            GroupRepresentation group = pending.pop();
+            preOrder.add(group);
+            if (group.getSubGroups() != null) {
+                group.getSubGroups().forEach(pending::push);
+            }
+        }
         
-        groupContent.append(String.format("""
-            resource "keycloak_group" "%s" {
-              realm_id = var.realm_id
-              name     = "%s"
-              %s
-              
-            """, groupId, group.getName(), 
-            parentId != null ? "parent_id = keycloak_group." + parentId + ".id" : ""));
-            
-        if (group.getAttributes() != null && !group.getAttributes().isEmpty()) {
-            groupContent.append("  attributes = {\n");
-            group.getAttributes().forEach((key, values) -> {
-                if (values != null && !values.isEmpty()) {
-                    groupContent.append(String.format("    %s = %s\n", key, 
-                        values.size() == 1 ? "\"" + values.get(0) + "\"" : 
-                        "[" + values.stream().map(v -> "\"" + v + "\"").collect(Collectors.joining(", ")) + "]"));
+        // Children come after their parent in pre-order, so walking it backwards sizes them first
+        Map<GroupRepresentation, Integer> sizes = new IdentityHashMap<>();
+        for (int i = preOrder.size() - 1; i >= 0; i--) {
+            GroupRepresentation group = preOrder.get(i);
+            int size = 1;
+            if (group.getSubGroups() != null) {
+                for (GroupRepresentation subGroup : group.getSubGroups()) {
+                    size += sizes.get(subGroup);
                 }
-            });
-            groupContent.append("  }\n");
+            }
+            sizes.put(group, size);
         }
+        return sizes;
+    }
+    
+    /**
+     * Write one group and its role mappings, without its subgroups.
+     *
+     * @return address of the group
+     */
+    private String generateGroupResource(HclWriter hcl, GroupRepresentation group, String parentId, TerraformSymbolTable symbols, 
+                                         References references) {
+        String groupId = symbols.name(TerraformSymbolTable.GROUPS, TerraformSymbolTable.groupKey(group));
         
-        groupContent.append("}\n\n");
+        hcl.block("resource", "keycloak_group", groupId)
+            .expression("realm_id", "var.realm_id")
+            .attribute("name", group.getName());
+        if (parentId != null) {
+            hcl.expression("parent_id", "keycloak_group." + parentId + ".id");
+        }
+        writeAttributes(hcl, group.getAttributes());
+        hcl.end();
         
-        // Generate role mappings for group
+        // keycloak_group_roles manages the full set of the group's roles, so all of them go into one resource
+        Set<String> roleIds = new LinkedHashSet<>();
         if (group.getRealmRoles() != null) {
             for (String roleName : group.getRealmRoles()) {
-                groupContent.append(String.format("""
-                    resource "keycloak_group_roles" "%s_%s" {
-                      realm_id = var.realm_id
-                      group_id = keycloak_group.%s.id
-                      role_ids = [var.realm_role_%s_id]
-                    }
-                    
-                    """, 
-                    groupId, 
-                    sanitizeTerraformName(roleName),
-                    groupId,
-                    sanitizeTerraformName(roleName)
-                ));
+                if (references.defined(ModuleDependencyGraph.ROLES, roleName)) {
+                    roleIds.add("var." + roleIdVariable(roleName, symbols));
+                }
             }
         }
-        
-        // Generate subgroups
-        if (group.getSubGroups() != null) {
-            for (GroupRepresentation subGroup : group.getSubGroups()) {
-                groupContent.append(generateGroupResource(realm, subGroup, groupId));
-            }
+        if (!roleIds.isEmpty()) {
+            hcl.block("resource", "keycloak_group_roles", groupId)
+                .expression("realm_id", "var.realm_id")
+                .expression("group_id", "keycloak_group." + groupId + ".id")
+                .expressionList("role_ids", roleIds)
+                .end();
         }
-        
-        return groupContent.toString();
+        return groupId;
     }
     
-    private String generateGroupsVariablesContent() {
-        return """
-            variable "realm_id" {
-              description = "The ID of the realm"
-              type        = string
-            }
-            """;
+    /**
+     * A group still to be written below its parent's address, or a subtree already rendered in its place.
+     */
+    private record GroupFrame(GroupRepresentation group, String parentId, String rendered) {
     }
     
-    private String generateGroupsTerragruntConfig(RealmRepresentation realm) {
-        return """
-            include "root" {
-              path = find_in_parent_folders()
-            }
-            
-            dependency "realm" {
-              config_path = "../realm"
-            }
-            
-            dependency "roles" {
-              config_path = "../roles"
-            }
-            
-            terraform {
-              source = "."
-            }
-            
-            inputs = {
-              realm_id = dependency.realm.outputs.realm_id
-            }
-            """;
+    // Content generation methods for Users module
+    private void generateUsersMainContent(HclWriter hcl, Iterable<UserRepresentation> users, EntityFragments fragments, 
+                                          TerraformSymbolTable symbols, References references) {
+        writeProviderRequirements(hcl);
+        
+        for (UserRepresentation user : users) {
+            fragments.write(hcl, entityKey(user.getId(), user.getUsername()), user, 
+                (writer, entity) -> generateUserResource(writer, entity, symbols, references));
+        }
     }
     
-    // Content generation methods for Users module
-    private String generateUsersMainContent(RealmRepresentation realm) {
-        StringBuilder content = new StringBuilder();
-        content.append("""
-            terraform {
-              required_providers {
-                keycloak = {
-                  source  = "keycloak/keycloak"
-                  version = "~> 5.0"
-                }
-              }
-            }
-            
-            """);
-            
-        if (realm.getUsers() != null) {
-            for (UserRepresentation user : realm.getUsers()) {
-                content.append(generateUserResource(realm, user));
-            }
+    /**
+     * Split users into shards according to the sharding option.
+     *
+     * Hash shards are named after their bucket, so a user keeps its shard, and each shard its
+     * Terragrunt state, when other users are added or removed; empty buckets get no unit.
+     *
+     * @return the non-empty shards by unit name, in order, or null when users are not sharded
+     */
+    private Map<String, List<UserRepresentation>> partitionUsers(List<UserRepresentation> users, 
+                                                                 ConversionRequest.ConversionOptions options) {
+        String strategy = options != null ? options.getUserSharding() : null;
+        if (strategy == null || "none".equalsIgnoreCase(strategy)) {
+            return null;
         }
         
-        return content.toString();
-    }
-    
-    private String generateUserResource(RealmRepresentation realm, UserRepresentation user) {
-        StringBuilder userContent = new StringBuilder();
-        String userName = sanitizeTerraformName(user.getUsername());
-        
-        userContent.append(String.format("""
-            resource "keycloak_user" "%s" {
-              realm_id   = var.realm_id
-              username   = "%s"
-              enabled    = %s
-              
-              email      = "%s"
-              first_name = "%s"
-              last_name  = "%s"
-              
-            """, userName, 
-            user.getUsername(),
-            user.isEnabled(),
-            user.getEmail() != null ? user.getEmail() : "",
-            user.getFirstName() != null ? user.getFirstName() : "",
-            user.getLastName() != null ? user.getLastName() : ""));
-            
-        if (user.getAttributes() != null && !user.getAttributes().isEmpty()) {
-            userContent.append("  attributes = {\n");
-            user.getAttributes().forEach((key, values) -> {
-                if (values != null && !values.isEmpty()) {
-                    userContent.append(String.format("    %s = %s\n", key, 
-                        values.size() == 1 ? "\"" + values.get(0) + "\"" : 
-                        "[" + values.stream().map(v -> "\"" + v + "\"").collect(Collectors.joining(", ")) + "]"));
+        Map<String, List<UserRepresentation>> shards = new LinkedHashMap<>();
+        if ("count".equalsIgnoreCase(strategy)) {
+            int shardSize = Math.max(1, options.getUsersPerShard());
+            for (int from = 0; from < users.size(); from += shardSize) {
+                shards.put(userShardName(from / shardSize, 0), users.subList(from, Math.min(from + shardSize, users.size())));
+            }
+        } else if ("hash".equalsIgnoreCase(strategy)) {
+            // Bucket by a stable hash of the username
+            int shardCount = Math.max(1, options.getUserShardCount());
+            List<List<UserRepresentation>> buckets = new ArrayList<>(shardCount);
+            for (int i = 0; i < shardCount; i++) {
+                buckets.add(new ArrayList<>());
+            }
+            CRC32 crc = new CRC32();
+            for (UserRepresentation user : users) {
+                crc.reset();
+                crc.update(String.valueOf(user.getUsername()).getBytes(StandardCharsets.UTF_8));
+                buckets.get((int) (crc.getValue() % shardCount)).add(user);
+            }
+            for (int i = 0; i < shardCount; i++) {
+                if (!buckets.get(i).isEmpty()) {
+                    shards.put(userShardName(i, shardCount), buckets.get(i));
                 }
-            });
-            userContent.append("  }\n");
-        }
-        
-        userContent.append("}\n\n");
-        
-        // Generate user group memberships
-        if (user.getGroups() != null) {
-            for (String groupPath : user.getGroups()) {
-                String groupName = sanitizeTerraformName(groupPath.replaceAll("/", "_"));
-                userContent.append(String.format("""
-                    resource "keycloak_user_groups" "%s_%s" {
-                      realm_id = var.realm_id
-                      user_id  = keycloak_user.%s.id
-                      group_ids = [var.group_%s_id]
-                    }
-                    
-                    """, 
-                    userName, 
-                    groupName,
-                    userName,
-                    groupName
-                ));
             }
+        } else {
+            throw new IllegalArgumentException("Unknown user sharding strategy: " + strategy);
         }
-        
-        return userContent.toString();
+        return shards;
     }
     
-    private String generateUsersVariablesContent() {
-        return """
-            variable "realm_id" {
-              description = "The ID of the realm"
-              type        = string
-            }
-            """;
+    /**
+     * Unit name of a user shard, shared by bound and streamed realms. The index is zero-padded to
+     * two digits, or to the digits of the highest index when the number of shards is fixed.
+     *
+     * @param shardCount fixed number of shards, or 0 when shards are open-ended as with count sharding
+     */
+    private static String userShardName(int index, int shardCount) {
+        int digits = Math.max(2, String.valueOf(Math.max(0, shardCount - 1)).length());
+        return "users/shard-" + String.format("%0" + digits + "d", index);
     }
     
-    private String generateUsersTerragruntConfig(RealmRepresentation realm) {
-        return """
-            include "root" {
-              path = find_in_parent_folders()
-            }
-            
-            dependency "realm" {
-              config_path = "../realm"
-            }
-            
-            dependency "groups" {
-              config_path = "../groups"
-            }
-            
-            terraform {
-              source = "."
-            }
-            
-            inputs = {
-              realm_id = dependency.realm.outputs.realm_id
+    private void generateUserResource(HclWriter hcl, UserRepresentation user, TerraformSymbolTable symbols, 
+                                      References references) {
+        String userName = symbols.name(TerraformSymbolTable.USERS, user.getUsername());
+        
+        hcl.block("resource", "keycloak_user", userName)
+            .expression("realm_id", "var.realm_id")
+            .attribute("username", user.getUsername())
+            .attribute("enabled", flag(user.isEnabled()))
+            .attribute("email", user.getEmail() != null ? user.getEmail() : "")
+            .attribute("first_name", user.getFirstName() != null ? user.getFirstName() : "")
+            .attribute("last_name", user.getLastName() != null ? user.getLastName() : "");
+        writeAttributes(hcl, user.getAttributes());
+        hcl.end();
+        
+        // All group memberships of the user in one resource, which keycloak_user_groups manages as a whole
+        Set<String> groupIds = new LinkedHashSet<>();
+        if (user.getGroups() != null) {
+            for (String groupPath : user.getGroups()) {
+                if (references.defined(ModuleDependencyGraph.GROUPS, groupPath)) {
+                    groupIds.add("var." + groupIdVariable(groupPath, symbols));
+                }
             }
-            """;
+        }
+        if (!groupIds.isEmpty()) {
+            hcl.block("resource", "keycloak_user_groups", userName)
+                .expression("realm_id", "var.realm_id")
+                .expression("user_id", "keycloak_user." + userName + ".id")
+                .expressionList("group_ids", groupIds)
+                .end();
+        }
     }
     
     // Content generation methods for Clients module
-    private String generateClientsMainContent(RealmRepresentation realm) {
-        StringBuilder content = new StringBuilder();
-        content.append("""
-            terraform {
-              required_providers {
-                keycloak = {
-                  source  = "keycloak/keycloak"
-                  version = "~> 5.0"
-                }
-              }
-            }
-            
-            """);
-            
-        if (realm.getClients() != null) {
-            for (ClientRepresentation client : realm.getClients()) {
-                content.append(generateClientResource(realm, client));
-            }
+    private void generateClientsMainContent(HclWriter hcl, Iterable<ClientRepresentation> clients, EntityFragments fragments, TerraformSymbolTable symbols) {
+        writeProviderRequirements(hcl);
+        
+        for (ClientRepresentation client : clients) {
+            fragments.write(hcl, entityKey(client.getId(), client.getClientId()), client, 
+                (writer, entity) -> generateClientResource(writer, entity, symbols));
         }
+    }
+    
+    private void generateClientResource(HclWriter hcl, ClientRepresentation client, TerraformSymbolTable symbols) {
+        String clientName = symbols.name(TerraformSymbolTable.CLIENTS, client.getClientId());
         
-        return content.toString();
-    }
-    
-    private String generateClientResource(RealmRepresentation realm, ClientRepresentation client) {
-        StringBuilder clientContent = new StringBuilder();
-        String clientName = sanitizeTerraformName(client.getClientId());
-        
-        clientContent.append(String.format("""
-            resource "keycloak_openid_client" "%s" {
-              realm_id    = var.realm_id
-              client_id   = "%s"
-              name        = "%s"
-              description = "%s"
-              
-              enabled                      = %s
-              standard_flow_enabled        = %s
-              implicit_flow_enabled        = %s
-              direct_access_grants_enabled = %s
-              service_accounts_enabled     = %s
-              
-              access_type = "%s"
-              
-            """, clientName,
-            client.getClientId(),
-            client.getName() != null ? client.getName() : client.getClientId(),
-            client.getDescription() != null ? client.getDescription() : "",
-            client.isEnabled(),
-            client.isStandardFlowEnabled(),
-            client.isImplicitFlowEnabled(),
-            client.isDirectAccessGrantsEnabled(),
-            client.isServiceAccountsEnabled(),
-            determineAccessType(client)));
+        hcl.block("resource", "keycloak_openid_client", clientName)
+            .expression("realm_id", "var.realm_id")
+            .attribute("client_id", client.getClientId())
+            .attribute("name", client.getName() != null ? client.getName() : client.getClientId())
+            .attribute("description", client.getDescription() != null ? client.getDescription() : "")
+            .attribute("enabled", flag(client.isEnabled()))
+            .attribute("standard_flow_enabled", flag(client.isStandardFlowEnabled()))
+            .attribute("implicit_flow_enabled", flag(client.isImplicitFlowEnabled()))
+            .attribute("direct_access_grants_enabled", flag(client.isDirectAccessGrantsEnabled()))
+            .attribute("service_accounts_enabled", flag(client.isServiceAccountsEnabled()))
+            .attribute("access_type", determineAccessType(client));
             
         if (client.getRedirectUris() != null && !client.getRedirectUris().isEmpty()) {
-            clientContent.append("  valid_redirect_uris = [\n");
-            for (String uri : client.getRedirectUris()) {
-                clientContent.append(String.format("    \"%s\",\n", uri));
-            }
-            clientContent.append("  ]\n");
+            hcl.list("valid_redirect_uris", client.getRedirectUris());
         }
         
         if (client.getWebOrigins() != null && !client.getWebOrigins().isEmpty()) {
-            clientContent.append("  web_origins = [\n");
-            for (String origin : client.getWebOrigins()) {
-                clientContent.append(String.format("    \"%s\",\n", origin));
-            }
-            clientContent.append("  ]\n");
+            hcl.list("web_origins", client.getWebOrigins());
         }
         
-        clientContent.append("}\n\n");
+        hcl.end();
         
         // Generate protocol mappers
         if (client.getProtocolMappers() != null) {
             for (ProtocolMapperRepresentation mapper : client.getProtocolMappers()) {
-                clientContent.append(generateProtocolMapperResource(clientName, mapper));
+                generateProtocolMapperResource(hcl, clientName, mapper, symbols);
             }
         }
-        
-        return clientContent.toString();
     }
     
-    private String generateProtocolMapperResource(String clientName, ProtocolMapperRepresentation mapper) {
-        String mapperName = sanitizeTerraformName(mapper.getName());
+    private void generateProtocolMapperResource(HclWriter hcl, String clientName, ProtocolMapperRepresentation mapper, 
+                                                TerraformSymbolTable symbols) {
+        Map<String, String> config = mapper.getConfig() != null ? mapper.getConfig() : Map.of();
         
-        return String.format("""
-            resource "keycloak_openid_user_attribute_protocol_mapper" "%s_%s" {
-              realm_id  = var.realm_id
-              client_id = keycloak_openid_client.%s.id
-              name      = "%s"
-              
-              user_attribute   = "%s"
-              claim_name       = "%s"
-              claim_value_type = "%s"
-              
-              add_to_id_token     = %s
-              add_to_access_token = %s
-              add_to_userinfo     = %s
-            }
-            
-            """,
-            clientName,
-            mapperName,
-            clientName,
-            mapper.getName(),
-            mapper.getConfig() != null ? mapper.getConfig().getOrDefault("user.attribute", "") : "",
-            mapper.getConfig() != null ? mapper.getConfig().getOrDefault("claim.name", "") : "",
-            mapper.getConfig() != null ? mapper.getConfig().getOrDefault("jsonType.label", "String") : "String",
-            mapper.getConfig() != null ? Boolean.parseBoolean(mapper.getConfig().getOrDefault("id.token.claim", "false")) : false,
-            mapper.getConfig() != null ? Boolean.parseBoolean(mapper.getConfig().getOrDefault("access.token.claim", "false")) : false,
-            mapper.getConfig() != null ? Boolean.parseBoolean(mapper.getConfig().getOrDefault("userinfo.token.claim", "false")) : false
-        );
-    }
-    
-    private String generateClientsVariablesContent() {
-        return """
-            variable "realm_id" {
-              description = "The ID of the realm"
-              type        = string
-            }
-            """;
-    }
-    
-    private String generateClientsTerragruntConfig(RealmRepresentation realm) {
-        return """
-            include "root" {
-              path = find_in_parent_folders()
-            }
-            
-            dependency "realm" {
-              config_path = "../realm"
-            }
-            
-            terraform {
-              source = "."
-            }
-            
-            inputs = {
-              realm_id = dependency.realm.outputs.realm_id
-            }
-            """;
+        hcl.block("resource", "keycloak_openid_user_attribute_protocol_mapper", symbols.protocolMapper(clientName, mapper.getName()))
+            .expression("realm_id", "var.realm_id")
+            .expression("client_id", "keycloak_openid_client." + clientName + ".id")
+            .attribute("name", mapper.getName())
+            .attribute("user_attribute", config.getOrDefault("user.attribute", ""))
+            .attribute("claim_name", config.getOrDefault("claim.name", ""))
+            .attribute("claim_value_type", config.getOrDefault("jsonType.label", "String"))
+            .attribute("add_to_id_token", Boolean.parseBoolean(config.getOrDefault("id.token.claim", "false")))
+            .attribute("add_to_access_token", Boolean.parseBoolean(config.getOrDefault("access.token.claim", "false")))
+            .attribute("add_to_userinfo", Boolean.parseBoolean(config.getOrDefault("userinfo.token.claim", "false")))
+            .end();
     }
     
     // Content generation methods for Identity Providers module
-    private String generateIdentityProvidersMainContent(RealmRepresentation realm) {
-        StringBuilder content = new StringBuilder();
-        content.append("""
-            terraform {
-              required_providers {
-                keycloak = {
-                  source  = "keycloak/keycloak"
-                  version = "~> 5.0"
-                }
-              }
-            }
-            
-            """);
-            
-        if (realm.getIdentityProviders() != null) {
-            for (IdentityProviderRepresentation idp : realm.getIdentityProviders()) {
-                content.append(generateIdentityProviderResource(realm, idp));
-            }
+    private void generateIdentityProvidersMainContent(HclWriter hcl, Iterable<IdentityProviderRepresentation> identityProviders,
+                                                      EntityFragments fragments, TerraformSymbolTable symbols) {
+        writeProviderRequirements(hcl);
+        
+        for (IdentityProviderRepresentation idp : identityProviders) {
+            fragments.write(hcl, entityKey(idp.getInternalId(), idp.getAlias()), idp, 
+                (writer, entity) -> generateIdentityProviderResource(writer, entity, symbols));
         }
+    }
+    
+    private void generateIdentityProviderResource(HclWriter hcl, IdentityProviderRepresentation idp, TerraformSymbolTable symbols) {
+        String idpName = symbols.name(TerraformSymbolTable.IDENTITY_PROVIDERS, idp.getAlias());
+        Map<String, String> config = idp.getConfig() != null ? idp.getConfig() : Map.of();
         
-        return content.toString();
-    }
-    
-    private String generateIdentityProviderResource(RealmRepresentation realm, IdentityProviderRepresentation idp) {
-        String idpName = sanitizeTerraformName(idp.getAlias());
-        
-        return String.format("""
-            resource "keycloak_oidc_identity_provider" "%s" {
-              realm             = var.realm_id
-              alias             = "%s"
-              display_name      = "%s"
-              enabled           = %s
-              store_token       = %s
-              trust_email       = %s
-              first_broker_login_flow_alias = "%s"
-              
-              authorization_url = "%s"
-              token_url         = "%s"
-              client_id         = "%s"
-              client_secret     = "%s"
-              
-              extra_config = {
-            %s
-              }
-            }
-            
-            """,
-            idpName,
-            idp.getAlias(),
-            idp.getDisplayName() != null ? idp.getDisplayName() : idp.getAlias(),
-            idp.isEnabled(),
-            idp.isStoreToken(),
-            idp.isTrustEmail(),
-            idp.getFirstBrokerLoginFlowAlias() != null ? idp.getFirstBrokerLoginFlowAlias() : "first broker login",
-            idp.getConfig() != null ? idp.getConfig().getOrDefault("authorizationUrl", "") : "",
-            idp.getConfig() != null ? idp.getConfig().getOrDefault("tokenUrl", "") : "",
-            idp.getConfig() != null ? idp.getConfig().getOrDefault("clientId", "") : "",
-            idp.getConfig() != null ? idp.getConfig().getOrDefault("clientSecret", "") : "",
-            generateIdpExtraConfig(idp)
-        );
-    }
-    
-    private String generateIdpExtraConfig(IdentityProviderRepresentation idp) {
-        if (idp.getConfig() == null) return "";
-        
-        StringBuilder config = new StringBuilder();
-        idp.getConfig().forEach((key, value) -> {
-            if (!Arrays.asList("authorizationUrl", "tokenUrl", "clientId", "clientSecret").contains(key)) {
-                config.append(String.format("    %s = \"%s\"\n", key, value));
+        hcl.block("resource", "keycloak_oidc_identity_provider", idpName)
+            .expression("realm", "var.realm_id")
+            .attribute("alias", idp.getAlias())
+            .attribute("display_name", idp.getDisplayName() != null ? idp.getDisplayName() : idp.getAlias())
+            .attribute("enabled", idp.isEnabled())
+            .attribute("store_token", idp.isStoreToken())
+            .attribute("trust_email", idp.isTrustEmail())
+            .attribute("first_broker_login_flow_alias", 
+                idp.getFirstBrokerLoginFlowAlias() != null ? idp.getFirstBrokerLoginFlowAlias() : "first broker login")
+            .attribute("authorization_url", config.getOrDefault("authorizationUrl", ""))
+            .attribute("token_url", config.getOrDefault("tokenUrl", ""))
+            .attribute("client_id", config.getOrDefault("clientId", ""))
+            .attribute("client_secret", config.getOrDefault("clientSecret", ""));
+        
+        hcl.object("extra_config");
+        config.forEach((key, value) -> {
+            if (!IDP_DEDICATED_CONFIG_KEYS.contains(key) && value != null) {
+                hcl.attribute(key, value);
             }
         });
+        hcl.end();
         
-        return config.toString();
+        hcl.end();
     }
     
-    private String generateIdentityProvidersVariablesContent() {
-        return """
-            variable "realm_id" {
-              description = "The ID of the realm"
-              type        = string
+    // Content generation methods for Authentication Flows module
+    private void generateAuthenticationFlowsMainContent(HclWriter hcl, Iterable<AuthenticationFlowRepresentation> flows,
+                                                        EntityFragments fragments, TerraformSymbolTable symbols) {
+        writeProviderRequirements(hcl);
+        
+        for (AuthenticationFlowRepresentation flow : flows) {
+            if (!flow.isBuiltIn()) {
+                fragments.write(hcl, entityKey(flow.getId(), flow.getAlias()), flow, 
+                (writer, entity) -> generateAuthenticationFlowResource(writer, entity, symbols));
             }
-            """;
+        }
     }
     
-    private String generateIdentityProvidersTerragruntConfig(RealmRepresentation realm) {
-        return """
-            include "root" {
-              path = find_in_parent_folders()
-            }
-            
-            dependency "realm" {
-              config_path = "../realm"
-            }
-            
-            terraform {
-              source = "."
-            }
-            
-            inputs = {
-              realm_id = dependency.realm.outputs.realm_id
-            }
-            """;
+    private void generateAuthenticationFlowResource(HclWriter hcl, AuthenticationFlowRepresentation flow, 
+                                                    TerraformSymbolTable symbols) {
+        hcl.block("resource", "keycloak_authentication_flow", symbols.name(TerraformSymbolTable.AUTHENTICATION_FLOWS, flow.getAlias()))
+            .expression("realm_id", "var.realm_id")
+            .attribute("alias", flow.getAlias())
+            .attribute("description", flow.getDescription() != null ? flow.getDescription() : "")
+            .attribute("provider_id", flow.getProviderId() != null ? flow.getProviderId() : "basic-flow")
+            .attribute("top_level", flow.isTopLevel())
+            .end();
     }
     
-    // Content generation methods for Authentication Flows module
-    private String generateAuthenticationFlowsMainContent(RealmRepresentation realm) {
-        StringBuilder content = new StringBuilder();
-        content.append("""
-            terraform {
-              required_providers {
-                keycloak = {
-                  source  = "keycloak/keycloak"
-                  version = "~> 5.0"
-                }
-              }
-            }
-            
-            """);
-            
-        if (realm.getAuthenticationFlows() != null) {
-            for (AuthenticationFlowRepresentation flow : realm.getAuthenticationFlows()) {
-                if (!flow.isBuiltIn()) {
-                    content.append(generateAuthenticationFlowResource(realm, flow));
-                }
-            }
+    // Content generation methods for Client Scopes module
+    private void generateClientScopesMainContent(HclWriter hcl, Iterable<ClientScopeRepresentation> scopes, EntityFragments fragments, TerraformSymbolTable symbols) {
+        writeProviderRequirements(hcl);
+        
+        for (ClientScopeRepresentation scope : scopes) {
+            fragments.write(hcl, entityKey(scope.getId(), scope.getName()), scope, 
+                (writer, entity) -> generateClientScopeResource(writer, entity, symbols));
         }
+    }
+    
+    private void generateClientScopeResource(HclWriter hcl, ClientScopeRepresentation scope, TerraformSymbolTable symbols) {
+        Map<String, String> attributes = scope.getAttributes() != null ? scope.getAttributes() : Map.of();
         
-        return content.toString();
+        hcl.block("resource", "keycloak_openid_client_scope", symbols.name(TerraformSymbolTable.CLIENT_SCOPES, scope.getName()))
+            .expression("realm_id", "var.realm_id")
+            .attribute("name", scope.getName())
+            .attribute("description", scope.getDescription() != null ? scope.getDescription() : "")
+            .attribute("consent_screen_text", attributes.getOrDefault("consent.screen.text", ""))
+            .attribute("include_in_token_scope", Boolean.parseBoolean(attributes.getOrDefault("include.in.token.scope", "true")))
+            .end();
     }
     
-    private String generateAuthenticationFlowResource(RealmRepresentation realm, AuthenticationFlowRepresentation flow) {
-        String flowName = sanitizeTerraformName(flow.getAlias());
+    // Root Terragrunt configuration
+    /**
+     * Root configuration included by every unit. Units declare their own dependencies, so the
+     * root only documents the dependency graph, when it is known, for tuning run-all parallelism.
+     */
+    private void generateRootTerragruntContent(HclWriter hcl, String realmName, ModuleDependencyGraph graph) {
+        writeRootInclude(hcl);
+        hcl.comment("Realm: " + realmName);
+        hcl.comment("Generated modules:");
+        hcl.comment("- realm: Core realm configuration");
+        hcl.comment("- roles: Realm roles and composite roles");
+        hcl.comment("- groups: Group hierarchy and role assignments");
+        hcl.comment("- users: User accounts and group memberships");
+        hcl.comment("- clients: OAuth/OIDC clients and protocol mappers");
+        hcl.comment("- identity-providers: External identity providers");
+        hcl.comment("- authentication-flows: Custom authentication flows");
+        hcl.comment("- client-scopes: Reusable client scopes");
+        if (graph == null) {
+            return;
+        }
         
-        return String.format("""
-            resource "keycloak_authentication_flow" "%s" {
-              realm_id    = var.realm_id
-              alias       = "%s"
-              description = "%s"
-              provider_id = "%s"
-              top_level   = %s
-            }
-            
-            """,
-            flowName,
-            flow.getAlias(),
-            flow.getDescription() != null ? flow.getDescription() : "",
-            flow.getProviderId() != null ? flow.getProviderId() : "basic-flow",
-            flow.isTopLevel()
-        );
-    }
-    
-    private String generateAuthenticationFlowsVariablesContent() {
-        return """
-            variable "realm_id" {
-              description = "The ID of the realm"
-              type        = string
+        hcl.comment("");
+        hcl.comment("Module dependencies:");
+        for (List<String> wave : graph.waves()) {
+            for (String unit : wave) {
+                List<String> dependencies = graph.dependencies(unit);
+                hcl.comment("- " + unit + (dependencies.isEmpty() ? "" : " -> " + String.join(", ", dependencies)));
             }
-            """;
+        }
+        hcl.comment("Critical path: " + String.join(" -> ", graph.criticalPath()));
+        hcl.comment("Maximum width: " + graph.maxWidth() + " (terragrunt run-all --terragrunt-parallelism " + graph.maxWidth() + ")");
     }
     
-    private String generateAuthenticationFlowsTerragruntConfig(RealmRepresentation realm) {
-        return """
-            include "root" {
-              path = find_in_parent_folders()
-            }
-            
-            dependency "realm" {
-              config_path = "../realm"
-            }
-            
-            terraform {
-              source = "."
-            }
-            
-            inputs = {
-              realm_id = dependency.realm.outputs.realm_id
-            }
-            """;
+    // tfvars output: entity data as JSON inputs of the reusable modules under modules/
+    private static boolean isTfvarsOutput(ConversionRequest.ConversionOptions options) {
+        return options != null && TFVARS.equalsIgnoreCase(options.getOutputFormat());
     }
     
-    // Content generation methods for Client Scopes module
-    private String generateClientScopesMainContent(RealmRepresentation realm) {
-        StringBuilder content = new StringBuilder();
-        content.append("""
-            terraform {
-              required_providers {
-                keycloak = {
-                  source  = "keycloak/keycloak"
-                  version = "~> 5.0"
+    /**
+     * The module source is written as an HCL string so that it may interpolate, e.g. {@code get_repo_root()}.
+     *
+     * @throws IllegalArgumentException if it is blank or would end the string
+     */
+    private static String moduleSource(ConversionRequest.ConversionOptions options) {
+        String source = options.getModuleSource();
+        if (source == null || source.isBlank() || source.contains("\"") || source.contains("\\") 
+                || source.contains("\n")) {
+            throw new IllegalArgumentException("Invalid module source: " + source);
+        }
+        return source.endsWith("/") ? source.substring(0, source.length() - 1) : source;
+    }
+    
+    private static boolean isTfJsonOutput(ConversionRequest.ConversionOptions options) {
+        return options != null && TF_JSON.equalsIgnoreCase(options.getOutputFormat());
+    }
+    
+    private void generateRealmTfvarsModule(RealmRepresentation realm, String baseDir, String moduleSource, 
+                                           TerraformFileSink sink) {
+        sink.file(baseDir + "/realm.auto.tfvars.json", TFVARS, hcl -> writeJson(hcl, json -> writeRealmTfvars(json, realm)));
+        sink.file(baseDir + "/terragrunt.hcl", "terragrunt", hcl -> {
+            writeRootInclude(hcl);
+            writeModuleSource(hcl, moduleSource, "keycloak-realm");
+        });
+    }
+    
+    /**
+     * Variables of modules/keycloak-realm, with the defaults of the HCL output. Brute force
+     * settings are only written when the realm sets them, leaving the module defaults otherwise.
+     */
+    private void writeRealmTfvars(JsonGenerator json, RealmRepresentation realm) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("realm_name", realm.getRealm());
+        json.writeBooleanField("enabled", flag(realm.isEnabled()));
+        json.writeStringField("display_name", realm.getDisplayName() != null ? realm.getDisplayName() : realm.getRealm());
+        if (realm.getDisplayNameHtml() != null) {
+            json.writeStringField("display_name_html", realm.getDisplayNameHtml());
+        }
+        json.writeBooleanField("registration_allowed", flag(realm.isRegistrationAllowed()));
+        json.writeBooleanField("registration_email_as_username", flag(realm.isRegistrationEmailAsUsername()));
+        json.writeBooleanField("remember_me", flag(realm.isRememberMe()));
+        json.writeBooleanField("verify_email", flag(realm.isVerifyEmail()));
+        json.writeBooleanField("login_with_email_allowed", flag(realm.isLoginWithEmailAllowed()));
+        json.writeBooleanField("duplicate_emails_allowed", flag(realm.isDuplicateEmailsAllowed()));
+        json.writeBooleanField("reset_password_allowed", flag(realm.isResetPasswordAllowed()));
+        json.writeBooleanField("edit_username_allowed", flag(realm.isEditUsernameAllowed()));
+        json.writeStringField("ssl_required", realm.getSslRequired() != null ? realm.getSslRequired() : "none");
+        json.writeNumberField("access_token_lifespan", orDefault(realm.getAccessTokenLifespan(), 300));
+        json.writeNumberField("access_token_lifespan_for_implicit_flow", 
+            orDefault(realm.getAccessTokenLifespanForImplicitFlow(), 900));
+        json.writeNumberField("sso_session_idle_timeout", orDefault(realm.getSsoSessionIdleTimeout(), 1800));
+        json.writeNumberField("sso_session_max_lifespan", orDefault(realm.getSsoSessionMaxLifespan(), 36000));
+        json.writeNumberField("offline_session_idle_timeout", orDefault(realm.getOfflineSessionIdleTimeout(), 2592000));
+        json.writeNumberField("offline_session_max_lifespan", orDefault(realm.getOfflineSessionMaxLifespan(), 5184000));
+        json.writeBooleanField("offline_session_max_lifespan_enabled", flag(realm.getOfflineSessionMaxLifespanEnabled()));
+        json.writeNumberField("access_code_lifespan", orDefault(realm.getAccessCodeLifespan(), 60));
+        json.writeNumberField("access_code_lifespan_user_action", orDefault(realm.getAccessCodeLifespanUserAction(), 300));
+        json.writeNumberField("access_code_lifespan_login", orDefault(realm.getAccessCodeLifespanLogin(), 1800));
+        json.writeNumberField("action_token_generated_by_admin_lifespan", 
+            orDefault(realm.getActionTokenGeneratedByAdminLifespan(), 43200));
+        json.writeNumberField("action_token_generated_by_user_lifespan", 
+            orDefault(realm.getActionTokenGeneratedByUserLifespan(), 300));
+        json.writeBooleanField("revoke_refresh_token", flag(realm.getRevokeRefreshToken()));
+        json.writeNumberField("refresh_token_max_reuse", orDefault(realm.getRefreshTokenMaxReuse(), 0));
+        if (realm.isBruteForceProtected() != null) {
+            json.writeBooleanField("brute_force_protected", realm.isBruteForceProtected());
+        }
+        if (realm.isPermanentLockout() != null) {
+            json.writeBooleanField("permanent_lockout", realm.isPermanentLockout());
+        }
+        writeNumberIfSet(json, "max_failure_wait_seconds", realm.getMaxFailureWaitSeconds());
+        writeNumberIfSet(json, "minimum_quick_login_wait_seconds", realm.getMinimumQuickLoginWaitSeconds());
+        writeNumberIfSet(json, "wait_increment_seconds", realm.getWaitIncrementSeconds());
+        if (realm.getQuickLoginCheckMilliSeconds() != null) {
+            json.writeNumberField("quick_login_check_millis", realm.getQuickLoginCheckMilliSeconds());
+        }
+        writeNumberIfSet(json, "max_delta_time_seconds", realm.getMaxDeltaTimeSeconds());
+        writeNumberIfSet(json, "failure_factor", realm.getFailureFactor());
+        json.writeEndObject();
+    }
+    
+    private void generateGroupsTfvarsModule(List<GroupRepresentation> groups, String baseDir, List<String> dependencies, 
+                                            String moduleSource, TerraformFileSink sink, TerraformSymbolTable symbols, 
+                                            References references) {
+        sink.file(baseDir + "/groups.auto.tfvars.json", TFVARS, hcl -> writeJson(hcl, json -> {
+            json.writeStartObject();
+            json.writeObjectFieldStart("groups");
+            for (GroupRepresentation group : groups) {
+                String path = group.getPath() != null ? group.getPath() : "/" + group.getName();
+                writeGroupTfvars(json, group, path, symbols, references);
+                if (group.getSubGroups() != null && !group.getSubGroups().isEmpty()) {
+                    json.writeObjectFieldStart("subGroups");
+                    for (GroupRepresentation subGroup : group.getSubGroups()) {
+                        String subPath = subGroup.getPath() != null ? subGroup.getPath() : path + "/" + subGroup.getName();
+                        writeGroupTfvars(json, subGroup, subPath, symbols, references);
+                        json.writeEndObject();
+                    }
+                    json.writeEndObject();
+                }
+                json.writeEndObject();
+            }
+            json.writeEndObject();
+            json.writeEndObject();
+        }));
+        sink.file(baseDir + "/terragrunt.hcl", "terragrunt", hcl -> {
+            writeRootInclude(hcl);
+            for (String dependency : dependencies) {
+                writeDependency(hcl, dependency);
+            }
+            writeModuleSource(hcl, moduleSource, "keycloak-groups");
+            hcl.object("inputs")
+                .expression("realm_id", "dependency.realm.outputs.realm_id");
+            if (dependencies.contains(ModuleDependencyGraph.ROLES)) {
+                hcl.expression("realm_roles", "dependency.roles.outputs.realm_role_ids");
+            }
+            hcl.end();
+        });
+    }
+    
+    /**
+     * Open the group's entry, keyed by its address, and write its fields; the caller closes it.
+     */
+    private void writeGroupTfvars(JsonGenerator json, GroupRepresentation group, String path, 
+                                  TerraformSymbolTable symbols, References references) throws IOException {
+        json.writeObjectFieldStart(symbols.name(TerraformSymbolTable.GROUPS, TerraformSymbolTable.groupKey(group)));
+        json.writeStringField("name", group.getName());
+        json.writeStringField("path", path);
+        if (group.getAttributes() != null && !group.getAttributes().isEmpty()) {
+            json.writeObjectFieldStart("attributes");
+            for (Map.Entry<String, List<String>> attribute : group.getAttributes().entrySet()) {
+                if (attribute.getValue() != null) {
+                    json.writeArrayFieldStart(attribute.getKey());
+                    for (String value : attribute.getValue()) {
+                        json.writeString(value);
+                    }
+                    json.writeEndArray();
                 }
-              }
             }
-            
-            """);
-            
-        if (realm.getClientScopes() != null) {
-            for (ClientScopeRepresentation scope : realm.getClientScopes()) {
-                content.append(generateClientScopeResource(realm, scope));
+            json.writeEndObject();
+        }
+        // modules/keycloak-groups looks every role up in the roles unit's outputs, so undefined ones are left out
+        if (group.getRealmRoles() != null && !group.getRealmRoles().isEmpty()) {
+            json.writeArrayFieldStart("realm_roles");
+            for (String role : new LinkedHashSet<>(group.getRealmRoles())) {
+                if (references.defined(ModuleDependencyGraph.ROLES, role)) {
+                    json.writeString(role);
+                }
             }
+            json.writeEndArray();
         }
-        
-        return content.toString();
     }
     
-    private String generateClientScopeResource(RealmRepresentation realm, ClientScopeRepresentation scope) {
-        String scopeName = sanitizeTerraformName(scope.getName());
+    private static void writeNumberIfSet(JsonGenerator json, String field, Integer value) throws IOException {
+        if (value != null) {
+            json.writeNumberField(field, value);
+        }
+    }
+    
+    private static int orDefault(Integer value, int defaultValue) {
+        return value != null ? value : defaultValue;
+    }
+    
+    /**
+     * Point the unit at a reusable module under the configured module source.
+     */
+    private void writeModuleSource(HclWriter hcl, String moduleSource, String module) {
+        hcl.block("terraform")
+            .expression("source", "\"" + moduleSource + "/" + module + "\"")
+            .end();
+    }
+    
+    /**
+     * Stream a JSON document into the file with Jackson, ending it with a newline.
+     */
+    private static void writeJson(HclWriter hcl, JsonContent content) {
+        try (JsonGenerator json = JSON_FACTORY.createGenerator(hcl.verbatim())) {
+            json.useDefaultPrettyPrinter();
+            content.write(json);
+            json.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    @FunctionalInterface
+    private interface JsonContent {
+        void write(JsonGenerator json) throws IOException;
+    }
+    
+    /**
+     * Whether the named entity is defined by the unit, so a reference to it can be rendered.
+     */
+    @FunctionalInterface
+    private interface References {
+        boolean defined(String unit, String name);
+    }
+    
+    // Shared HCL fragments
+    private void writeProviderRequirements(HclWriter hcl) {
+        hcl.block("terraform")
+            .block("required_providers")
+            .object("keycloak")
+            .attribute("source", "keycloak/keycloak")
+            .attribute("version", "~> 5.0")
+            .end()
+            .end()
+            .end();
+    }
+    
+    private void writeRootInclude(HclWriter hcl) {
+        hcl.block("include", "root")
+            .expression("path", "find_in_parent_folders()")
+            .end();
+    }
+    
+    private void writeDependency(HclWriter hcl, String module) {
+        writeDependency(hcl, module, "..");
+    }
+    
+    private void writeDependency(HclWriter hcl, String module, String modulesRoot) {
+        hcl.block("dependency", module)
+            .attribute("config_path", modulesRoot + "/" + module)
+            .end();
+    }
+    
+    private void writeLocalSource(HclWriter hcl) {
+        hcl.block("terraform")
+            .attribute("source", ".")
+            .end();
+    }
+    
+    /**
+     * Variables, outputs and Terragrunt configuration of the unit, written once every unit it
+     * references has been recorded. The role and group IDs the unit references come in as inputs
+     * from the outputs of the units defining them; user shards sit one level deeper.
+     *
+     * @param undefined references the main file renders although no unit defines them; they are
+     *                  declared so the unit stays valid, and Terraform asks for their values
+     */
+    private void generateUnitConfig(String baseDir, String unit, ModuleDependencyGraph graph, 
+                                    Map<String, Set<String>> undefined, TerraformFileSink sink, TerraformSymbolTable symbols) {
+        String unitDir = baseDir + "/" + unit;
+        String modulesRoot = unit.contains("/") ? "../.." : "..";
+        Map<String, Set<String>> references = graph.references(unit);
+        Set<String> roles = references.getOrDefault(ModuleDependencyGraph.ROLES, Set.of());
+        Set<String> groups = references.getOrDefault(ModuleDependencyGraph.GROUPS, Set.of());
+        Set<String> roleVariables = new TreeSet<>(roles);
+        roleVariables.addAll(undefined.getOrDefault(ModuleDependencyGraph.ROLES, Set.of()));
+        Set<String> groupVariables = new TreeSet<>(groups);
+        groupVariables.addAll(undefined.getOrDefault(ModuleDependencyGraph.GROUPS, Set.of()));
         
-        return String.format("""
-            resource "keycloak_openid_client_scope" "%s" {
-              realm_id    = var.realm_id
-              name        = "%s"
-              description = "%s"
-              
-              consent_screen_text = "%s"
-              include_in_token_scope = %s
+        sink.file(unitDir + "/variables.tf", "variables", hcl -> {
+            writeRealmIdVariable(hcl);
+            for (String role : roleVariables) {
+                writeIdVariable(hcl, roleIdVariable(role, symbols), "The ID of the realm role " + role);
             }
-            
-            """,
-            scopeName,
-            scope.getName(),
-            scope.getDescription() != null ? scope.getDescription() : "",
-            scope.getAttributes() != null ? scope.getAttributes().getOrDefault("consent.screen.text", "") : "",
-            scope.getAttributes() != null ? Boolean.parseBoolean(scope.getAttributes().getOrDefault("include.in.token.scope", "true")) : true
-        );
-    }
-    
-    private String generateClientScopesVariablesContent() {
-        return """
-            variable "realm_id" {
-              description = "The ID of the realm"
-              type        = string
+            for (String group : groupVariables) {
+                writeIdVariable(hcl, groupIdVariable(group, symbols), "The ID of the group " + group);
             }
-            """;
+        });
+        if (ModuleDependencyGraph.ROLES.equals(unit)) {
+            // modules/keycloak-groups looks role IDs up by name as well
+            sink.file(unitDir + "/outputs.tf", "outputs", hcl -> writeIdOutput(hcl, "realm_role_ids", 
+                "Map of realm role names to their IDs", graph.referencedDefinitions(unit), TerraformSymbolTable.ROLES, symbols));
+        } else if (ModuleDependencyGraph.GROUPS.equals(unit)) {
+            sink.file(unitDir + "/outputs.tf", "outputs", hcl -> writeIdOutput(hcl, "group_ids", 
+                "Map of group paths to their IDs", graph.referencedDefinitions(unit), TerraformSymbolTable.GROUPS, symbols));
+        }
+        sink.file(unitDir + "/terragrunt.hcl", "terragrunt", hcl -> {
+            writeRootInclude(hcl);
+            for (String dependency : graph.dependencies(unit)) {
+                writeDependency(hcl, dependency, modulesRoot);
+            }
+            writeLocalSource(hcl);
+            hcl.object("inputs")
+                .expression("realm_id", "dependency.realm.outputs.realm_id");
+            for (String role : roles) {
+                hcl.expression(roleIdVariable(role, symbols), 
+                    "dependency.roles.outputs.realm_role_ids[" + HclWriter.quote(role) + "]");
+            }
+            for (String group : groups) {
+                hcl.expression(groupIdVariable(group, symbols), 
+                    "dependency.groups.outputs.group_ids[" + HclWriter.quote(group) + "]");
+            }
+            hcl.end();
+        });
     }
     
-    private String generateClientScopesTerragruntConfig(RealmRepresentation realm) {
-        return """
-            include "root" {
-              path = find_in_parent_folders()
-            }
-            
-            dependency "realm" {
-              config_path = "../realm"
-            }
-            
-            terraform {
-              source = "."
-            }
-            
-            inputs = {
-              realm_id = dependency.realm.outputs.realm_id
-            }
-            """;
+    /**
+     * Output mapping the names other units reference entities by to their resource IDs.
+     */
+    private void writeIdOutput(HclWriter hcl, String output, String description, Map<String, String> definitions, 
+                               String resourceType, TerraformSymbolTable symbols) {
+        hcl.block("output", output)
+            .attribute("description", description)
+            .object("value");
+        definitions.forEach((name, key) -> hcl.expression(name, resourceType + "." + symbols.name(resourceType, key) + ".id"));
+        hcl.end()
+            .end();
     }
     
-    // Root Terragrunt configuration
-    private String generateRootTerragruntContent(RealmRepresentation realm) {
-        return String.format("""
-            include "root" {
-              path = find_in_parent_folders()
-            }
-            
-            # Dependencies between modules
-            dependencies {
-              paths = ["./realm"]
+    private static String roleIdVariable(String roleName, TerraformSymbolTable symbols) {
+        return "realm_role_" + symbols.name(TerraformSymbolTable.ROLES, roleName) + "_id";
+    }
+    
+    private static String groupIdVariable(String groupPath, TerraformSymbolTable symbols) {
+        return "group_" + symbols.name(TerraformSymbolTable.GROUP_PATHS, groupPath) + "_id";
+    }
+    
+    private void writeRealmIdVariable(HclWriter hcl) {
+        hcl.block("variable", "realm_id")
+            .attribute("description", "The ID of the realm")
+            .expression("type", "string")
+            .end();
+    }
+    
+    private void writeIdVariable(HclWriter hcl, String variable, String description) {
+        hcl.block("variable", variable)
+            .attribute("description", description)
+            .expression("type", "string")
+            .end();
+    }
+    
+    private void writeAttributes(HclWriter hcl, Map<String, List<String>> attributes) {
+        if (attributes == null || attributes.isEmpty()) {
+            return;
+        }
+        
+        hcl.object("attributes");
+        attributes.forEach((key, values) -> {
+            if (values != null && !values.isEmpty()) {
+                if (values.size() == 1) {
+                    hcl.attribute(key, values.get(0));
+                } else {
+                    hcl.list(key, values);
+                }
             }
-            
-            # Realm: %s
-            # Generated modules:
-            # - realm: Core realm configuration
-            # - roles: Realm roles and composite roles
-            # - groups: Group hierarchy and role assignments
-            # - users: User accounts and group memberships
-            # - clients: OAuth/OIDC clients and protocol mappers
-            # - identity-providers: External identity providers
-            # - authentication-flows: Custom authentication flows
-            # - client-scopes: Reusable client scopes
-            """, realm.getRealm());
+        });
+        hcl.end();
     }
     
     // Helper methods
-    private String sanitizeTerraformName(String name) {
-        if (name == null) return "unknown";
-        return name.replaceAll("[^a-zA-Z0-9_-]", "_").toLowerCase();
+    /**
+     * Stable key of an entity for the fragment index: its ID, or a natural key when the export has none.
+     */
+    private String entityKey(String id, String naturalKey) {
+        return id != null ? id : "~" + naturalKey;
+    }
+    
+    private boolean flag(Boolean value) {
+        return Boolean.TRUE.equals(value);
+    }
+    
+    private String seconds(Integer value, int defaultValue) {
+        return (value != null ? value : defaultValue) + "s";
     }
     
     private String determineAccessType(ClientRepresentation client) {
-        if (client.isPublicClient()) return "PUBLIC";
-        if (client.isBearerOnly()) return "BEARER-ONLY";
+        if (flag(client.isPublicClient())) return "PUBLIC";
+        if (flag(client.isBearerOnly())) return "BEARER-ONLY";
         return "CONFIDENTIAL";
     }
     
-    private String generatePasswordPolicyBlock(RealmRepresentation realm) {
+    private void generatePasswordPolicyBlock(HclWriter hcl, RealmRepresentation realm) {
         if (realm.getPasswordPolicy() == null || realm.getPasswordPolicy().isEmpty()) {
-            return "";
+            return;
         }
         
-        return String.format("""
-            password_policy = "%s"
-            """, realm.getPasswordPolicy());
+        hcl.attribute("password_policy", realm.getPasswordPolicy());
     }
     
-    private String generateOtpPolicyBlock(RealmRepresentation realm) {
+    private void generateOtpPolicyBlock(HclWriter hcl, RealmRepresentation realm) {
         if (realm.getOtpPolicyType() == null) {
-            return "";
+            return;
         }
         
-        return String.format("""
-            otp_policy {
-              type                     = "%s"
-              algorithm                = "%s"
-              digits                   = %d
-              initial_counter          = %d
-              look_ahead_window        = %d
-              period                   = %d
-            }
-            """,
-            realm.getOtpPolicyType(),
-            realm.getOtpPolicyAlgorithm() != null ? realm.getOtpPolicyAlgorithm() : "HmacSHA1",
-            realm.getOtpPolicyDigits() != null ? realm.getOtpPolicyDigits() : 6,
-            realm.getOtpPolicyInitialCounter() != null ? realm.getOtpPolicyInitialCounter() : 0,
-            realm.getOtpPolicyLookAheadWindow() != null ? realm.getOtpPolicyLookAheadWindow() : 1,
-            realm.getOtpPolicyPeriod() != null ? realm.getOtpPolicyPeriod() : 30
-        );
+        hcl.block("otp_policy")
+            .attribute("type", realm.getOtpPolicyType())
+            .attribute("algorithm", realm.getOtpPolicyAlgorithm() != null ? realm.getOtpPolicyAlgorithm() : "HmacSHA1")
+            .attribute("digits", realm.getOtpPolicyDigits() != null ? realm.getOtpPolicyDigits() : 6)
+            .attribute("initial_counter", realm.getOtpPolicyInitialCounter() != null ? realm.getOtpPolicyInitialCounter() : 0)
+            .attribute("look_ahead_window", realm.getOtpPolicyLookAheadWindow() != null ? realm.getOtpPolicyLookAheadWindow() : 1)
+            .attribute("period", realm.getOtpPolicyPeriod() != null ? realm.getOtpPolicyPeriod() : 30)
+            .end();
     }
     
-    private String generateBrowserSecurityHeadersBlock(RealmRepresentation realm) {
+    private void generateBrowserSecurityHeadersBlock(HclWriter hcl, RealmRepresentation realm) {
         if (realm.getBrowserSecurityHeaders() == null || realm.getBrowserSecurityHeaders().isEmpty()) {
-            return "";
+            return;
         }
         
-        StringBuilder headers = new StringBuilder();
-        headers.append("browser_security_headers {\n");
+        hcl.block("browser_security_headers");
+        realm.getBrowserSecurityHeaders().forEach((key, value) -> hcl.attribute(toSnakeCase(key), value));
+        hcl.end();
+    }
+    
+    private String toSnakeCase(String camelCase) {
+        StringBuilder snake = new StringBuilder(camelCase.length() + 8);
+        for (int i = 0; i < camelCase.length(); i++) {
+            char c = camelCase.charAt(i);
+            if (Character.isUpperCase(c)) {
+                snake.append('_').append(Character.toLowerCase(c));
+            } else {
+                snake.append(c);
+            }
+        }
+        return snake.toString();
+    }
+    
+    /**
+     * A module of the generation plan. The fingerprint covers exactly the input slice the
+     * generator reads, so equal fingerprints mean identical files.
+     */
+    private record ModuleGeneration(String name, int entities, Supplier<String> fingerprint, 
+                                    BiConsumer<TerraformFileSink, EntityFragments> generator) {
         
-        realm.getBrowserSecurityHeaders().forEach((key, value) -> {
-            headers.append(String.format("    %s = \"%s\"\n", 
-                key.replaceAll("([A-Z])", "_$1").toLowerCase(), value));
-        });
+        /**
+         * A module rendered from realm-level data, fingerprinted up front.
+         */
+        static ModuleGeneration settings(String name, int entities, Supplier<String> fingerprint, 
+                                         Consumer<TerraformFileSink> generator) {
+            return new ModuleGeneration(name, entities, fingerprint, (sink, fragments) -> generator.accept(sink));
+        }
         
-        headers.append("  }");
+        /**
+         * A module rendered entity by entity, fingerprinted from its entity fragments while rendering.
+         */
+        static ModuleGeneration entities(String name, int entities, BiConsumer<TerraformFileSink, EntityFragments> generator) {
+            return new ModuleGeneration(name, entities, null, generator);
+        }
         
-        return headers.toString();
+        /**
+         * The same module, handing its files to the sink the given one is wrapped in.
+         */
+        ModuleGeneration writingTo(UnaryOperator<TerraformFileSink> output) {
+            return new ModuleGeneration(name, entities, fingerprint, 
+                (sink, fragments) -> generator.accept(output.apply(sink), fragments));
+        }
     }
-}
\ No newline at end of file
+}
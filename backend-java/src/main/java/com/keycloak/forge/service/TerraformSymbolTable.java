@@ -0,0 +1,220 @@
+package com.keycloak.forge.service;
+
+import org.keycloak.representations.idm.ClientRepresentation;
+import org.keycloak.representations.idm.GroupRepresentation;
+import org.keycloak.representations.idm.ProtocolMapperRepresentation;
+import org.keycloak.representations.idm.RealmRepresentation;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Terraform resource addresses of one conversion.
+ *
+ * Every name is sanitized once into a valid identifier and memoized per namespace, so a role
+ * referenced by ten composites and groups is scanned once. Distinct names that sanitize to the
+ * same identifier, such as {@code a.b} and {@code a_b}, get deterministic {@code _2}, {@code _3}
+ * suffixes in the order they are first seen, so every address in a namespace is unique.
+ *
+ * {@link #declare(RealmRepresentation)} registers a whole realm up front in generation order,
+ * which makes the addresses independent of the order in which modules are then generated.
+ * Streaming conversion registers names as they are read instead; that yields the same addresses
+ * unless a reference is read before a colliding declaration.
+ */
+final class TerraformSymbolTable {
+
+    static final String ROLES = "keycloak_role";
+    static final String GROUPS = "keycloak_group";
+    static final String GROUP_PATHS = "group_path";
+    static final String USERS = "keycloak_user";
+    static final String CLIENTS = "keycloak_openid_client";
+    static final String PROTOCOL_MAPPERS = "keycloak_openid_user_attribute_protocol_mapper";
+    static final String IDENTITY_PROVIDERS = "keycloak_oidc_identity_provider";
+    static final String AUTHENTICATION_FLOWS = "keycloak_authentication_flow";
+    static final String CLIENT_SCOPES = "keycloak_openid_client_scope";
+
+    private static final String UNKNOWN = "unknown";
+
+    private final Map<String, Namespace> namespaces = new ConcurrentHashMap<>();
+    private final List<String> collisions = new ArrayList<>();
+
+    /**
+     * @return the address of the named entity in the namespace
+     */
+    String name(String namespace, String name) {
+        String key = name != null ? name : "";
+        Namespace symbols = namespace(namespace);
+        String address = symbols.addresses.get(key);
+        return address != null ? address : assign(namespace, symbols, key, sanitize(name));
+    }
+
+    /**
+     * @return the address of a name that only has to be unique within its scope, e.g. a mapper within its client
+     */
+    String scoped(String namespace, String scope, String name) {
+        return name(namespace + ":" + scope, name);
+    }
+
+    /**
+     * @return the address of a resource linking two addressed entities, e.g. a protocol mapper of a client
+     */
+    String pair(String namespace, String parent, String child) {
+        String key = parent + "\u0000" + child;
+        Namespace symbols = namespace(namespace);
+        String address = symbols.addresses.get(key);
+        return address != null ? address : assign(namespace, symbols, key, parent + "_" + child);
+    }
+
+    /**
+     * @return the address of the protocol mapper resource of the client
+     */
+    String protocolMapper(String clientAddress, String mapperName) {
+        return pair(PROTOCOL_MAPPERS, clientAddress, scoped(PROTOCOL_MAPPERS, clientAddress, mapperName));
+    }
+
+    /**
+     * Register every address of the realm in the order the modules are generated.
+     */
+    void declare(RealmRepresentation realm) {
+        if (realm.getRoles() != null && realm.getRoles().getRealm() != null) {
+            for (RoleRepresentation role : realm.getRoles().getRealm()) {
+                name(ROLES, role.getName());
+                if (role.isComposite() && role.getComposites() != null && role.getComposites().getRealm() != null) {
+                    role.getComposites().getRealm().forEach(composite -> name(ROLES, composite));
+                }
+            }
+        }
+        if (realm.getGroups() != null) {
+            realm.getGroups().forEach(this::declare);
+        }
+        if (realm.getUsers() != null) {
+            for (UserRepresentation user : realm.getUsers()) {
+                name(USERS, user.getUsername());
+                if (user.getGroups() != null) {
+                    user.getGroups().forEach(groupPath -> name(GROUP_PATHS, groupPath));
+                }
+            }
+        }
+        if (realm.getClients() != null) {
+            for (ClientRepresentation client : realm.getClients()) {
+                String clientAddress = name(CLIENTS, client.getClientId());
+                if (client.getProtocolMappers() != null) {
+                    for (ProtocolMapperRepresentation mapper : client.getProtocolMappers()) {
+                        protocolMapper(clientAddress, mapper.getName());
+                    }
+                }
+            }
+        }
+        if (realm.getIdentityProviders() != null) {
+            realm.getIdentityProviders().forEach(idp -> name(IDENTITY_PROVIDERS, idp.getAlias()));
+        }
+        if (realm.getAuthenticationFlows() != null) {
+            realm.getAuthenticationFlows().stream()
+                .filter(flow -> !flow.isBuiltIn())
+                .forEach(flow -> name(AUTHENTICATION_FLOWS, flow.getAlias()));
+        }
+        if (realm.getClientScopes() != null) {
+            realm.getClientScopes().forEach(scope -> name(CLIENT_SCOPES, scope.getName()));
+        }
+    }
+
+    /**
+     * Register the addresses of a group and all of its subgroups, parents before children.
+     * Hierarchies can be arbitrarily deep, so the walk keeps its own stack.
+     */
+    void declare(GroupRepresentation root) {
+        Deque<GroupRepresentation> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            GroupRepresentation group = pending.pop();
+            name(GROUPS, groupKey(group));
+            if (group.getRealmRoles() != null) {
+                group.getRealmRoles().forEach(roleName -> name(ROLES, roleName));
+            }
+            List<GroupRepresentation> subGroups = group.getSubGroups();
+            if (subGroups != null) {
+                for (int i = subGroups.size() - 1; i >= 0; i--) {
+                    pending.push(subGroups.get(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Groups are addressed by ID, falling back to the name for exports without IDs.
+     */
+    static String groupKey(GroupRepresentation group) {
+        return group.getId() != null ? group.getId() : group.getName();
+    }
+
+    /**
+     * Fingerprint of the addresses that needed a suffix so far; empty when nothing collided.
+     * Rendered fragments only stay valid while this is unchanged.
+     */
+    synchronized String collisionFingerprint() {
+        return collisions.isEmpty() ? "" : ContentHash.of(collisions);
+    }
+
+    /**
+     * Replace every character Terraform does not allow in an identifier with an underscore and
+     * lower-case the rest. Identifiers must not start with a digit or hyphen, so those get a
+     * leading underscore.
+     */
+    static String sanitize(String name) {
+        if (name == null || name.isEmpty()) {
+            return UNKNOWN;
+        }
+
+        char first = name.charAt(0);
+        boolean prefix = (first >= '0' && first <= '9') || first == '-';
+        StringBuilder out = new StringBuilder(name.length() + (prefix ? 1 : 0));
+        if (prefix) {
+            out.append('_');
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                out.append((char) (c + ('a' - 'A')));
+            } else if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '_' || c == '-') {
+                out.append(c);
+            } else {
+                out.append('_');
+            }
+        }
+        return out.toString();
+    }
+
+    private Namespace namespace(String namespace) {
+        return namespaces.computeIfAbsent(namespace, ignored -> new Namespace());
+    }
+
+    private synchronized String assign(String namespace, Namespace symbols, String key, String candidate) {
+        String address = symbols.addresses.get(key);
+        if (address != null) {
+            return address;
+        }
+
+        address = candidate;
+        for (int suffix = 2; !symbols.taken.add(address); suffix++) {
+            address = candidate + "_" + suffix;
+        }
+        if (!address.equals(candidate)) {
+            collisions.add(namespace + "\u0000" + key + "\u0000" + address);
+        }
+        symbols.addresses.put(key, address);
+        return address;
+    }
+
+    private static final class Namespace {
+        private final Map<String, String> addresses = new ConcurrentHashMap<>();
+        private final Set<String> taken = new HashSet<>();
+    }
+}
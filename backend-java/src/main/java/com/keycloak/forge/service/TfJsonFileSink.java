@@ -0,0 +1,33 @@
+package com.keycloak.forge.service;
+
+import com.keycloak.forge.hcl.HclWriter;
+import com.keycloak.forge.hcl.TfJsonWriter;
+
+import java.util.function.Consumer;
+
+/**
+ * {@link TerraformFileSink} that passes Terraform files on in JSON syntax: every {@code .tf} file
+ * becomes a {@code .tf.json} file written by a {@link TfJsonWriter}. Terragrunt configurations
+ * and files that are not HCL are passed on unchanged.
+ */
+final class TfJsonFileSink implements TerraformFileSink {
+
+    private final TerraformFileSink sink;
+
+    TfJsonFileSink(TerraformFileSink sink) {
+        this.sink = sink;
+    }
+
+    @Override
+    public void file(String filePath, String type, Consumer<HclWriter> content) {
+        if (!filePath.endsWith(".tf")) {
+            sink.file(filePath, type, content);
+            return;
+        }
+        sink.file(filePath + ".json", type, hcl -> {
+            TfJsonWriter json = new TfJsonWriter(hcl.verbatim());
+            content.accept(json);
+            json.close();
+        });
+    }
+}
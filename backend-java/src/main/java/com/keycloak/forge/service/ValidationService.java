@@ -1,23 +1,40 @@
 package com.keycloak.forge.service;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.Deque;
 import java.util.List;
-import java.util.Map;
-import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import jakarta.annotation.PreDestroy;
 
 import org.keycloak.admin.client.Keycloak;
 import org.keycloak.admin.client.resource.RealmResource;
+import org.keycloak.representations.idm.AuthenticationFlowRepresentation;
+import org.keycloak.representations.idm.ClientRepresentation;
+import org.keycloak.representations.idm.GroupRepresentation;
+import org.keycloak.representations.idm.IdentityProviderRepresentation;
 import org.keycloak.representations.idm.RealmRepresentation;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.keycloak.representations.idm.RolesRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.keycloak.forge.model.ConversionResult;
+import com.keycloak.forge.model.RealmFingerprint;
 import com.keycloak.forge.model.RoundTripValidation;
 import com.keycloak.forge.model.ValidationResult;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -28,12 +45,33 @@ import lombok.extern.slf4j.Slf4j;
  * 2. Original and exported realm.json match 100%
  */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class ValidationService {
 
     private final Keycloak keycloakClient;
-    private final ObjectMapper objectMapper;
+    // Shared by all exports, so concurrent validations together make at most fetch-parallelism admin API calls
+    private final ExecutorService fetchExecutor;
+
+    @Value("${app.validation.fetch-timeout:60}")
+    private long fetchTimeoutSeconds = 60;
+
+    @Value("${app.validation.page-size:500}")
+    private int pageSize = 500;
+
+    @Value("${app.validation.pages-in-flight:4}")
+    private int pagesInFlight = 4;
+
+    public ValidationService(Keycloak keycloakClient,
+                             @Value("${app.validation.fetch-parallelism:7}") int fetchParallelism) {
+        this.keycloakClient = keycloakClient;
+        this.fetchExecutor = Executors.newFixedThreadPool(Math.max(1, fetchParallelism),
+                new CustomizableThreadFactory("realm-export-"));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        fetchExecutor.shutdownNow();
+    }
 
     /**
      * Perform complete round-trip validation
@@ -43,13 +81,18 @@ public class ValidationService {
             String deployedRealmName) {
 
         log.info("Starting round-trip validation for realm: {}", deployedRealmName);
+        long startTime = System.nanoTime();
+        List<RoundTripValidation.ValidationStep> steps = new ArrayList<>();
 
         try {
-            // Step 1: Export the deployed realm
-            RealmRepresentation exportedRealm = exportDeployedRealm(deployedRealmName);
+            // Step 1: Export the deployed realm, comparing users and groups page by page as they arrive
+            RealmComparison realmComparison = new RealmComparison(originalRealm);
+            RealmRepresentation exportedRealm = exportDeployedRealm(deployedRealmName, steps,
+                    realmComparison::groups, realmComparison::users);
 
             // Step 2: Compare original vs exported
-            ValidationResult comparison = compareRealms(originalRealm, exportedRealm);
+            realmComparison.realm(exportedRealm);
+            ValidationResult comparison = realmComparison.result();
 
             // Step 3: Generate detailed report
             RoundTripValidation validation = RoundTripValidation.builder()
@@ -58,6 +101,8 @@ public class ValidationService {
                     .validationResult(comparison)
                     .timestamp(new Date())
                     .success(comparison.isValid())
+                    .steps(steps)
+                    .executionTimeMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime))
                     .build();
 
             log.info("Round-trip validation completed. Success: {}, Accuracy: {}%",
@@ -73,6 +118,69 @@ public class ValidationService {
                     .success(false)
                     .error("Validation failed: " + e.getMessage())
                     .timestamp(new Date())
+                    .steps(steps)
+                    .executionTimeMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime))
+                    .build();
+        }
+    }
+
+    /**
+     * Perform round-trip validation without deploying: the realm is read back from the
+     * generated HCL files instead of being exported from Keycloak.
+     *
+     * Only what the generated resources carry can survive, so this checks the conversion itself;
+     * provider behavior is only covered by {@link #performRoundTripValidation}.
+     */
+    public RoundTripValidation performOfflineRoundTripValidation(
+            RealmRepresentation originalRealm,
+            List<ConversionResult.TerraformFile> files) {
+
+        log.info("Starting offline round-trip validation for realm: {}", originalRealm.getRealm());
+        long startTime = System.nanoTime();
+        List<RoundTripValidation.ValidationStep> steps = new ArrayList<>();
+
+        try {
+            // Step 1: Read the realm back from the generated resources
+            long stepStart = System.nanoTime();
+            GeneratedRealmReader reader = new GeneratedRealmReader();
+            for (ConversionResult.TerraformFile file : files) {
+                reader.file(file.getFilePath(), file.getContent());
+            }
+            RealmRepresentation generatedRealm = reader.realm();
+            steps.add(RoundTripValidation.ValidationStep.builder()
+                    .name("read-generated")
+                    .success(true)
+                    .description("Read " + reader.resources() + " resources from " + files.size() + " files")
+                    .durationMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - stepStart))
+                    .build());
+
+            // Step 2: Compare original vs generated
+            ValidationResult comparison = compareRealms(originalRealm, generatedRealm);
+
+            RoundTripValidation validation = RoundTripValidation.builder()
+                    .originalRealm(originalRealm.getRealm())
+                    .deployedRealm(generatedRealm.getRealm())
+                    .validationResult(comparison)
+                    .timestamp(new Date())
+                    .success(comparison.isValid())
+                    .steps(steps)
+                    .executionTimeMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime))
+                    .build();
+
+            log.info("Offline round-trip validation completed. Success: {}, Accuracy: {}%",
+                    validation.isSuccess(), comparison.getAccuracyPercentage());
+
+            return validation;
+
+        } catch (Exception e) {
+            log.error("Offline round-trip validation failed for realm: {}", originalRealm.getRealm(), e);
+            return RoundTripValidation.builder()
+                    .originalRealm(originalRealm.getRealm())
+                    .success(false)
+                    .error("Validation failed: " + e.getMessage())
+                    .timestamp(new Date())
+                    .steps(steps)
+                    .executionTimeMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime))
                     .build();
         }
     }
@@ -81,24 +189,63 @@ public class ValidationService {
      * Export realm configuration from deployed Keycloak instance
      */
     public RealmRepresentation exportDeployedRealm(String realmName) {
+        List<GroupRepresentation> groups = new ArrayList<>();
+        List<UserRepresentation> users = new ArrayList<>();
+        RealmRepresentation realm = exportDeployedRealm(realmName, new ArrayList<>(), groups::addAll, users::addAll);
+        realm.setGroups(groups);
+        realm.setUsers(users);
+        return realm;
+    }
+
+    /**
+     * Export the realm, fetching the settings and each component concurrently on the shared
+     * {@code app.validation.fetch-parallelism} threads. Every fetch must finish within
+     * {@code app.validation.fetch-timeout} seconds of starting to run; time spent waiting for a free
+     * thread does not count. One step per fetch, with its duration, is appended to the steps in
+     * component order.
+     *
+     * Groups and users are not collected: they are walked in pages of {@code app.validation.page-size},
+     * and each page is handed to the given consumer as it arrives, so the returned realm has neither.
+     */
+    private RealmRepresentation exportDeployedRealm(String realmName, List<RoundTripValidation.ValidationStep> steps,
+                                                    Consumer<List<GroupRepresentation>> groupPages,
+                                                    Consumer<List<UserRepresentation>> userPages) {
         log.info("Exporting realm configuration for: {}", realmName);
 
         RealmResource realmResource = keycloakClient.realm(realmName);
-        RealmRepresentation realm = realmResource.toRepresentation();
-
-        // Export all components
-        realm.setGroups(realmResource.groups().groups());
-        realm.setUsers(realmResource.users().list());
-        realm.setRoles(new org.keycloak.representations.idm.RolesRepresentation());
-        realm.getRoles().setRealm(realmResource.roles().list());
-        realm.setClients(realmResource.clients().findAll());
-        realm.setIdentityProviders(realmResource.identityProviders().findAll());
-        realm.setAuthenticationFlows(realmResource.flows().getFlows());
+        List<ComponentFetch<?>> fetches = new ArrayList<>();
+        RealmRepresentation realm;
+        int groupCount;
+        int userCount;
+        try {
+            ComponentFetch<RealmRepresentation> settings = fetch("realm", realmResource::toRepresentation, fetches);
+            ComponentFetch<List<RoleRepresentation>> roles = fetch("roles", () -> realmResource.roles().list(), fetches);
+            ComponentFetch<List<ClientRepresentation>> clients = fetch("clients", () -> realmResource.clients().findAll(), fetches);
+            ComponentFetch<List<IdentityProviderRepresentation>> identityProviders = fetch("identity-providers",
+                    () -> realmResource.identityProviders().findAll(), fetches);
+            ComponentFetch<List<AuthenticationFlowRepresentation>> flows = fetch("authentication-flows",
+                    () -> realmResource.flows().getFlows(), fetches);
+
+            // Assemble in a fixed order so the steps and the representation do not depend on completion order
+            realm = settings.await(steps);
+            groupCount = walkPages("groups", (first, max) -> realmResource.groups().groups(null, first, max, false),
+                    groupPages, steps);
+            userCount = walkPages("users", (first, max) -> realmResource.users().list(first, max),
+                    userPages, steps);
+            realm.setRoles(new RolesRepresentation());
+            realm.getRoles().setRealm(roles.await(steps));
+            realm.setClients(clients.await(steps));
+            realm.setIdentityProviders(identityProviders.await(steps));
+            realm.setAuthenticationFlows(flows.await(steps));
+        } finally {
+            // Frees the shared threads from fetches still queued or running after a failure or timeout
+            fetches.forEach(ComponentFetch::cancel);
+        }
 
         log.info("Successfully exported realm: {} with {} groups, {} users, {} roles, {} clients",
                 realmName,
-                realm.getGroups() != null ? realm.getGroups().size() : 0,
-                realm.getUsers() != null ? realm.getUsers().size() : 0,
+                groupCount,
+                userCount,
                 realm.getRoles() != null ? realm.getRoles().getRealm().size() : 0,
                 realm.getClients() != null ? realm.getClients().size() : 0);
 
@@ -109,169 +256,207 @@ public class ValidationService {
      * Compare two realm representations for fidelity
      */
     public ValidationResult compareRealms(RealmRepresentation original, RealmRepresentation exported) {
-        log.info("Comparing realms: {} vs {}", original.getRealm(), exported.getRealm());
+        RealmComparison comparison = new RealmComparison(original);
+        if (exported.getGroups() != null) {
+            comparison.groups(exported.getGroups());
+        }
+        if (exported.getUsers() != null) {
+            comparison.users(exported.getUsers());
+        }
+        comparison.realm(exported);
+        return comparison.result();
+    }
 
-        ValidationResult.ValidationResultBuilder resultBuilder = ValidationResult.builder();
-        List<String> differences = new ArrayList<>();
-        List<String> warnings = new ArrayList<>();
-        Map<String, Double> componentAccuracy = new HashMap<>();
+    /**
+     * Fingerprint a realm representation, e.g. to store it as a baseline
+     */
+    public RealmFingerprint fingerprintRealm(RealmRepresentation realm) {
+        return RealmFingerprints.of(realm);
+    }
 
-        try {
-            // Convert to JsonNodes for deep comparison
-            JsonNode originalNode = objectMapper.valueToTree(original);
-            JsonNode exportedNode = objectMapper.valueToTree(exported);
-
-            // Compare realm settings
-            double realmAccuracy = compareRealmSettings(originalNode, exportedNode, differences);
-            componentAccuracy.put("realm", realmAccuracy);
-
-            // Compare groups
-            double groupsAccuracy = compareGroups(original.getGroups(), exported.getGroups(), differences);
-            componentAccuracy.put("groups", groupsAccuracy);
-
-            // Compare users
-            double usersAccuracy = compareUsers(original.getUsers(), exported.getUsers(), differences);
-            componentAccuracy.put("users", usersAccuracy);
-
-            // Compare roles
-            double rolesAccuracy = compareRoles(original.getRoles(), exported.getRoles(), differences);
-            componentAccuracy.put("roles", rolesAccuracy);
-
-            // Compare clients
-            double clientsAccuracy = compareClients(original.getClients(), exported.getClients(), differences);
-            componentAccuracy.put("clients", clientsAccuracy);
-
-            // Calculate overall accuracy
-            double overallAccuracy = componentAccuracy.values().stream()
-                    .mapToDouble(Double::doubleValue)
-                    .average()
-                    .orElse(0.0);
-
-            boolean isValid = differences.isEmpty() && overallAccuracy >= 99.0;
-
-            log.info("Realm comparison completed. Overall accuracy: {}%, Valid: {}, Differences: {}",
-                    String.format("%.2f", overallAccuracy), isValid, differences.size());
-
-            return resultBuilder
-                    .valid(isValid)
-                    .accuracyPercentage(overallAccuracy)
-                    .differences(differences)
-                    .warnings(warnings)
-                    .componentAccuracy(componentAccuracy)
-                    .totalElements(countElements(original))
-                    .matchedElements(countMatchedElements(original, exported))
-                    .build();
+    /**
+     * Fingerprint the realm currently deployed in Keycloak
+     */
+    public RealmFingerprint fingerprintDeployedRealm(String realmName) {
+        return RealmFingerprints.of(exportDeployedRealm(realmName));
+    }
 
-        } catch (Exception e) {
-            log.error("Realm comparison failed", e);
-            differences.add("Comparison failed: " + e.getMessage());
-            return resultBuilder
-                    .valid(false)
-                    .accuracyPercentage(0.0)
-                    .differences(differences)
-                    .warnings(warnings)
-                    .build();
-        }
+    /**
+     * Compare a stored baseline fingerprint against another fingerprint without the realms themselves
+     */
+    public ValidationResult compareFingerprints(RealmFingerprint baseline, RealmFingerprint current) {
+        ValidationResult result = RealmFingerprints.compare(baseline, current);
+        log.info("Fingerprint comparison completed. Roots match: {}, Differences: {}",
+                baseline.getRoot() != null && baseline.getRoot().equals(current.getRoot()), result.getDifferences().size());
+        return result;
     }
 
-    private double compareRealmSettings(JsonNode original, JsonNode exported, List<String> differences) {
-        String[] criticalFields = {
-                "realm", "enabled", "displayName", "registrationAllowed", "loginWithEmailAllowed",
-                "duplicateEmailsAllowed", "resetPasswordAllowed", "editUsernameAllowed",
-                "ssoSessionIdleTimeout", "ssoSessionMaxLifespan", "accessTokenLifespan"
-        };
-
-        int totalFields = criticalFields.length;
-        int matchedFields = 0;
-
-        for (String field : criticalFields) {
-            JsonNode originalValue = original.get(field);
-            JsonNode exportedValue = exported.get(field);
-
-            if (Objects.equals(originalValue, exportedValue)) {
-                matchedFields++;
-            } else {
-                differences.add(String.format("Realm setting '%s': original='%s', exported='%s'",
-                        field, originalValue, exportedValue));
+    /**
+     * Walk a paginated listing with up to {@code app.validation.pages-in-flight} page requests running
+     * at once, handing each page to the consumer on the calling thread in order. The walk ends with
+     * the first page that is not full; the first page is always handed over, even when empty.
+     *
+     * @return number of elements walked
+     */
+    private <T> int walkPages(String component, PageFetch<T> pageFetch, Consumer<List<T>> consumer,
+                              List<RoundTripValidation.ValidationStep> steps) {
+        long startTime = System.nanoTime();
+        Deque<ComponentFetch<List<T>>> inFlight = new ArrayDeque<>();
+        int nextFirst = 0;
+        int total = 0;
+        boolean exhausted = false;
+        try {
+            while (true) {
+                while (!exhausted && inFlight.size() < Math.max(1, pagesInFlight)) {
+                    int first = nextFirst;
+                    inFlight.add(fetch(component, () -> pageFetch.page(first, pageSize), null));
+                    nextFirst += pageSize;
+                }
+                ComponentFetch<List<T>> next = inFlight.poll();
+                if (next == null) {
+                    break;
+                }
+
+                List<T> page = next.get();
+                if (page == null) {
+                    page = List.of();
+                }
+                if (page.size() < pageSize) {
+                    // Later pages already in flight are past the end and come back empty
+                    exhausted = true;
+                    inFlight.forEach(ComponentFetch::cancel);
+                    inFlight.clear();
+                }
+                if (total == 0 || !page.isEmpty()) {
+                    consumer.accept(page);
+                }
+                total += page.size();
             }
+        } catch (TimeoutException e) {
+            steps.add(pageStep(component, startTime, total, "Timed out after " + fetchTimeoutSeconds + "s"));
+            throw new IllegalStateException("Failed to fetch " + component + ": Timed out after " + fetchTimeoutSeconds + "s", e);
+        } catch (ExecutionException e) {
+            steps.add(pageStep(component, startTime, total, e.getCause().getMessage()));
+            throw new IllegalStateException("Failed to fetch " + component + ": " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while fetching " + component, e);
+        } finally {
+            inFlight.forEach(ComponentFetch::cancel);
         }
 
-        return (double) matchedFields / totalFields * 100.0;
+        steps.add(pageStep(component, startTime, total, null));
+        return total;
     }
 
-    private double compareGroups(List<?> originalGroups, List<?> exportedGroups, List<String> differences) {
-        if (originalGroups == null && exportedGroups == null)
-            return 100.0;
-        if (originalGroups == null || exportedGroups == null) {
-            differences.add("Groups mismatch: one is null");
-            return 0.0;
-        }
-
-        if (originalGroups.size() != exportedGroups.size()) {
-            differences.add(String.format("Groups count mismatch: original=%d, exported=%d",
-                    originalGroups.size(), exportedGroups.size()));
-        }
-
-        // Detailed group comparison logic would go here
-        // For now, return basic size comparison
-        return originalGroups.size() == exportedGroups.size() ? 100.0
-                : Math.max(0, 100.0 - Math.abs(originalGroups.size() - exportedGroups.size()) * 10.0);
+    private RoundTripValidation.ValidationStep pageStep(String component, long startTime, int elements, String error) {
+        return RoundTripValidation.ValidationStep.builder()
+                .name("fetch-" + component)
+                .description("Fetch " + elements + " " + component + " from the deployed realm in pages of " + pageSize)
+                .success(error == null)
+                .durationMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime))
+                .error(error)
+                .build();
     }
 
-    private double compareUsers(List<?> originalUsers, List<?> exportedUsers, List<String> differences) {
-        if (originalUsers == null && exportedUsers == null)
-            return 100.0;
-        if (originalUsers == null || exportedUsers == null) {
-            differences.add("Users mismatch: one is null");
-            return 0.0;
-        }
+    /**
+     * One page of a paginated admin API listing.
+     */
+    @FunctionalInterface
+    private interface PageFetch<T> {
+        List<T> page(int first, int max);
+    }
 
-        if (originalUsers.size() != exportedUsers.size()) {
-            differences.add(String.format("Users count mismatch: original=%d, exported=%d",
-                    originalUsers.size(), exportedUsers.size()));
+    /**
+     * Submit a call to the shared executor, adding it to the fetches of the export when given.
+     */
+    private <T> ComponentFetch<T> fetch(String component, Supplier<T> call, List<ComponentFetch<?>> fetches) {
+        ComponentFetch<T> fetch = new ComponentFetch<>(component, fetchTimeoutSeconds);
+        fetch.future = fetchExecutor.submit(() -> {
+            fetch.startTime = System.nanoTime();
+            try {
+                return call.get();
+            } finally {
+                fetch.endTime = System.nanoTime();
+            }
+        });
+        if (fetches != null) {
+            fetches.add(fetch);
         }
-
-        return originalUsers.size() == exportedUsers.size() ? 100.0
-                : Math.max(0, 100.0 - Math.abs(originalUsers.size() - exportedUsers.size()) * 10.0);
+        return fetch;
     }
 
-    private double compareRoles(Object originalRoles, Object exportedRoles, List<String> differences) {
-        // Role comparison logic
-        return 100.0; // Simplified for now
-    }
+    /**
+     * One component fetch in flight, timed from the moment it starts running.
+     */
+    private static final class ComponentFetch<T> {
+
+        private final String component;
+        private final long timeoutSeconds;
+        private Future<T> future;
+        private volatile long startTime;
+        private volatile long endTime;
 
-    private double compareClients(List<?> originalClients, List<?> exportedClients, List<String> differences) {
-        if (originalClients == null && exportedClients == null)
-            return 100.0;
-        if (originalClients == null || exportedClients == null) {
-            differences.add("Clients mismatch: one is null");
-            return 0.0;
+        ComponentFetch(String component, long timeoutSeconds) {
+            this.component = component;
+            this.timeoutSeconds = timeoutSeconds;
         }
 
-        if (originalClients.size() != exportedClients.size()) {
-            differences.add(String.format("Clients count mismatch: original=%d, exported=%d",
-                    originalClients.size(), exportedClients.size()));
+        /**
+         * Wait for the result, allowing the call its timeout from the moment it starts running.
+         * While it waits for a free thread, the wait is extended; every running call ends or is
+         * cancelled within its own timeout, so queued calls keep moving.
+         */
+        T get() throws InterruptedException, ExecutionException, TimeoutException {
+            long timeoutNanos = TimeUnit.SECONDS.toNanos(timeoutSeconds);
+            while (true) {
+                long started = startTime;
+                long remaining = started == 0 ? timeoutNanos : started + timeoutNanos - System.nanoTime();
+                try {
+                    // A call that already finished is returned even when it is awaited late
+                    return future.get(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    if (startTime != 0 && System.nanoTime() - startTime >= timeoutNanos) {
+                        cancel();
+                        throw e;
+                    }
+                }
+            }
         }
 
-        return originalClients.size() == exportedClients.size() ? 100.0
-                : Math.max(0, 100.0 - Math.abs(originalClients.size() - exportedClients.size()) * 10.0);
-    }
+        T await(List<RoundTripValidation.ValidationStep> steps) {
+            try {
+                T value = get();
+                steps.add(step(true, null));
+                return value;
+            } catch (TimeoutException e) {
+                String error = "Timed out after " + timeoutSeconds + "s";
+                steps.add(step(false, error));
+                throw new IllegalStateException("Failed to fetch " + component + ": " + error, e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                steps.add(step(false, cause.getMessage()));
+                throw new IllegalStateException("Failed to fetch " + component + ": " + cause.getMessage(), cause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while fetching " + component, e);
+            }
+        }
 
-    private int countElements(RealmRepresentation realm) {
-        int count = 1; // realm itself
-        if (realm.getGroups() != null)
-            count += realm.getGroups().size();
-        if (realm.getUsers() != null)
-            count += realm.getUsers().size();
-        if (realm.getRoles() != null && realm.getRoles().getRealm() != null)
-            count += realm.getRoles().getRealm().size();
-        if (realm.getClients() != null)
-            count += realm.getClients().size();
-        return count;
-    }
+        void cancel() {
+            future.cancel(true);
+        }
 
-    private int countMatchedElements(RealmRepresentation original, RealmRepresentation exported) {
-        // Simplified counting - would need detailed comparison
-        return countElements(exported);
+        private RoundTripValidation.ValidationStep step(boolean success, String error) {
+            long durationMs = startTime == 0 ? 0
+                    : TimeUnit.NANOSECONDS.toMillis((endTime != 0 ? endTime : System.nanoTime()) - startTime);
+            return RoundTripValidation.ValidationStep.builder()
+                    .name("fetch-" + component)
+                    .description("Fetch " + component + " from the deployed realm")
+                    .success(success)
+                    .durationMs(durationMs)
+                    .error(error)
+                    .build();
+        }
     }
 }
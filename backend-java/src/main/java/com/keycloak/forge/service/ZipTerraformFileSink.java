@@ -0,0 +1,63 @@
+package com.keycloak.forge.service;
+
+import com.keycloak.forge.hcl.HclWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * {@link TerraformFileSink} that writes every file as an entry of a ZIP stream.
+ *
+ * Content is encoded straight into the entry as it is generated; only the
+ * writer's buffer is held in memory, regardless of realm size.
+ *
+ * Entry names must be relative paths without {@code .} or {@code ..} segments,
+ * so the archive can be unpacked without writing outside its target directory.
+ */
+public class ZipTerraformFileSink implements TerraformFileSink {
+
+    private final ZipOutputStream zip;
+    private final Writer writer;
+    private int entries;
+
+    public ZipTerraformFileSink(ZipOutputStream zip) {
+        this.zip = zip;
+        this.writer = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void file(String filePath, String type, Consumer<HclWriter> content) {
+        requireSafeEntryName(filePath);
+        try {
+            zip.putNextEntry(new ZipEntry(filePath));
+            content.accept(new HclWriter(writer));
+            writer.flush();
+            zip.closeEntry();
+            entries++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write archive entry " + filePath, e);
+        }
+    }
+
+    public int getEntries() {
+        return entries;
+    }
+
+    private static void requireSafeEntryName(String filePath) {
+        if (filePath == null || filePath.isEmpty() || filePath.startsWith("/") || filePath.indexOf('\\') >= 0) {
+            throw new IllegalArgumentException("Unsafe archive entry name: " + filePath);
+        }
+        for (String segment : filePath.split("/", -1)) {
+            if (segment.isEmpty() || segment.equals(".") || segment.equals("..")) {
+                throw new IllegalArgumentException("Unsafe archive entry name: " + filePath);
+            }
+        }
+    }
+}
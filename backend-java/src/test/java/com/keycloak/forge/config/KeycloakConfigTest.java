@@ -0,0 +1,64 @@
+package com.keycloak.forge.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.keycloak.admin.client.Keycloak;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("Keycloak Config Tests")
+class KeycloakConfigTest {
+
+    private KeycloakConfig config;
+
+    @BeforeEach
+    void setUp() {
+        config = new KeycloakConfig();
+        ReflectionTestUtils.setField(config, "keycloakUrl", "http://localhost:8090");
+        ReflectionTestUtils.setField(config, "adminUsername", "admin");
+        ReflectionTestUtils.setField(config, "adminPassword", "admin");
+        ReflectionTestUtils.setField(config, "clientId", "admin-cli");
+        ReflectionTestUtils.setField(config, "realm", "master");
+        ReflectionTestUtils.setField(config, "maxConnections", 12);
+        ReflectionTestUtils.setField(config, "maxConnectionsPerRoute", 6);
+    }
+
+    @Test
+    @DisplayName("Should bound the admin client connection pool and publish its usage")
+    void shouldBoundConnectionPoolAndPublishMetrics() {
+        // Given
+        PoolingHttpClientConnectionManager connectionManager = config.keycloakConnectionManager();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+        // When
+        config.keycloakConnectionPoolMetrics(connectionManager).bindTo(registry);
+
+        // Then
+        assertThat(connectionManager.getMaxTotal()).isEqualTo(12);
+        assertThat(connectionManager.getDefaultMaxPerRoute()).isEqualTo(6);
+        assertThat(registry.get("httpcomponents.httpclient.pool.total.max")
+            .tag("httpclient", "keycloak-admin").gauge().value()).isEqualTo(12.0);
+        assertThat(registry.get("httpcomponents.httpclient.pool.total.pending").gauge().value()).isZero();
+        connectionManager.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should build the admin client on the shared pool without contacting Keycloak")
+    void shouldBuildAdminClientOnSharedPool() {
+        // Given
+        PoolingHttpClientConnectionManager connectionManager = config.keycloakConnectionManager();
+
+        // When
+        Keycloak keycloak = config.keycloak(connectionManager);
+        keycloak.close();
+
+        // Then
+        assertThat(keycloak.isClosed()).isTrue();
+        assertThat(connectionManager.getTotalStats().getLeased()).isZero();
+        connectionManager.shutdown();
+    }
+}
@@ -0,0 +1,61 @@
+package com.keycloak.forge.hcl;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("HclReader Tests")
+class HclReaderTest {
+
+    @Test
+    @DisplayName("Should read back blocks, values and expressions written by the HCL writer")
+    void shouldReadBackWrittenHcl() {
+        // Given
+        StringBuilder out = new StringBuilder();
+        HclWriter hcl = new HclWriter(out);
+        hcl.comment("Generated resources");
+        hcl.block("resource", "keycloak_openid_client", "web-app")
+            .expression("realm_id", "var.realm_id")
+            .attribute("client_id", "web-app \"${a}\" %{b}\n")
+            .attribute("enabled", true)
+            .attribute("access_token_lifespan", 300)
+            .list("web_origins", List.of("https://a.example", "+"))
+            .expressionList("depends_on", List.of("keycloak_role.admin.id"))
+            .object("extra_config")
+            .attribute("hide-on-login", "true")
+            .end()
+            .end();
+
+        // When
+        HclReader.Body body = HclReader.parse(out);
+
+        // Then
+        assertThat(body.attributes()).isEmpty();
+        assertThat(body.blocks("resource")).singleElement().satisfies(block -> {
+            assertThat(block.labels()).containsExactly("keycloak_openid_client", "web-app");
+            assertThat(block.body().attributes())
+                .containsEntry("realm_id", new HclReader.Expression("var.realm_id"))
+                .containsEntry("client_id", "web-app \"${a}\" %{b}\n")
+                .containsEntry("enabled", true)
+                .containsEntry("access_token_lifespan", 300L)
+                .containsEntry("web_origins", List.of("https://a.example", "+"))
+                .containsEntry("depends_on", List.of(new HclReader.Expression("keycloak_role.admin.id")))
+                .containsEntry("extra_config", Map.of("hide-on-login", "true"));
+        });
+    }
+
+    @Test
+    @DisplayName("Should report the line of a syntax error")
+    void shouldReportLineOfSyntaxError() {
+        assertThatThrownBy(() -> HclReader.parse("locals {\n  name = \"unterminated\n}\n"))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("Unterminated string");
+        assertThatThrownBy(() -> HclReader.parse("locals {\n  name = \"a\"\n  = 1\n}\n"))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("Expected a name at line 3");
+    }
+}
@@ -0,0 +1,121 @@
+package com.keycloak.forge.hcl;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("HclWriter Tests")
+class HclWriterTest {
+
+    @Test
+    @DisplayName("Should write nested blocks, attributes and lists")
+    void shouldWriteNestedBlocksAttributesAndLists() {
+        // Given
+        StringBuilder out = new StringBuilder();
+        HclWriter hcl = new HclWriter(out);
+
+        // When
+        hcl.block("resource", "keycloak_openid_client", "web-app")
+            .expression("realm_id", "var.realm_id")
+            .attribute("client_id", "web-app")
+            .attribute("enabled", true)
+            .attribute("access_token_lifespan", 300)
+            .list("web_origins", List.of("https://a.example", "https://b.example"))
+            .end();
+
+        // Then
+        assertThat(out.toString()).isEqualTo("""
+            resource "keycloak_openid_client" "web-app" {
+              realm_id = var.realm_id
+              client_id = "web-app"
+              enabled = true
+              access_token_lifespan = 300
+              web_origins = ["https://a.example", "https://b.example"]
+            }
+            """);
+    }
+
+    @Test
+    @DisplayName("Should separate top-level blocks with a blank line")
+    void shouldSeparateTopLevelBlocks() {
+        // Given
+        StringBuilder out = new StringBuilder();
+        HclWriter hcl = new HclWriter(out);
+
+        // When
+        hcl.block("variable", "a").end();
+        hcl.block("variable", "b").end();
+
+        // Then
+        assertThat(out.toString()).isEqualTo("variable \"a\" {\n}\n\nvariable \"b\" {\n}\n");
+    }
+
+    @Test
+    @DisplayName("Should escape quotes, backslashes and template sequences")
+    void shouldEscapeStringValues() {
+        // Given
+        StringBuilder out = new StringBuilder();
+        HclWriter hcl = new HclWriter(out);
+
+        // When
+        hcl.attribute("description", "say \"hi\" \\ ${role_admin} %{if} 100% $5\n");
+
+        // Then
+        assertThat(out.toString())
+            .isEqualTo("description = \"say \\\"hi\\\" \\\\ $${role_admin} %%{if} 100% $5\\n\"\n");
+    }
+
+    @Test
+    @DisplayName("Should quote map keys that are not identifiers")
+    void shouldQuoteNonIdentifierMapKeys() {
+        // Given
+        StringBuilder out = new StringBuilder();
+        HclWriter hcl = new HclWriter(out);
+        Map<String, String> config = new LinkedHashMap<>();
+        config.put("syncMode", "IMPORT");
+        config.put("consent.screen.text", "Allow");
+        config.put("skipped", null);
+
+        // When
+        hcl.map("extra_config", config);
+
+        // Then
+        assertThat(out.toString()).isEqualTo("""
+            extra_config = {
+              syncMode = "IMPORT"
+              "consent.screen.text" = "Allow"
+            }
+            """);
+    }
+
+    @Test
+    @DisplayName("Should splice pre-rendered fragments as top-level blocks")
+    void shouldSpliceFragments() {
+        // Given
+        StringBuilder fragment = new StringBuilder();
+        new HclWriter(fragment).block("variable", "b").end();
+        StringBuilder out = new StringBuilder();
+        HclWriter hcl = new HclWriter(out);
+
+        // When
+        hcl.block("variable", "a").end();
+        hcl.fragment(fragment).fragment("");
+        hcl.block("variable", "c").end();
+
+        // Then
+        assertThat(out.toString()).isEqualTo("variable \"a\" {\n}\n\nvariable \"b\" {\n}\n\nvariable \"c\" {\n}\n");
+    }
+
+    @Test
+    @DisplayName("Should reject ending a block that was never opened")
+    void shouldRejectUnbalancedEnd() {
+        HclWriter hcl = new HclWriter(new StringBuilder());
+
+        assertThatThrownBy(hcl::end).isInstanceOf(IllegalStateException.class);
+    }
+}
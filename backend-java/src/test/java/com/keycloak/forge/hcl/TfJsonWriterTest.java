@@ -0,0 +1,67 @@
+package com.keycloak.forge.hcl;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("TfJsonWriter Tests")
+class TfJsonWriterTest {
+
+    @Test
+    @DisplayName("Should write blocks as nested objects with templates for expressions")
+    void shouldWriteBlocksAsNestedObjects() {
+        // Given
+        StringBuilder out = new StringBuilder();
+        TfJsonWriter json = new TfJsonWriter(out);
+
+        // When
+        json.block("variable", "realm_id")
+            .expression("type", "string")
+            .end();
+        json.comment("Not representable in JSON");
+        json.block("resource", "keycloak_openid_client", "web-app")
+            .expression("realm_id", "var.realm_id")
+            .attribute("client_id", "web-app \"${a}\" %{b}")
+            .attribute("enabled", true)
+            .attribute("access_token_lifespan", 300)
+            .list("web_origins", List.of("https://a.example"))
+            .expressionList("depends_on", List.of("keycloak_role.admin.id"))
+            .object("extra_config")
+            .attribute("key", "value")
+            .end()
+            .end();
+        json.close();
+
+        // Then
+        assertThat(out.toString()).isEqualTo("{\"variable\":{\"realm_id\":{\"type\":\"string\"}},\n"
+            + "\"resource\":{\"keycloak_openid_client\":{\"web-app\":{\"realm_id\":\"${var.realm_id}\","
+            + "\"client_id\":\"web-app \\\"$${a}\\\" %%{b}\",\"enabled\":true,\"access_token_lifespan\":300,"
+            + "\"web_origins\":[\"https://a.example\"],\"depends_on\":[\"${keycloak_role.admin.id}\"],"
+            + "\"extra_config\":{\"key\":\"value\"}}}}}\n");
+    }
+
+    @Test
+    @DisplayName("Should splice fragments rendered by a fork between top-level blocks")
+    void shouldSpliceForkedFragments() {
+        // Given
+        StringBuilder fragment = new StringBuilder();
+        StringBuilder out = new StringBuilder();
+        TfJsonWriter json = new TfJsonWriter(out);
+        HclWriter fork = json.fork(fragment);
+        fork.block("resource", "keycloak_group", "b").attribute("name", "b").end();
+        fork.block("resource", "keycloak_group", "c").attribute("name", "c").end();
+
+        // When
+        json.block("resource", "keycloak_group", "a").attribute("name", "a").end();
+        json.fragment(fragment);
+        json.close();
+
+        // Then
+        assertThat(out.toString()).isEqualTo("{\"resource\":{\"keycloak_group\":{\"a\":{\"name\":\"a\"}}},\n"
+            + "\"resource\":{\"keycloak_group\":{\"b\":{\"name\":\"b\"}}},\n"
+            + "\"resource\":{\"keycloak_group\":{\"c\":{\"name\":\"c\"}}}}\n");
+    }
+}
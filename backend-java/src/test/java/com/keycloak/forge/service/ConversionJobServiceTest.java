@@ -0,0 +1,151 @@
+package com.keycloak.forge.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.keycloak.forge.model.ConversionRequest;
+import com.keycloak.forge.model.ConversionResult;
+import com.keycloak.forge.utils.TestDataFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.idm.RealmRepresentation;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("Conversion Job Service Tests")
+class ConversionJobServiceTest {
+
+    private ConversionJobService jobService;
+
+    @AfterEach
+    void tearDown() {
+        jobService.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should run a submitted conversion and report per-module progress")
+    void shouldRunSubmittedConversionWithModuleProgress() throws InterruptedException {
+        // Given
+        KeycloakService keycloakService = new KeycloakService(
+            new TerraformGeneratorService(), new ConversionResultCache(new SimpleMeterRegistry(), false, 1, 1),
+            new ObjectMapper(), new SimpleMeterRegistry(), 1);
+        jobService = new ConversionJobService(keycloakService, 1, 1, 3600, 2);
+
+        // When
+        ConversionResult submitted = jobService.submit(TestDataFactory.createComprehensiveRealm(),
+            new ConversionRequest.ConversionOptions());
+        ConversionResult status = awaitFinished(submitted.getConversionId());
+
+        // Then
+        assertThat(submitted.getConversionId()).isNotBlank();
+        assertThat(status.getStatus()).isEqualTo(ConversionJobService.COMPLETED);
+        assertThat(status.isSuccess()).isTrue();
+        assertThat(status.getFiles()).isNotEmpty();
+        assertThat(status.getAnalysis()).isNotNull();
+        assertThat(status.getProgress())
+            .extracting(ConversionResult.ModuleProgress::getModule)
+            .contains("realm", "roles", "groups", "users", "clients", "root");
+        assertThat(status.getProgress())
+            .allSatisfy(module -> {
+                assertThat(module.getStatus()).isEqualTo(ConversionJobService.COMPLETED);
+                assertThat(module.getFilesGenerated()).isPositive();
+            });
+    }
+
+    @Test
+    @DisplayName("Should reject submissions when the queue is full")
+    void shouldRejectSubmissionsWhenQueueIsFull() throws InterruptedException {
+        // Given
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        KeycloakService keycloakService = mock(KeycloakService.class);
+        when(keycloakService.convertRealm(any(), any(), any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return ConversionResult.builder().success(true).build();
+        });
+        jobService = new ConversionJobService(keycloakService, 1, 1, 3600, 2);
+        RealmRepresentation realm = TestDataFactory.createSimpleRealm();
+
+        // When
+        ConversionResult running = jobService.submit(realm, null);
+        assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+        ConversionResult queued = jobService.submit(realm, null);
+
+        // Then
+        assertThat(jobService.getStatus(running.getConversionId()).getStatus()).isEqualTo(ConversionJobService.RUNNING);
+        assertThat(queued.getStatus()).isEqualTo(ConversionJobService.QUEUED);
+        assertThatThrownBy(() -> jobService.submit(realm, null)).isInstanceOf(RejectedExecutionException.class);
+
+        release.countDown();
+        assertThat(awaitFinished(queued.getConversionId()).getStatus()).isEqualTo(ConversionJobService.COMPLETED);
+    }
+
+    @Test
+    @DisplayName("Should evict finished jobs after the retention period")
+    void shouldEvictFinishedJobsAfterRetention() throws InterruptedException {
+        // Given
+        KeycloakService keycloakService = mock(KeycloakService.class);
+        when(keycloakService.convertRealm(any(), any(), any())).thenThrow(new IllegalStateException("boom"));
+        jobService = new ConversionJobService(keycloakService, 1, 1, 0, 2);
+
+        // When
+        ConversionResult submitted = jobService.submit(TestDataFactory.createSimpleRealm(), null);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (jobService.getStatus(submitted.getConversionId()) != null && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        // Then
+        assertThat(jobService.getStatus(submitted.getConversionId())).isNull();
+    }
+
+    @Test
+    @DisplayName("Should keep only the manifest of the most recent synchronous conversions")
+    void shouldRegisterBoundedManifestsOfSynchronousConversions() {
+        // Given
+        KeycloakService keycloakService = new KeycloakService(
+            new TerraformGeneratorService(), new ConversionResultCache(new SimpleMeterRegistry(), false, 1, 1),
+            new ObjectMapper(), new SimpleMeterRegistry(), 1);
+        jobService = new ConversionJobService(keycloakService, 1, 1, 3600, 2);
+        ConversionResult result = keycloakService.convertRealm(TestDataFactory.createSimpleRealm(), null);
+
+        // When
+        ConversionResult registered = jobService.register(result);
+        ConversionResult status = jobService.getStatus(registered.getConversionId());
+        jobService.register(keycloakService.convertRealm(TestDataFactory.createRealmWithRoles(), null));
+        jobService.register(keycloakService.convertRealm(TestDataFactory.createRealmWithUsers(), null));
+
+        // Then
+        assertThat(registered.getConversionId()).isNotBlank();
+        assertThat(registered.getFiles()).allMatch(file -> file.getContent() != null);
+        assertThat(status.getStatus()).isEqualTo(ConversionJobService.COMPLETED);
+        assertThat(status.getFiles())
+            .extracting(ConversionResult.TerraformFile::getFilePath, ConversionResult.TerraformFile::getDigest)
+            .containsExactlyElementsOf(result.getFiles().stream()
+                .map(file -> tuple(file.getFilePath(), file.getDigest()))
+                .toList());
+        assertThat(status.getFiles()).allMatch(file -> file.getContent() == null);
+        assertThat(jobService.getStatus(registered.getConversionId())).isNull();
+    }
+
+    private ConversionResult awaitFinished(String conversionId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            ConversionResult status = jobService.getStatus(conversionId);
+            if (ConversionJobService.COMPLETED.equals(status.getStatus())
+                    || ConversionJobService.FAILED.equals(status.getStatus())) {
+                return status;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Conversion " + conversionId + " did not finish");
+    }
+}
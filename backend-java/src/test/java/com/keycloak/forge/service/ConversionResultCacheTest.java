@@ -0,0 +1,147 @@
+package com.keycloak.forge.service;
+
+import com.keycloak.forge.model.ConversionRequest;
+import com.keycloak.forge.model.ConversionResult;
+import com.keycloak.forge.utils.TestDataFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.idm.RealmRepresentation;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("Conversion Result Cache Tests")
+class ConversionResultCacheTest {
+
+    private MeterRegistry meterRegistry;
+    private ConversionResultCache cache;
+    private AtomicInteger conversions;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new ConversionResultCache(meterRegistry, true, 2, 3600);
+        conversions = new AtomicInteger();
+    }
+
+    @Test
+    @DisplayName("Should answer a repeated conversion of identical content from the cache")
+    void shouldAnswerRepeatedConversionFromCache() {
+        // Given
+        ConversionRequest.ConversionOptions options = new ConversionRequest.ConversionOptions();
+
+        // When
+        ConversionResult first = cache.get(TestDataFactory.createComprehensiveRealm(), options, this::convert);
+        ConversionResult second = cache.get(TestDataFactory.createComprehensiveRealm(), options, this::convert);
+
+        // Then
+        assertThat(conversions).hasValue(1);
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getFiles()).isEqualTo(first.getFiles());
+        assertThat(counter("cache.gets", "hit")).isEqualTo(1);
+        assertThat(counter("cache.gets", "miss")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should not let changes to a returned result leak into the cached entry")
+    void shouldCopyFilesOfCachedResults() {
+        // Given
+        ConversionRequest.ConversionOptions options = new ConversionRequest.ConversionOptions();
+        ConversionResult first = cache.get(TestDataFactory.createComprehensiveRealm(), options, this::convert);
+        String content = first.getFiles().get(0).getContent();
+
+        // When
+        first.getFiles().get(0).setContent("changed");
+        ConversionResult second = cache.get(TestDataFactory.createComprehensiveRealm(), options, this::convert);
+        second.getFiles().get(0).setContent("changed again");
+        second.getFiles().clear();
+        ConversionResult third = cache.get(TestDataFactory.createComprehensiveRealm(), options, this::convert);
+
+        // Then
+        assertThat(conversions).hasValue(1);
+        assertThat(third.getFiles()).isNotEmpty();
+        assertThat(third.getFiles().get(0).getContent()).isEqualTo(content);
+    }
+
+    @Test
+    @DisplayName("Should key entries by both realm content and options")
+    void shouldKeyByRealmContentAndOptions() {
+        // Given
+        RealmRepresentation realm = TestDataFactory.createComprehensiveRealm();
+        ConversionRequest.ConversionOptions options = new ConversionRequest.ConversionOptions();
+        ConversionRequest.ConversionOptions sharded = new ConversionRequest.ConversionOptions();
+        sharded.setUserSharding("count");
+        RealmRepresentation renamed = TestDataFactory.createComprehensiveRealm();
+        renamed.setDisplayName("Renamed");
+
+        // When / Then
+        assertThat(cache.key(realm, options)).isEqualTo(cache.key(TestDataFactory.createComprehensiveRealm(), options));
+        assertThat(cache.key(realm, sharded)).isNotEqualTo(cache.key(realm, options));
+        assertThat(cache.key(renamed, options)).isNotEqualTo(cache.key(realm, options));
+    }
+
+    @Test
+    @DisplayName("Should evict the least recently used entry beyond the size bound")
+    void shouldEvictLeastRecentlyUsedEntry() {
+        // Given
+        ConversionRequest.ConversionOptions options = new ConversionRequest.ConversionOptions();
+        List<RealmRepresentation> realms = List.of(
+            TestDataFactory.createSimpleRealm(),
+            TestDataFactory.createRealmWithRoles(),
+            TestDataFactory.createRealmWithUsers());
+
+        // When
+        for (RealmRepresentation realm : realms) {
+            cache.get(realm, options, this::convert);
+        }
+        cache.get(realms.get(0), options, this::convert);
+
+        // Then
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(conversions).hasValue(4);
+        assertThat(meterRegistry.get("cache.evictions").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("cache.size").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should not cache failed conversions")
+    void shouldNotCacheFailedConversions() {
+        // Given
+        RealmRepresentation realm = TestDataFactory.createSimpleRealm();
+        Supplier<ConversionResult> failing = () -> {
+            conversions.incrementAndGet();
+            return ConversionResult.builder().success(false).error("boom").build();
+        };
+
+        // When
+        cache.get(realm, null, failing);
+        cache.get(realm, null, failing);
+
+        // Then
+        assertThat(conversions).hasValue(2);
+        assertThat(cache.size()).isZero();
+    }
+
+    private ConversionResult convert() {
+        conversions.incrementAndGet();
+        return ConversionResult.builder()
+            .success(true)
+            .files(List.of(ConversionResult.TerraformFile.builder()
+                .filePath("main.tf")
+                .content("# generated")
+                .type("main")
+                .size(11)
+                .build()))
+            .build();
+    }
+
+    private double counter(String name, String result) {
+        return meterRegistry.get(name).tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,159 @@
+package com.keycloak.forge.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.keycloak.forge.model.ConversionResult;
+import com.keycloak.forge.utils.TestDataFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.idm.RealmRepresentation;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("Keycloak Service Tests")
+class KeycloakServiceTest {
+
+    private ObjectMapper objectMapper;
+    private KeycloakService keycloakService;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        keycloakService = new KeycloakService(new TerraformGeneratorService(),
+            new ConversionResultCache(new SimpleMeterRegistry(), false, 1, 1), objectMapper, new SimpleMeterRegistry(), 3);
+    }
+
+    @Test
+    @DisplayName("Should convert uploaded files concurrently and return results in upload order")
+    void shouldConvertUploadedFilesInUploadOrder() throws IOException {
+        // Given
+        List<RealmRepresentation> realms = List.of(
+            TestDataFactory.createRealmWithUsers(),
+            TestDataFactory.createSimpleRealm(),
+            TestDataFactory.createRealmWithClients(),
+            TestDataFactory.createComprehensiveRealm(),
+            TestDataFactory.createRealmWithRoles());
+        List<MultipartFile> files = new ArrayList<>();
+        for (RealmRepresentation realm : realms) {
+            files.add(new MockMultipartFile("files", realm.getRealm() + ".json", "application/json",
+                objectMapper.writeValueAsBytes(realm)));
+        }
+
+        // When
+        List<ConversionResult> results = keycloakService.processBatchUpload(files, "{\"userSharding\":\"count\"}");
+
+        // Then
+        assertThat(results).hasSize(realms.size());
+        for (int i = 0; i < realms.size(); i++) {
+            assertThat(results.get(i).isSuccess()).isTrue();
+            assertThat(results.get(i).getAnalysis().getRealmName()).isEqualTo(realms.get(i).getRealm());
+        }
+    }
+
+    @Test
+    @DisplayName("Should bound concurrent conversions across simultaneous batch uploads")
+    void shouldBoundConversionsAcrossUploads() throws Exception {
+        // Given
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        byte[] realm = objectMapper.writeValueAsBytes(TestDataFactory.createSimpleRealm());
+        List<MultipartFile> files = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            files.add(new MockMultipartFile("files", "realm-" + i + ".json", "application/json", realm) {
+                @Override
+                public InputStream getInputStream() throws IOException {
+                    threads.add(Thread.currentThread());
+                    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                    return super.getInputStream();
+                }
+            });
+        }
+
+        // When
+        CompletableFuture<List<ConversionResult>> first = CompletableFuture.supplyAsync(() -> upload(files));
+        CompletableFuture<List<ConversionResult>> second = CompletableFuture.supplyAsync(() -> upload(files));
+
+        // Then
+        assertThat(first.get(10, TimeUnit.SECONDS)).allMatch(ConversionResult::isSuccess);
+        assertThat(second.get(10, TimeUnit.SECONDS)).allMatch(ConversionResult::isSuccess);
+        assertThat(maxInFlight.get()).isLessThanOrEqualTo(3);
+        assertThat(threads).hasSizeLessThanOrEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Should report a failed file without aborting the batch")
+    void shouldIsolatePerFileFailures() throws IOException {
+        // Given
+        List<MultipartFile> files = List.of(
+            new MockMultipartFile("files", "simple.json", "application/json",
+                objectMapper.writeValueAsBytes(TestDataFactory.createSimpleRealm())),
+            new MockMultipartFile("files", "broken.json", "application/json", "{\"realm\": ".getBytes()),
+            new MockMultipartFile("files", "roles.json", "application/json",
+                objectMapper.writeValueAsBytes(TestDataFactory.createRealmWithRoles())));
+
+        // When
+        List<ConversionResult> results = keycloakService.processBatchUpload(files, null);
+
+        // Then
+        assertThat(results).extracting(ConversionResult::isSuccess).containsExactly(true, false, true);
+        assertThat(results.get(1).getError()).contains("broken.json");
+    }
+
+    @Test
+    @DisplayName("Should reject invalid options JSON")
+    void shouldRejectInvalidOptions() {
+        assertThatThrownBy(() -> keycloakService.processBatchUpload(List.of(), "{not json"))
+            .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    @DisplayName("Should add the analysis time to the statistics without touching shared metadata")
+    void shouldAttachAnalysisStatistics() {
+        // Given
+        RealmRepresentation realm = TestDataFactory.createComprehensiveRealm();
+        ConversionResult result = keycloakService.convertRealm(realm, null);
+        ConversionResult.ConversionMetadata generated = result.getMetadata();
+
+        // When
+        keycloakService.attachAnalysis(result, realm);
+
+        // Then
+        assertThat(result.getAnalysis().getRealmName()).isEqualTo(realm.getRealm());
+        assertThat(result.getMetadata().getStatistics())
+            .containsKey("analysisMs")
+            .containsKeys("entities", "bytes", "modules");
+        assertThat(generated.getStatistics()).doesNotContainKey("analysisMs");
+        assertThat(result.getMetadata().getDuration()).isEqualTo(generated.getDuration());
+    }
+
+    private List<ConversionResult> upload(List<MultipartFile> files) {
+        try {
+            return keycloakService.processBatchUpload(files, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
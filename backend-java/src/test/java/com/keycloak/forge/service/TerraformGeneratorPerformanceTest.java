@@ -8,7 +8,6 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.keycloak.representations.idm.*;
-import org.mockito.InjectMocks;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.context.ActiveProfiles;
 
@@ -26,8 +25,7 @@ import static org.assertj.core.api.Assertions.*;
 @DisplayName("Terraform Generator Performance Tests")
 class TerraformGeneratorPerformanceTest {
 
-    @InjectMocks
-    private TerraformGeneratorService terraformGeneratorService;
+    private final TerraformGeneratorService terraformGeneratorService = new TerraformGeneratorService();
 
     private ConversionRequest.ConversionOptions defaultOptions;
 
@@ -325,7 +323,7 @@ class TerraformGeneratorPerformanceTest {
             
             if (role.isComposite()) {
                 RoleRepresentation.Composites composites = new RoleRepresentation.Composites();
-                composites.setRealm(new ArrayList<>(List.of("role-" + (i - 1))));
+                composites.setRealm(new HashSet<>(Set.of("role-" + (i - 1))));
                 role.setComposites(composites);
             }
             
@@ -1,5 +1,6 @@
 package com.keycloak.forge.service;
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.keycloak.forge.model.ConversionRequest;
 import com.keycloak.forge.model.ConversionResult;
@@ -8,7 +9,6 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.keycloak.representations.idm.*;
-import org.mockito.InjectMocks;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.context.ActiveProfiles;
 
@@ -24,14 +24,14 @@ import static org.assertj.core.api.Assertions.*;
 @DisplayName("TerraformGeneratorService Tests")
 class TerraformGeneratorServiceTest {
 
-    @InjectMocks
-    private TerraformGeneratorService terraformGeneratorService;
+    private final TerraformGeneratorService terraformGeneratorService = new TerraformGeneratorService();
 
     private ObjectMapper objectMapper;
     
     @BeforeEach
     void setUp() {
         objectMapper = new ObjectMapper();
+        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
     }
 
     @Test
@@ -126,7 +126,7 @@ class TerraformGeneratorServiceTest {
         ConversionResult.TerraformFile rolesMainFile = findFileByPath(result, "roles/main.tf");
         assertThat(rolesMainFile).isNotNull();
         assertThat(rolesMainFile.getContent()).contains("keycloak_role");
-        assertThat(rolesMainFile.getContent()).contains("keycloak_role_composite");
+        assertThat(rolesMainFile.getContent()).contains("composite_roles = [");
         
         // Should contain role attributes
         assertThat(rolesMainFile.getContent()).contains("attributes = {");
@@ -357,7 +357,7 @@ class TerraformGeneratorServiceTest {
 
     // Helper methods
     private RealmRepresentation loadUltraComplexRealm() throws IOException {
-        String content = Files.readString(Paths.get("/home/marenk/Documents/GitHub/keycloak-terragrunt-forge/data/generated/ultra-complex-realm-with-groups.json"));
+        String content = Files.readString(Paths.get("../data/generated/ultra-complex-realm-with-groups.json"));
         return objectMapper.readValue(content, RealmRepresentation.class);
     }
 
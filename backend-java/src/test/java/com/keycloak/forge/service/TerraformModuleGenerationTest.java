@@ -1,18 +1,41 @@
 package com.keycloak.forge.service;
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.keycloak.forge.model.ConversionRequest;
 import com.keycloak.forge.model.ConversionResult;
 import com.keycloak.forge.utils.TestDataFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.keycloak.representations.idm.GroupRepresentation;
 import org.keycloak.representations.idm.RealmRepresentation;
-import org.mockito.InjectMocks;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
 import static org.assertj.core.api.Assertions.*;
 
@@ -21,8 +44,7 @@ import static org.assertj.core.api.Assertions.*;
 @DisplayName("Terraform Module Generation Tests")
 class TerraformModuleGenerationTest {
 
-    @InjectMocks
-    private TerraformGeneratorService terraformGeneratorService;
+    private final TerraformGeneratorService terraformGeneratorService = new TerraformGeneratorService();
 
     private ConversionRequest.ConversionOptions defaultOptions;
 
@@ -85,7 +107,8 @@ class TerraformModuleGenerationTest {
         assertThat(rolesFile.getContent()).contains("keycloak_role");
         assertThat(rolesFile.getContent()).contains("\"user\"");
         assertThat(rolesFile.getContent()).contains("\"admin\"");
-        assertThat(rolesFile.getContent()).contains("keycloak_role_composite");
+        assertThat(rolesFile.getContent()).contains("composite_roles = [")
+            .doesNotContain("keycloak_role_composite");
     }
 
     @Test
@@ -144,7 +167,8 @@ class TerraformModuleGenerationTest {
         assertThat(usersFile.getContent()).contains("keycloak_user");
         assertThat(usersFile.getContent()).contains("john.doe");
         assertThat(usersFile.getContent()).contains("admin");
-        assertThat(usersFile.getContent()).contains("keycloak_user_groups");
+        // The realm defines none of the users' groups
+        assertThat(usersFile.getContent()).doesNotContain("keycloak_user_groups");
     }
 
     @Test
@@ -314,6 +338,596 @@ class TerraformModuleGenerationTest {
         }
     }
 
+    @Test
+    @DisplayName("Should stream the same files into a ZIP archive")
+    void shouldStreamSameFilesIntoZipArchive() throws IOException {
+        // Given
+        RealmRepresentation realm = TestDataFactory.createComprehensiveRealm();
+        ConversionResult expected = terraformGeneratorService.generateTerragruntModules(realm, defaultOptions);
+
+        // When
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(archive)) {
+            terraformGeneratorService.writeTerragruntModules(realm, defaultOptions, new ZipTerraformFileSink(zip));
+        }
+
+        // Then
+        Map<String, String> entries = new LinkedHashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive.toByteArray()))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                entries.put(entry.getName(), new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        assertThat(entries.keySet()).containsExactlyElementsOf(getFilePaths(expected));
+        for (ConversionResult.TerraformFile file : expected.getFiles()) {
+            assertThat(entries.get(file.getFilePath())).isEqualTo(file.getContent());
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject realm names and archive entries that escape the output root")
+    void shouldRejectPathTraversalInArchive() {
+        // Given
+        RealmRepresentation realm = TestDataFactory.createSimpleRealm();
+        realm.setRealm("../../x");
+        ZipTerraformFileSink sink = new ZipTerraformFileSink(new ZipOutputStream(new ByteArrayOutputStream()));
+
+        // When / Then
+        assertThatThrownBy(() -> terraformGeneratorService.writeTerragruntModules(realm, defaultOptions, sink))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("../../x");
+        assertThatThrownBy(() -> sink.file("keycloak/realms/../../x/main.tf", "main", hcl -> { }))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> sink.file("/etc/main.tf", "main", hcl -> { }))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThat(sink.getEntries()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should produce identical files in the same order when generating in parallel")
+    void shouldProduceIdenticalFilesWhenGeneratingInParallel() {
+        // Given
+        RealmRepresentation realm = TestDataFactory.createComprehensiveRealm();
+        ConversionResult sequential = terraformGeneratorService.generateTerragruntModules(realm, defaultOptions);
+
+        for (String executor : List.of("fork-join", "virtual")) {
+            ConversionRequest.ConversionOptions parallelOptions = createDefaultOptions();
+            parallelOptions.setParallelGeneration(true);
+            parallelOptions.setGenerationExecutor(executor);
+
+            // When
+            ConversionResult parallel = terraformGeneratorService.generateTerragruntModules(realm, parallelOptions);
+
+            // Then
+            assertThat(parallel.isSuccess()).isTrue();
+            assertThat(parallel.getFiles())
+                .as("Parallel generation on %s executor", executor)
+                .containsExactlyElementsOf(sequential.getFiles());
+        }
+
+        ConversionRequest.ConversionOptions misspelled = createDefaultOptions();
+        misspelled.setParallelGeneration(true);
+        misspelled.setGenerationExecutor("virtaul");
+        assertThatThrownBy(() -> terraformGeneratorService.generateTerragruntModules(realm, misspelled))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("Unknown generation executor: virtaul");
+    }
+
+    @Test
+    @DisplayName("Should split users into count-based Terragrunt shards")
+    void shouldSplitUsersIntoCountBasedShards() {
+        // Given
+        RealmRepresentation realm = TestDataFactory.createRealmWithUsers();
+        for (UserRepresentation user : TestDataFactory.createRealmWithUsers().getUsers()) {
+            user.setUsername(user.getUsername() + "-2");
+            realm.getUsers().add(user);
+        }
+        realm.setGroups(TestDataFactory.createRealmWithGroups().getGroups());
+        ConversionRequest.ConversionOptions options = createDefaultOptions();
+        options.setUserSharding("count");
+        options.setUsersPerShard(3);
+
+        // When
+        ConversionResult result = terraformGeneratorService.generateTerragruntModules(realm, options);
+
+        // Then
+        List<String> filePaths = getFilePaths(result);
+        assertThat(filePaths).doesNotContain("keycloak/realms/realm-with-users/users/main.tf");
+        assertThat(filePaths).contains(
+            "keycloak/realms/realm-with-users/users/shard-00/main.tf",
+            "keycloak/realms/realm-with-users/users/shard-00/variables.tf",
+            "keycloak/realms/realm-with-users/users/shard-00/terragrunt.hcl",
+            "keycloak/realms/realm-with-users/users/shard-01/main.tf"
+        );
+        assertThat(filePaths).noneMatch(path -> path.contains("shard-02"));
+
+        ConversionResult.TerraformFile shardConfig = findFileByPath(result, "users/shard-01/terragrunt.hcl");
+        assertThat(shardConfig.getContent()).contains("config_path = \"../../groups\"");
+        assertThat(shardConfig.getContent()).contains("config_path = \"../../realm\"");
+        assertThat(findFileByPath(result, "users/shard-01/main.tf").getContent())
+            .contains("keycloak_user\" \"admin-2\"");
+    }
+
+    @Test
+    @DisplayName("Should place every user in exactly one hash shard")
+    void shouldPlaceEveryUserInExactlyOneHashShard() {
+        // Given
+        RealmRepresentation realm = TestDataFactory.createRealmWithUsers();
+        ConversionRequest.ConversionOptions options = createDefaultOptions();
+        options.setUserSharding("hash");
+        options.setUserShardCount(4);
+
+        // When
+        ConversionResult result = terraformGeneratorService.generateTerragruntModules(realm, options);
+
+        // Then
+        List<ConversionResult.TerraformFile> shardMains = result.getFiles().stream()
+            .filter(file -> file.getFilePath().matches(".*/users/shard-\\d+/main.tf"))
+            .toList();
+        assertThat(shardMains).isNotEmpty();
+        for (String username : List.of("john.doe", "admin")) {
+            assertThat(shardMains)
+                .filteredOn(file -> file.getContent().contains("username = \"" + username + "\""))
+                .hasSize(1);
+        }
+    }
+
+    @Test
+    @DisplayName("Should keep hash shard names and members stable when other users are removed")
+    void shouldKeepHashShardsStableWhenUsersChange() {
+        // Given
+        RealmRepresentation realm = TestDataFactory.createRealmWithUsers();
+        for (int i = 0; i < 40; i++) {
+            UserRepresentation user = new UserRepresentation();
+            user.setUsername("user-" + i);
+            realm.getUsers().add(user);
+        }
+        ConversionRequest.ConversionOptions options = createDefaultOptions();
+        options.setUserSharding("hash");
+        options.setUserShardCount(128);
+        Map<String, String> before = shardByUsername(terraformGeneratorService.generateTerragruntModules(realm, options));
+
+        // When
+        realm.getUsers().removeIf(user -> user.getUsername().startsWith("user-"));
+        Map<String, String> after = shardByUsername(terraformGeneratorService.generateTerragruntModules(realm, options));
+
+        // Then
+        assertThat(before.values()).allMatch(shard -> shard.matches("users/shard-\\d{3}"));
+        assertThat(after).containsOnlyKeys("john.doe", "admin");
+        assertThat(after).allSatisfy((username, shard) -> assertThat(before).containsEntry(username, shard));
+    }
+
+    @Test
+    @DisplayName("Should stream a realm export into the same modules as the bound realm")
+    void shouldStreamRealmExportIntoSameModules() throws IOException {
+        // Given
+        ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        byte[] export = Files.readAllBytes(Paths.get("../data/generated/ultra-complex-realm-with-groups.json"));
+        RealmRepresentation realm = objectMapper.readValue(export, RealmRepresentation.class);
+        ConversionResult expected = terraformGeneratorService.generateTerragruntModules(realm, defaultOptions);
+
+        // When
+        TerraformFileCollector collector = new TerraformFileCollector();
+        try (RealmExportReader reader = new RealmExportReader(objectMapper, new ByteArrayInputStream(export))) {
+            terraformGeneratorService.writeTerragruntModules(reader, defaultOptions, collector);
+        }
+
+        // Then
+        assertThat(collector.getFiles()).containsExactlyInAnyOrderElementsOf(expected.getFiles());
+    }
+
+    @Test
+    @DisplayName("Should regenerate only modules whose input changed in incremental mode")
+    void shouldRegenerateOnlyChangedModulesIncrementally() {
+        // Given
+        ConversionRequest.ConversionOptions options = createDefaultOptions();
+        options.setIncrementalGeneration(true);
+        RealmRepresentation realm = TestDataFactory.createComprehensiveRealm();
+        ConversionResult first = terraformGeneratorService.generateTerragruntModules(realm, options);
+
+        RealmRepresentation changed = TestDataFactory.createComprehensiveRealm();
+        changed.getClients().get(0).setDescription("Changed description");
+
+        // When
+        ConversionResult second = terraformGeneratorService.generateTerragruntModules(changed, options);
+
+        // Then
+        assertThat(second.getMetadata().getStatistics())
+            .containsEntry("modulesRegenerated", 1);
+        ConversionResult.TerraformFile clientsMain = findFileByPath(second, "clients/main.tf");
+        assertThat(clientsMain.getContent()).contains("Changed description");
+        assertThat(clientsMain).isNotSameAs(findFileByPath(first, "clients/main.tf"));
+        assertThat(findFileByPath(second, "users/main.tf")).isSameAs(findFileByPath(first, "users/main.tf"));
+        assertThat(findFileByPath(second, "realm/main.tf")).isSameAs(findFileByPath(first, "realm/main.tf"));
+        assertThat(second.getFiles())
+            .containsExactlyElementsOf(terraformGeneratorService.generateTerragruntModules(changed, defaultOptions).getFiles());
+    }
+
+    @Test
+    @DisplayName("Should re-render only the changed user and splice it into the users module")
+    void shouldReRenderOnlyChangedUserIncrementally() {
+        // Given
+        ConversionRequest.ConversionOptions options = createDefaultOptions();
+        options.setIncrementalGeneration(true);
+        terraformGeneratorService.generateTerragruntModules(TestDataFactory.createRealmWithUsers(), options);
+
+        RealmRepresentation changed = TestDataFactory.createRealmWithUsers();
+        changed.getUsers().get(1).setEmail("changed@example.com");
+
+        // When
+        ConversionResult result = terraformGeneratorService.generateTerragruntModules(changed, options);
+
+        // Then
+        assertThat(result.getMetadata().getStatistics())
+            .containsEntry("modulesRegenerated", 1)
+            .containsEntry("entitiesRendered", 1)
+            .containsEntry("entitiesReused", changed.getUsers().size() - 1);
+        assertThat(findFileByPath(result, "users/main.tf").getContent()).contains("changed@example.com");
+        assertThat(result.getFiles())
+            .containsExactlyElementsOf(terraformGeneratorService.generateTerragruntModules(changed, defaultOptions).getFiles());
+    }
+
+    @Test
+    @DisplayName("Should time and measure every module into the metadata and the meters")
+    void shouldRecordPerModuleMetrics() {
+        // Given
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        TerraformGeneratorService generator = new TerraformGeneratorService(registry);
+        RealmRepresentation realm = TestDataFactory.createComprehensiveRealm();
+
+        // When
+        ConversionResult result = generator.generateTerragruntModules(realm, defaultOptions);
+
+        // Then
+        ConversionResult.ConversionMetadata metadata = result.getMetadata();
+        assertThat(metadata.getStartTime()).isPositive();
+        assertThat(metadata.getEndTime()).isGreaterThanOrEqualTo(metadata.getStartTime());
+        assertThat(metadata.getDuration()).isEqualTo(metadata.getEndTime() - metadata.getStartTime());
+        assertThat(metadata.getStatistics()).containsKeys("entities", "bytes", "modules");
+
+        @SuppressWarnings("unchecked")
+        Map<String, Map<String, Object>> modules = (Map<String, Map<String, Object>>) metadata.getStatistics().get("modules");
+        assertThat(modules).containsKeys("realm", "roles", "users", "clients", "root");
+        assertThat(modules.get("users"))
+            .containsEntry("entities", realm.getUsers().size())
+            .containsEntry("bytes", findFileByPath(result, "users/main.tf").getSize()
+                + findFileByPath(result, "users/variables.tf").getSize()
+                + findFileByPath(result, "users/terragrunt.hcl").getSize());
+
+        assertThat(registry.get(GenerationMetrics.MODULE_DURATION)
+            .tag("realm", realm.getRealm()).tag("module", "users").timer().count()).isEqualTo(1);
+        assertThat(registry.get(GenerationMetrics.MODULE_ENTITIES)
+            .tag("realm", realm.getRealm()).tag("module", "roles").counter().count()).isEqualTo(realm.getRoles().getRealm().size());
+        assertThat(registry.get(GenerationMetrics.MODULE_BYTES)
+            .tag("realm", realm.getRealm()).tag("module", "clients").summary().totalAmount()).isPositive();
+        assertThat(registry.get(GenerationMetrics.GENERATION_DURATION)
+            .tag("realm", realm.getRealm()).timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should record the exact UTF-8 size and SHA-256 digest of every file")
+    void shouldRecordExactSizeAndDigestOfEveryFile() throws Exception {
+        // Given
+        RealmRepresentation realm = TestDataFactory.createComprehensiveRealm();
+        realm.setDisplayName("Größe – 日本語 \uD83D\uDE80");
+        realm.getRoles().getRealm().get(0).setDescription("Ünïcödé \uD83D\uDD11 role");
+
+        // When
+        ConversionResult result = terraformGeneratorService.generateTerragruntModules(realm, defaultOptions);
+
+        // Then
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        for (ConversionResult.TerraformFile file : result.getFiles()) {
+            byte[] bytes = file.getContent().getBytes(StandardCharsets.UTF_8);
+            assertThat(file.getSize()).as(file.getFilePath()).isEqualTo(bytes.length);
+            assertThat(file.getDigest()).as(file.getFilePath())
+                .isEqualTo(HexFormat.of().formatHex(sha256.digest(bytes)));
+        }
+        assertThat(findFileByPath(result, "realm/main.tf").getSize())
+            .isGreaterThan(findFileByPath(result, "realm/main.tf").getContent().length());
+    }
+
+    @Test
+    @DisplayName("Should give distinct roles that sanitize to the same name distinct addresses")
+    void shouldResolveCollidingResourceAddresses() {
+        // Given
+        RealmRepresentation realm = TestDataFactory.createRealmWithRoles();
+        RoleRepresentation dotted = new RoleRepresentation("app.reader", "Dotted", false);
+        RoleRepresentation underscored = new RoleRepresentation("app_reader", "Underscored", false);
+        realm.getRoles().getRealm().addAll(List.of(dotted, underscored));
+
+        // When
+        String roles = findFileByPath(terraformGeneratorService.generateTerragruntModules(realm, defaultOptions), 
+            "roles/main.tf").getContent();
+
+        // Then
+        assertThat(roles)
+            .containsPattern("resource \"keycloak_role\" \"app_reader\" \\{[^}]*\"app\\.reader\"")
+            .containsPattern("resource \"keycloak_role\" \"app_reader_2\" \\{[^}]*\"app_reader\"");
+    }
+
+    @Test
+    @DisplayName("Should generate deeply nested group hierarchies without recursion")
+    void shouldGenerateDeeplyNestedGroups() {
+        // Given
+        RealmRepresentation realm = TestDataFactory.createSimpleRealm();
+        GroupRepresentation root = group("level-0");
+        GroupRepresentation parent = root;
+        for (int level = 1; level < 10_000; level++) {
+            GroupRepresentation child = group("level-" + level);
+            parent.setSubGroups(new ArrayList<>(List.of(child)));
+            parent = child;
+        }
+        realm.setGroups(List.of(root));
+
+        // When
+        ConversionResult result = terraformGeneratorService.generateTerragruntModules(realm, defaultOptions);
+
+        // Then
+        assertThat(result.isSuccess()).isTrue();
+        String groups = findFileByPath(result, "groups/main.tf").getContent();
+        assertThat(groups.split("resource \"keycloak_group\"", -1)).hasSize(10_001);
+        assertThat(groups).contains("parent_id = keycloak_group.level-9998-id.id");
+        assertThat(groups.indexOf("\"level-9998-id\"")).isLessThan(groups.indexOf("\"level-9999-id\""));
+    }
+
+    @Test
+    @DisplayName("Should stitch group subtrees rendered in parallel back in order")
+    void shouldRenderLargeGroupSubtreesInParallel() {
+        // Given
+        RealmRepresentation realm = TestDataFactory.createRealmWithRoles();
+        GroupRepresentation root = group("root");
+        root.setSubGroups(new ArrayList<>());
+        for (int branch = 0; branch < 4; branch++) {
+            GroupRepresentation subtree = group("branch-" + branch);
+            subtree.setRealmRoles(List.of("user"));
+            subtree.setSubGroups(new ArrayList<>());
+            int size = branch == 2 ? 10 : TerraformGeneratorService.PARALLEL_GROUP_SUBTREE_SIZE;
+            for (int leaf = 0; leaf < size; leaf++) {
+                subtree.getSubGroups().add(group("branch-" + branch + "-leaf-" + leaf));
+            }
+            root.getSubGroups().add(subtree);
+        }
+        realm.setGroups(List.of(root, group("sibling")));
+        ConversionResult sequential = terraformGeneratorService.generateTerragruntModules(realm, defaultOptions);
+
+        ConversionRequest.ConversionOptions parallelOptions = createDefaultOptions();
+        parallelOptions.setParallelGeneration(true);
+        parallelOptions.setGenerationExecutor("fork-join");
+
+        // When
+        ConversionResult parallel = terraformGeneratorService.generateTerragruntModules(realm, parallelOptions);
+
+        // Then
+        String groups = findFileByPath(parallel, "groups/main.tf").getContent();
+        assertThat(groups).isEqualTo(findFileByPath(sequential, "groups/main.tf").getContent());
+        assertThat(groups.indexOf("\"branch-1-leaf-255-id\"")).isLessThan(groups.indexOf("\"branch-2-id\""));
+        assertThat(groups.indexOf("\"branch-2-leaf-9-id\"")).isLessThan(groups.indexOf("\"branch-3-id\""));
+        assertThat(groups).contains("resource \"keycloak_group_roles\" \"branch-3-id\"");
+    }
+
+    @Test
+    @DisplayName("Should emit one role and membership resource per group and user, and composites on the role itself")
+    void shouldConsolidateRoleAndMembershipResources() {
+        // Given
+        RealmRepresentation realm = TestDataFactory.createComprehensiveRealm();
+        RoleRepresentation manager = new RoleRepresentation("manager", "Manager", false);
+        manager.setComposite(true);
+        manager.setComposites(new RoleRepresentation.Composites());
+        manager.getComposites().setRealm(new LinkedHashSet<>(List.of("user", "admin")));
+        realm.getRoles().getRealm().add(manager);
+        realm.getRoles().getRealm().add(new RoleRepresentation("developer", "Developer", false));
+
+        // When
+        ConversionResult result = terraformGeneratorService.generateTerragruntModules(realm, defaultOptions);
+
+        // Then
+        String roles = findFileByPath(result, "roles/main.tf").getContent();
+        assertThat(roles).contains("resource \"keycloak_role\" \"manager\" {")
+            .contains("composite_roles = [keycloak_role.user.id, keycloak_role.admin.id]")
+            .doesNotContain("keycloak_role_composite");
+
+        String groups = findFileByPath(result, "groups/main.tf").getContent();
+        assertThat(groups.split("resource \"keycloak_group_roles\"", -1)).hasSize(4);
+        assertThat(groups).contains("resource \"keycloak_group_roles\" \"backend-group-id\" {")
+            .contains("role_ids = [var.realm_role_user_id, var.realm_role_developer_id, var.realm_role_admin_id]");
+
+        String users = findFileByPath(result, "users/main.tf").getContent();
+        assertThat(users).contains("resource \"keycloak_user_groups\" \"admin\" {")
+            .contains("group_ids = [var.group__engineering_id, var.group__engineering_backend_id]");
+    }
+
+    @Test
+    @DisplayName("Should pass the referenced role and group IDs from the outputs of the units defining them")
+    void shouldWireReferencedIdsThroughUnitOutputs() {
+        // Given
+        RealmRepresentation realm = TestDataFactory.createComprehensiveRealm();
+
+        // When
+        ConversionResult result = terraformGeneratorService.generateTerragruntModules(realm, defaultOptions);
+
+        // Then
+        assertThat(findFileByPath(result, "roles/outputs.tf").getContent())
+            .contains("output \"realm_role_ids\"")
+            .contains("admin = keycloak_role.admin.id");
+        assertThat(findFileByPath(result, "groups/variables.tf").getContent())
+            .contains("variable \"realm_role_admin_id\"");
+        assertThat(findFileByPath(result, "groups/terragrunt.hcl").getContent())
+            .contains("realm_role_admin_id = dependency.roles.outputs.realm_role_ids[\"admin\"]");
+        assertThat(findFileByPath(result, "groups/outputs.tf").getContent())
+            .contains("output \"group_ids\"")
+            .contains("\"/engineering/backend\" = keycloak_group.backend-group-id.id");
+        assertThat(findFileByPath(result, "users/variables.tf").getContent())
+            .contains("variable \"group__engineering_backend_id\"");
+        assertThat(findFileByPath(result, "users/terragrunt.hcl").getContent())
+            .contains("group__engineering_backend_id = dependency.groups.outputs.group_ids[\"/engineering/backend\"]");
+        assertThat(findFileByPath(result, "clients/terragrunt.hcl").getContent())
+            .doesNotContain("dependency \"client-scopes\"");
+    }
+
+    @Test
+    @DisplayName("Should leave out and report role mappings and memberships the realm does not define")
+    void shouldSkipUndefinedReferences() {
+        // Given
+        RealmRepresentation realm = TestDataFactory.createComprehensiveRealm();
+        realm.getUsers().get(0).setGroups(List.of("/engineering", "/sales"));
+
+        // When
+        ConversionResult result = terraformGeneratorService.generateTerragruntModules(realm, defaultOptions);
+
+        // Then
+        assertThat(findFileByPath(result, "groups/main.tf").getContent())
+            .contains("role_ids = [var.realm_role_user_id, var.realm_role_admin_id]")
+            .doesNotContain("realm_role_developer_id");
+        assertThat(findFileByPath(result, "groups/variables.tf").getContent()).doesNotContain("realm_role_developer_id");
+        assertThat(findFileByPath(result, "users/main.tf").getContent())
+            .contains("group_ids = [var.group__engineering_id]")
+            .doesNotContain("group__sales_id");
+
+        Map<?, ?> graph = (Map<?, ?>) result.getMetadata().getStatistics().get("dependencyGraph");
+        assertThat(graph.get("undefinedReferences")).isEqualTo(Map.of(
+            "groups", Map.of("roles", Set.of("developer")),
+            "users", Map.of("groups", Set.of("/sales"))));
+    }
+
+    @Test
+    @DisplayName("Should write realm settings and groups as tfvars for the reusable modules")
+    void shouldWriteTfvarsForReusableModules() throws IOException {
+        // Given
+        RealmRepresentation realm = TestDataFactory.createComprehensiveRealm();
+        ConversionRequest.ConversionOptions tfvarsOptions = createDefaultOptions();
+        tfvarsOptions.setOutputFormat("tfvars");
+
+        // When
+        ConversionResult result = terraformGeneratorService.generateTerragruntModules(realm, tfvarsOptions);
+
+        // Then
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(findFileByPath(result, "realm/main.tf")).isNull();
+        assertThat(findFileByPath(result, "groups/main.tf")).isNull();
+        assertThat(findFileByPath(result, "realm/terragrunt.hcl").getContent())
+            .contains("source = \"${get_repo_root()}/modules/keycloak-realm\"");
+        assertThat(findFileByPath(result, "groups/terragrunt.hcl").getContent())
+            .contains("source = \"${get_repo_root()}/modules/keycloak-groups\"")
+            .contains("realm_roles = dependency.roles.outputs.realm_role_ids");
+        assertThat(findFileByPath(result, "roles/outputs.tf").getContent())
+            .contains("admin = keycloak_role.admin.id");
+
+        ObjectMapper mapper = new ObjectMapper();
+        Map<?, ?> realmVars = mapper.readValue(findFileByPath(result, "realm/realm.auto.tfvars.json").getContent(), Map.class);
+        assertThat(realmVars.get("realm_name")).isEqualTo(realm.getRealm());
+        assertThat(realmVars.get("access_token_lifespan")).isInstanceOf(Integer.class);
+
+        ConversionResult.TerraformFile groupsFile = findFileByPath(result, "groups/groups.auto.tfvars.json");
+        assertThat(groupsFile.getType()).isEqualTo("tfvars");
+        Map<?, ?> engineering = (Map<?, ?>) ((Map<?, ?>) mapper.readValue(groupsFile.getContent(), Map.class)
+            .get("groups")).get("parent-group-id");
+        assertThat(engineering.get("name")).isEqualTo("engineering");
+        assertThat(engineering.get("realm_roles")).isEqualTo(List.of("user"));
+        Map<?, ?> backend = (Map<?, ?>) ((Map<?, ?>) engineering.get("subGroups")).get("backend-group-id");
+        assertThat(backend.get("path")).isEqualTo("/engineering/backend");
+        // The realm does not define the developer role
+        assertThat(backend.get("realm_roles")).isEqualTo(List.of("user", "admin"));
+    }
+
+    @Test
+    @DisplayName("Should point tfvars units at the configured module source")
+    void shouldUseConfiguredModuleSource() {
+        // Given
+        RealmRepresentation realm = TestDataFactory.createComprehensiveRealm();
+        ConversionRequest.ConversionOptions tfvarsOptions = createDefaultOptions();
+        tfvarsOptions.setOutputFormat("tfvars");
+        tfvarsOptions.setModuleSource("git::https://example.com/keycloak-modules.git//modules/");
+
+        // When
+        ConversionResult result = terraformGeneratorService.generateTerragruntModules(realm, tfvarsOptions);
+
+        // Then
+        assertThat(findFileByPath(result, "realm/terragrunt.hcl").getContent())
+            .contains("source = \"git::https://example.com/keycloak-modules.git//modules/keycloak-realm\"");
+        assertThat(findFileByPath(result, "groups/terragrunt.hcl").getContent())
+            .contains("source = \"git::https://example.com/keycloak-modules.git//modules/keycloak-groups\"");
+
+        tfvarsOptions.setModuleSource("modules\" }\nterraform { source = \"evil");
+        assertThatThrownBy(() -> terraformGeneratorService.generateTerragruntModules(realm, tfvarsOptions))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageStartingWith("Invalid module source");
+    }
+
+    @Test
+    @DisplayName("Should write Terraform files in JSON syntax for tf-json output")
+    void shouldWriteTerraformJsonFiles() throws IOException {
+        // Given
+        RealmRepresentation realm = TestDataFactory.createComprehensiveRealm();
+        ConversionRequest.ConversionOptions jsonOptions = createDefaultOptions();
+        jsonOptions.setOutputFormat("tf-json");
+        jsonOptions.setIncrementalGeneration(true);
+
+        // When
+        ConversionResult first = terraformGeneratorService.generateTerragruntModules(realm, jsonOptions);
+        realm.getRoles().getRealm().get(0).setDescription("Changed ${description}");
+        ConversionResult second = terraformGeneratorService.generateTerragruntModules(realm, jsonOptions);
+
+        // Then
+        assertThat(getFilePaths(second)).noneMatch(path -> path.endsWith(".tf"));
+        assertThat(findFileByPath(second, "roles/terragrunt.hcl").getContent()).contains("include \"root\"");
+        assertThat(findFileByPath(second, "roles/variables.tf.json").getContent())
+            .contains("\"variable\":{\"realm_id\":{\"description\":\"The ID of the realm\",\"type\":\"string\"}}");
+
+        String roles = findFileByPath(second, "roles/main.tf.json").getContent();
+        assertThat(roles)
+            .startsWith("{\"terraform\":{\"required_providers\":{\"keycloak\":")
+            .contains("\"resource\":{\"keycloak_role\":{\"user\":{\"realm_id\":\"${var.realm_id}\"")
+            .contains("\"description\":\"Changed $${description}\"");
+        assertThat(second.getMetadata().getStatistics().get("entitiesReused")).isNotEqualTo(0);
+
+        ObjectMapper mapper = new ObjectMapper();
+        for (ConversionResult.TerraformFile file : second.getFiles()) {
+            if (file.getFilePath().endsWith(".tf.json")) {
+                assertThat(mapper.readTree(file.getContent()).isObject()).as(file.getFilePath()).isTrue();
+            }
+        }
+        assertThat(findFileByPath(first, "users/main.tf.json").getContent())
+            .isEqualTo(findFileByPath(second, "users/main.tf.json").getContent());
+    }
+
+    @Test
+    @DisplayName("Should declare only the module dependencies the realm actually references")
+    void shouldDeriveModuleDependenciesFromReferences() {
+        // Given
+        RealmRepresentation realm = TestDataFactory.createComprehensiveRealm();
+        realm.getGroups().get(0).setRealmRoles(null);
+        realm.getGroups().get(0).getSubGroups().forEach(group -> group.setRealmRoles(null));
+
+        // When
+        ConversionResult result = terraformGeneratorService.generateTerragruntModules(realm, defaultOptions);
+
+        // Then
+        assertThat(findFileByPath(result, "groups/terragrunt.hcl").getContent())
+            .contains("dependency \"realm\"")
+            .doesNotContain("dependency \"roles\"");
+        assertThat(findFileByPath(result, "users/terragrunt.hcl").getContent())
+            .contains("dependency \"groups\"");
+
+        Map<?, ?> graph = (Map<?, ?>) result.getMetadata().getStatistics().get("dependencyGraph");
+        assertThat(graph.get("waves")).isEqualTo(List.of(
+            List.of("realm"),
+            List.of("authentication-flows", "client-scopes", "clients", "groups", "identity-providers", "roles"),
+            List.of("users")));
+        assertThat(graph.get("maxWidth")).isEqualTo(6);
+        assertThat(graph.get("criticalPath")).isEqualTo(List.of("realm", "groups", "users"));
+
+        String root = result.getFiles().stream()
+            .filter(file -> file.getFilePath().endsWith("/" + realm.getRealm() + "/terragrunt.hcl"))
+            .findFirst().orElseThrow().getContent();
+        assertThat(root)
+            .doesNotContain("dependencies {")
+            .contains("# - users -> realm, groups")
+            .contains("# Critical path: realm -> groups -> users")
+            .contains("# Maximum width: 6");
+    }
+
     // Helper methods
     private ConversionRequest.ConversionOptions createDefaultOptions() {
         ConversionRequest.ConversionOptions options = new ConversionRequest.ConversionOptions();
@@ -339,4 +953,27 @@ class TerraformModuleGenerationTest {
             .findFirst()
             .orElse(null);
     }
-}
\ No newline at end of file
+
+    private Map<String, String> shardByUsername(ConversionResult result) {
+        Map<String, String> shards = new LinkedHashMap<>();
+        for (ConversionResult.TerraformFile file : result.getFiles()) {
+            Matcher shard = Pattern.compile(".*/(users/shard-\\d+)/main\\.tf")
+                .matcher(file.getFilePath());
+            if (shard.matches()) {
+                Matcher username = Pattern.compile("username = \"([^\"]+)\"")
+                    .matcher(file.getContent());
+                while (username.find()) {
+                    shards.put(username.group(1), shard.group(1));
+                }
+            }
+        }
+        return shards;
+    }
+
+    private GroupRepresentation group(String name) {
+        GroupRepresentation group = new GroupRepresentation();
+        group.setId(name + "-id");
+        group.setName(name);
+        return group;
+    }
+}
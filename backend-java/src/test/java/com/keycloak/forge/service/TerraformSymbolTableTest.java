@@ -0,0 +1,88 @@
+package com.keycloak.forge.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.idm.RealmRepresentation;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.keycloak.representations.idm.RolesRepresentation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("Terraform Symbol Table Tests")
+class TerraformSymbolTableTest {
+
+    @Test
+    @DisplayName("Should sanitize names into valid Terraform identifiers")
+    void shouldSanitizeNamesIntoValidIdentifiers() {
+        assertThat(TerraformSymbolTable.sanitize("Realm-With-Special@chars#test")).isEqualTo("realm-with-special_chars_test");
+        assertThat(TerraformSymbolTable.sanitize("/Engineering/Backend")).isEqualTo("_engineering_backend");
+        assertThat(TerraformSymbolTable.sanitize("2fa-users")).isEqualTo("_2fa-users");
+        assertThat(TerraformSymbolTable.sanitize("")).isEqualTo("unknown");
+        assertThat(TerraformSymbolTable.sanitize(null)).isEqualTo("unknown");
+    }
+
+    @Test
+    @DisplayName("Should memoize addresses and suffix colliding names in first-seen order")
+    void shouldSuffixCollidingNamesDeterministically() {
+        // Given
+        TerraformSymbolTable symbols = new TerraformSymbolTable();
+
+        // When
+        String dotted = symbols.name(TerraformSymbolTable.ROLES, "a.b");
+        String underscored = symbols.name(TerraformSymbolTable.ROLES, "a_b");
+        String upperCase = symbols.name(TerraformSymbolTable.ROLES, "A.B");
+
+        // Then
+        assertThat(List.of(dotted, underscored, upperCase)).containsExactly("a_b", "a_b_2", "a_b_3");
+        assertThat(symbols.name(TerraformSymbolTable.ROLES, "a_b")).isEqualTo("a_b_2");
+        assertThat(symbols.name(TerraformSymbolTable.CLIENTS, "a_b")).isEqualTo("a_b");
+        assertThat(symbols.collisionFingerprint()).isNotEmpty();
+    }
+
+    @Test
+    @DisplayName("Should keep linking resources unique even when their parts concatenate alike")
+    void shouldKeepPairAddressesUnique() {
+        // Given
+        TerraformSymbolTable symbols = new TerraformSymbolTable();
+
+        // When
+        String first = symbols.pair(TerraformSymbolTable.PROTOCOL_MAPPERS, "a_b", "c");
+        String second = symbols.pair(TerraformSymbolTable.PROTOCOL_MAPPERS, "a", "b_c");
+
+        // Then
+        assertThat(first).isEqualTo("a_b_c");
+        assertThat(second).isEqualTo("a_b_c_2");
+        assertThat(symbols.protocolMapper("client", "email")).isEqualTo("client_email");
+        assertThat(symbols.protocolMapper("client", "e.mail")).isEqualTo("client_e_mail");
+        assertThat(symbols.protocolMapper("client", "e_mail")).isEqualTo("client_e_mail_2");
+    }
+
+    @Test
+    @DisplayName("Should assign the same addresses regardless of lookup order once the realm is declared")
+    void shouldAssignAddressesIndependentOfLookupOrder() {
+        // Given
+        RealmRepresentation realm = new RealmRepresentation();
+        RolesRepresentation roles = new RolesRepresentation();
+        roles.setRealm(new ArrayList<>(List.of(
+            new RoleRepresentation("x.y", null, false),
+            new RoleRepresentation("x_y", null, false))));
+        realm.setRoles(roles);
+
+        TerraformSymbolTable forward = new TerraformSymbolTable();
+        forward.declare(realm);
+        TerraformSymbolTable backward = new TerraformSymbolTable();
+        backward.declare(realm);
+
+        // When
+        String forwardFirst = forward.name(TerraformSymbolTable.ROLES, "x.y");
+        String backwardSecond = backward.name(TerraformSymbolTable.ROLES, "x_y");
+
+        // Then
+        assertThat(forwardFirst).isEqualTo("x_y");
+        assertThat(backwardSecond).isEqualTo("x_y_2");
+        assertThat(backward.name(TerraformSymbolTable.ROLES, "x.y")).isEqualTo(forwardFirst);
+    }
+}
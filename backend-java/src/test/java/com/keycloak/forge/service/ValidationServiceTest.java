@@ -0,0 +1,339 @@
+package com.keycloak.forge.service;
+
+import com.keycloak.forge.model.ConversionRequest;
+import com.keycloak.forge.model.ConversionResult;
+import com.keycloak.forge.model.RealmFingerprint;
+import com.keycloak.forge.model.RoundTripValidation;
+import com.keycloak.forge.model.ValidationResult;
+import com.keycloak.forge.utils.TestDataFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.resource.RealmResource;
+import org.keycloak.representations.idm.RealmRepresentation;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("Validation Service Tests")
+class ValidationServiceTest {
+
+    private RealmRepresentation deployed;
+    private Keycloak keycloak;
+    private RealmResource realmResource;
+    private ValidationService validationService;
+
+    @BeforeEach
+    void setUp() {
+        deployed = TestDataFactory.createComprehensiveRealm();
+        keycloak = mock(Keycloak.class);
+        realmResource = mock(RealmResource.class, RETURNS_DEEP_STUBS);
+        when(keycloak.realm(deployed.getRealm())).thenReturn(realmResource);
+
+        RealmRepresentation settings = TestDataFactory.createComprehensiveRealm();
+        settings.setGroups(null);
+        settings.setUsers(null);
+        settings.setRoles(null);
+        settings.setClients(null);
+        settings.setIdentityProviders(null);
+        settings.setAuthenticationFlows(null);
+        when(realmResource.toRepresentation()).thenReturn(settings);
+        when(realmResource.groups().groups(isNull(), anyInt(), anyInt(), eq(false)))
+            .thenAnswer(invocation -> page(deployed.getGroups(), invocation.getArgument(1), invocation.getArgument(2)));
+        when(realmResource.users().list(anyInt(), anyInt()))
+            .thenAnswer(invocation -> page(deployed.getUsers(), invocation.getArgument(0), invocation.getArgument(1)));
+        when(realmResource.roles().list()).thenReturn(deployed.getRoles().getRealm());
+        when(realmResource.clients().findAll()).thenReturn(deployed.getClients());
+        when(realmResource.identityProviders().findAll()).thenReturn(deployed.getIdentityProviders());
+        when(realmResource.flows().getFlows()).thenReturn(deployed.getAuthenticationFlows());
+
+        validationService = new ValidationService(keycloak, 3);
+        ReflectionTestUtils.setField(validationService, "fetchTimeoutSeconds", 1L);
+        ReflectionTestUtils.setField(validationService, "pageSize", 2);
+        ReflectionTestUtils.setField(validationService, "pagesInFlight", 2);
+    }
+
+    @Test
+    @DisplayName("Should assemble the exported realm from concurrent fetches and time each one")
+    void shouldAssembleExportedRealmAndRecordFetchSteps() {
+        // When
+        RoundTripValidation validation = validationService.performRoundTripValidation(
+            TestDataFactory.createComprehensiveRealm(), deployed.getRealm());
+
+        // Then
+        assertThat(validation.getError()).isNull();
+        assertThat(validation.getSteps())
+            .extracting(RoundTripValidation.ValidationStep::getName)
+            .containsExactly("fetch-realm", "fetch-groups", "fetch-users", "fetch-roles", "fetch-clients",
+                "fetch-identity-providers", "fetch-authentication-flows");
+        assertThat(validation.getSteps()).allSatisfy(step -> {
+            assertThat(step.isSuccess()).isTrue();
+            assertThat(step.getDurationMs()).isNotNull().isNotNegative();
+        });
+        assertThat(validation.getExecutionTimeMs()).isNotNull();
+
+        RealmRepresentation exported = validationService.exportDeployedRealm(deployed.getRealm());
+        assertThat(exported.getUsers()).isEqualTo(deployed.getUsers());
+        assertThat(exported.getRoles().getRealm()).isEqualTo(deployed.getRoles().getRealm());
+        assertThat(exported.getAuthenticationFlows()).isEqualTo(deployed.getAuthenticationFlows());
+    }
+
+    @Test
+    @DisplayName("Should fail the validation when a component fetch exceeds its timeout")
+    void shouldFailWhenComponentFetchTimesOut() {
+        // Given
+        CountDownLatch never = new CountDownLatch(1);
+        when(realmResource.users().list(anyInt(), anyInt())).thenAnswer(invocation -> {
+            never.await(10, TimeUnit.SECONDS);
+            return List.of();
+        });
+
+        // When
+        RoundTripValidation validation = validationService.performRoundTripValidation(
+            TestDataFactory.createComprehensiveRealm(), deployed.getRealm());
+
+        // Then
+        assertThat(validation.isSuccess()).isFalse();
+        assertThat(validation.getError()).contains("users").contains("Timed out");
+        assertThat(validation.getSteps())
+            .extracting(RoundTripValidation.ValidationStep::getName, RoundTripValidation.ValidationStep::isSuccess)
+            .containsExactly(tuple("fetch-realm", true), tuple("fetch-groups", true), tuple("fetch-users", false));
+        assertThat(validation.getExecutionTimeMs()).isLessThan(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    @Test
+    @DisplayName("Should not count the wait for a free fetch thread against the timeout")
+    void shouldStartFetchTimeoutWhenCallRuns() {
+        // Given
+        ValidationService singleThreaded = new ValidationService(keycloak, 1);
+        ReflectionTestUtils.setField(singleThreaded, "fetchTimeoutSeconds", 1L);
+        ReflectionTestUtils.setField(singleThreaded, "pageSize", 100);
+        ReflectionTestUtils.setField(singleThreaded, "pagesInFlight", 1);
+        when(realmResource.roles().list()).thenAnswer(invocation -> {
+            Thread.sleep(400);
+            return deployed.getRoles().getRealm();
+        });
+        when(realmResource.clients().findAll()).thenAnswer(invocation -> {
+            Thread.sleep(400);
+            return deployed.getClients();
+        });
+        when(realmResource.flows().getFlows()).thenAnswer(invocation -> {
+            Thread.sleep(400);
+            return deployed.getAuthenticationFlows();
+        });
+
+        // When
+        RoundTripValidation validation = singleThreaded.performRoundTripValidation(
+            TestDataFactory.createComprehensiveRealm(), deployed.getRealm());
+        singleThreaded.shutdown();
+
+        // Then
+        assertThat(validation.getError()).isNull();
+        assertThat(validation.getSteps()).allMatch(RoundTripValidation.ValidationStep::isSuccess);
+        // Queued behind 800ms of other calls, yet timed only from when it ran
+        assertThat(validation.getSteps().get(6).getName()).isEqualTo("fetch-authentication-flows");
+        assertThat(validation.getSteps().get(6).getDurationMs()).isLessThan(TimeUnit.SECONDS.toMillis(1));
+    }
+
+    @Test
+    @DisplayName("Should walk every page of users and groups and compare them without truncation")
+    void shouldWalkAllPagesOfUsersAndGroups() {
+        // Given
+        List<UserRepresentation> users = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            UserRepresentation user = new UserRepresentation();
+            user.setUsername("user-" + i);
+            users.add(user);
+        }
+        deployed.setUsers(users);
+        RealmRepresentation original = TestDataFactory.createComprehensiveRealm();
+        original.setUsers(users);
+
+        // When
+        RoundTripValidation validation = validationService.performRoundTripValidation(original, deployed.getRealm());
+        RealmRepresentation exported = validationService.exportDeployedRealm(deployed.getRealm());
+
+        // Then
+        assertThat(exported.getUsers()).containsExactlyElementsOf(users);
+        assertThat(exported.getGroups()).containsExactlyElementsOf(deployed.getGroups());
+        assertThat(validation.getValidationResult().getComponentAccuracy()).containsEntry("users", 100.0);
+        assertThat(validation.getValidationResult().getDifferences()).noneMatch(difference -> difference.startsWith("Users"));
+        verify(realmResource.users(), times(2)).list(6, 2);
+        verify(realmResource.users(), never()).list(10, 2);
+    }
+
+    @Test
+    @DisplayName("Should report missing, extra and modified entities per component")
+    void shouldReportEntityDifferencesPerComponent() {
+        // Given
+        RealmRepresentation original = TestDataFactory.createComprehensiveRealm();
+        RealmRepresentation exported = TestDataFactory.createComprehensiveRealm();
+        UserRepresentation removed = exported.getUsers().remove(0);
+        UserRepresentation added = new UserRepresentation();
+        added.setUsername("intruder");
+        exported.getUsers().add(added);
+        UserRepresentation changed = exported.getUsers().get(0);
+        changed.setEmail("changed@example.com");
+        exported.getRoles().getRealm().get(0).setDescription("Changed description");
+
+        // When
+        ValidationResult result = validationService.compareRealms(original, exported);
+
+        // Then
+        ValidationResult.ComponentComparison users = result.getDetailedComparison().get("users");
+        assertThat(users.getMissingElements()).containsExactly(removed.getUsername());
+        assertThat(users.getExtraElements()).containsExactly("intruder");
+        assertThat(users.getModifiedElements()).containsExactly(changed.getUsername() + " (email)");
+        assertThat(users.getAccuracy()).isLessThan(100.0);
+
+        ValidationResult.ComponentComparison roles = result.getDetailedComparison().get("roles");
+        assertThat(roles.getModifiedElements()).hasSize(1);
+        assertThat(roles.getMissingElements()).isEmpty();
+        assertThat(result.getDetailedComparison().get("clients").getAccuracy()).isEqualTo(100.0);
+        assertThat(result.getDetailedComparison().get("groups").getAccuracy()).isEqualTo(100.0);
+
+        assertThat(result.isValid()).isFalse();
+        assertThat(result.getDifferences())
+            .anyMatch(difference -> difference.contains("field 'email'") && difference.contains("changed@example.com"))
+            .anyMatch(difference -> difference.contains("'intruder' is not in the original realm"))
+            .anyMatch(difference -> difference.contains("'" + removed.getUsername() + "' is missing"));
+    }
+
+    @Test
+    @DisplayName("Should match identical realms entity by entity")
+    void shouldMatchIdenticalRealms() {
+        // When
+        ValidationResult result = validationService.compareRealms(
+            TestDataFactory.createComprehensiveRealm(), TestDataFactory.createComprehensiveRealm());
+
+        // Then
+        assertThat(result.isValid()).isTrue();
+        assertThat(result.getDifferences()).isEmpty();
+        assertThat(result.getMatchedElements()).isEqualTo(result.getTotalElements());
+        assertThat(result.getDetailedComparison()).containsOnlyKeys("groups", "users", "roles", "clients");
+    }
+
+    @Test
+    @DisplayName("Should validate the round trip offline by reading the realm back from the generated HCL")
+    void shouldValidateRoundTripOfflineFromGeneratedHcl() {
+        // Given
+        RealmRepresentation original = TestDataFactory.createComprehensiveRealm();
+        // The groups map this role; role mappings to roles the realm does not define are not generated
+        original.getRoles().getRealm().add(new RoleRepresentation("developer", "Developer", false));
+        List<ConversionResult.TerraformFile> files = new TerraformGeneratorService()
+            .generateTerragruntModules(original, new ConversionRequest.ConversionOptions()).getFiles();
+
+        // When
+        RoundTripValidation validation = validationService.performOfflineRoundTripValidation(original, files);
+
+        // Then
+        assertThat(validation.getError()).isNull();
+        assertThat(validation.getSteps()).extracting(RoundTripValidation.ValidationStep::getName)
+            .containsExactly("read-generated");
+        // Settings, roles, clients and the group hierarchy survive; the provider has no email_verified
+        assertThat(validation.getValidationResult().getDifferences())
+            .containsExactlyInAnyOrder(
+                "User 'john.doe' field 'emailVerified': original='true', exported='null'",
+                "User 'admin' field 'emailVerified': original='true', exported='null'");
+    }
+
+    @Test
+    @DisplayName("Should fail the offline validation when the files define no realm")
+    void shouldFailOfflineValidationWithoutRealmResource() {
+        // Given
+        List<ConversionResult.TerraformFile> files = List.of(ConversionResult.TerraformFile.builder()
+            .filePath("roles/main.tf")
+            .content("resource \"keycloak_role\" \"admin\" {\n  name = \"admin\"\n}\n")
+            .build());
+
+        // When
+        RoundTripValidation validation = validationService.performOfflineRoundTripValidation(
+            TestDataFactory.createComprehensiveRealm(), files);
+
+        // Then
+        assertThat(validation.isSuccess()).isFalse();
+        assertThat(validation.getError()).contains("no keycloak_realm resource");
+    }
+
+    @Test
+    @DisplayName("Should fingerprint realms identically regardless of IDs, defaults and collection order")
+    void shouldFingerprintCanonicalizedRealms() {
+        // Given
+        RealmRepresentation original = TestDataFactory.createComprehensiveRealm();
+        RealmRepresentation exported = TestDataFactory.createComprehensiveRealm();
+        exported.getUsers().forEach(user -> user.setId(UUID.randomUUID().toString()));
+        Collections.reverse(exported.getUsers());
+        Collections.reverse(exported.getClients());
+        exported.getClients().stream()
+            .filter(client -> client.getRedirectUris() != null)
+            .forEach(client -> {
+                List<String> redirectUris = new ArrayList<>(client.getRedirectUris());
+                Collections.reverse(redirectUris);
+                client.setRedirectUris(redirectUris);
+            });
+        exported.getRoles().getRealm().stream()
+            .filter(role -> !role.isComposite())
+            .forEach(role -> role.setComposite(false));
+
+        // When
+        RealmFingerprint originalFingerprint = validationService.fingerprintRealm(original);
+        RealmFingerprint exportedFingerprint = validationService.fingerprintRealm(exported);
+        ValidationResult result = validationService.compareRealms(original, exported);
+
+        // Then
+        assertThat(exportedFingerprint.getRoot()).isEqualTo(originalFingerprint.getRoot());
+        assertThat(originalFingerprint.getComponents())
+            .containsOnlyKeys("realm", "groups", "users", "roles", "clients");
+        assertThat(originalFingerprint.getComponents().get("users").getEntities())
+            .hasSize(original.getUsers().size());
+        assertThat(result.isValid()).isTrue();
+        assertThat(result.getOriginalFingerprint()).isEqualTo(originalFingerprint.getRoot());
+        assertThat(result.getExportedFingerprint()).isEqualTo(originalFingerprint.getRoot());
+    }
+
+    @Test
+    @DisplayName("Should compare a stored baseline fingerprint down to the changed entities only")
+    void shouldCompareBaselineFingerprints() {
+        // Given
+        RealmFingerprint baseline = validationService.fingerprintRealm(TestDataFactory.createComprehensiveRealm());
+        RealmRepresentation current = TestDataFactory.createComprehensiveRealm();
+        UserRepresentation changed = current.getUsers().get(0);
+        changed.setLastName("Changed");
+        current.setDisplayName("Changed Display Name");
+
+        // When
+        ValidationResult unchanged = validationService.compareFingerprints(baseline, baseline);
+        ValidationResult result = validationService.compareFingerprints(baseline, validationService.fingerprintRealm(current));
+
+        // Then
+        assertThat(unchanged.isValid()).isTrue();
+        assertThat(unchanged.getDifferences()).isEmpty();
+        assertThat(unchanged.getMatchedElements()).isEqualTo(unchanged.getTotalElements());
+
+        assertThat(result.isValid()).isFalse();
+        assertThat(result.getDetailedComparison().get("users").getModifiedElements())
+            .containsExactly(changed.getUsername());
+        assertThat(result.getDetailedComparison().get("realm").getModifiedElements()).containsExactly("displayName");
+        assertThat(result.getComponentAccuracy())
+            .containsEntry("roles", 100.0)
+            .containsEntry("clients", 100.0)
+            .containsEntry("groups", 100.0);
+        assertThat(result.getDifferences()).hasSize(2);
+    }
+
+    private static <T> List<T> page(List<T> all, int first, int max) {
+        return all.subList(Math.min(first, all.size()), Math.min(first + max, all.size()));
+    }
+}
@@ -63,4 +63,17 @@ output "groups_with_roles" {
       }
     }
   )
-}
\ No newline at end of file
+}
+output "group_ids" {
+  description = "Map of group paths to their IDs"
+  value = merge(
+    {
+      for key, group in keycloak_group.parent_groups :
+      local.groups_map[key].path => group.id
+    },
+    {
+      for key, group in keycloak_group.child_groups :
+      local.groups_map[key].path => group.id
+    }
+  )
+}